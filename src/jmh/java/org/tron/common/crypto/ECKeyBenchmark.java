@@ -0,0 +1,94 @@
+package org.tron.common.crypto;
+
+import java.security.SignatureException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tron.common.crypto.ECKey.ECDSASignature;
+import org.tron.common.utils.BenchmarkFixtures;
+
+/**
+ * Signing, verifying and recovering the signer of one 32 byte hash.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ECKeyBenchmark {
+
+  private ECKey key;
+  private byte[] pubKey;
+  private byte[] hash;
+  private ECDSASignature signature;
+  private String signatureBase64;
+  private byte[] signatureRaw;
+
+  @Setup
+  public void setUp() {
+    key = BenchmarkFixtures.key(1);
+    pubKey = key.getPubKey();
+    hash = Hash.sha256("benchmark".getBytes());
+    signature = key.sign(hash);
+    signatureBase64 = signature.toBase64();
+    signatureRaw = signature.toByteArray();
+  }
+
+  @Benchmark
+  public ECDSASignature sign() {
+    return key.sign(hash);
+  }
+
+  @Benchmark
+  public boolean verify() {
+    return ECKey.verify(hash, signature, pubKey);
+  }
+
+  @Benchmark
+  public byte[] signatureToAddress() throws SignatureException {
+    return ECKey.signatureToAddress(hash, signatureBase64);
+  }
+
+  @Benchmark
+  public byte[] signatureToAddressNoBase64() throws SignatureException {
+    return ECKey.signatureToAddress(hash, signature);
+  }
+
+  /**
+   * From the 65 bytes stored in a transaction, as {@link SignatureRecovery} does.
+   */
+  @Benchmark
+  public byte[] signatureToAddressRaw() throws SignatureException {
+    return ECKey.signatureToAddress(hash, signatureRaw);
+  }
+
+  /**
+   * A key already in the {@link PublicKeyCache}, as for a balance poller.
+   */
+  @Benchmark
+  public byte[] computeAddressCached() {
+    return ECKey.computeAddress(pubKey);
+  }
+
+  @Benchmark
+  public ECKey fromPublicOnlyCached() {
+    return ECKey.fromPublicOnly(pubKey);
+  }
+
+  /**
+   * What {@link #fromPublicOnlyCached} costs without the cache.
+   */
+  @Benchmark
+  public ECKey fromPublicOnlyDecode() {
+    return ECKey.fromPublicOnly(ECKey.CURVE.getCurve().decodePoint(pubKey));
+  }
+}
@@ -0,0 +1,121 @@
+package org.tron.common.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tron.common.crypto.jce.TronCastleProvider;
+
+/**
+ * Per call cost of {@link Hash}. The {@code ...GetInstance} benchmarks repeat the old pattern of
+ * looking a digest up for every call. The per-thread digests are there for thread safety; what
+ * they save per call is the digest allocation, which {@code -prof gc} shows (48 against about 600
+ * B/op), while the time saved is small next to the hashing itself and within the error of a run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashBenchmark {
+
+  @Param({"32", "256", "1024"})
+  public int size;
+
+  private byte[] input;
+  private ByteBuffer directInput;
+  private final byte[] out = new byte[Hash.SHA3_LENGTH];
+  private byte[] publicKeys;
+  private final byte[] addresses = new byte[PUBLIC_KEYS * Hash.ADDRESS_LENGTH];
+
+  private static final int PUBLIC_KEYS = 64;
+
+  @Setup
+  public void setUp() {
+    input = new byte[size];
+    new Random(size).nextBytes(input);
+    directInput = ByteBuffer.allocateDirect(size);
+    directInput.put(input).flip();
+    publicKeys = new byte[PUBLIC_KEYS * 65];
+    new Random(size).nextBytes(publicKeys);
+  }
+
+  @Benchmark
+  public byte[] sha256() {
+    return Hash.sha256(input);
+  }
+
+  @Benchmark
+  public byte[] sha256GetInstance() throws NoSuchAlgorithmException {
+    return MessageDigest.getInstance("SHA-256").digest(input);
+  }
+
+  @Benchmark
+  public byte[] sha3() {
+    return Hash.sha3(input);
+  }
+
+  @Benchmark
+  public byte[] sha3IntoBuffer() {
+    Hash.sha3(input, 0, input.length, out, 0);
+    return out;
+  }
+
+  @Benchmark
+  public byte[] sha3DirectBuffer() {
+    return Hash.sha3(directInput);
+  }
+
+  @Benchmark
+  public byte[] sha3DirectBufferIntoBuffer() {
+    Hash.sha3(directInput, out, 0);
+    return out;
+  }
+
+  /**
+   * {@value #PUBLIC_KEYS} addresses, hashed one key at a time as {@link
+   * ECKey#computeAddress(byte[])} does for a key that is not in the {@link PublicKeyCache}.
+   */
+  @Benchmark
+  public byte[] computeAddress() {
+    byte[] address = null;
+    for (int i = 0; i < PUBLIC_KEYS; i++) {
+      address = Hash.sha3omit12(Arrays.copyOfRange(publicKeys, i * 65, (i + 1) * 65), 1, 64);
+    }
+    return address;
+  }
+
+  /**
+   * The same {@value #PUBLIC_KEYS} addresses with one batch call.
+   */
+  @Benchmark
+  public byte[] computeAddresses() {
+    ECKey.computeAddresses(publicKeys, PUBLIC_KEYS, addresses, 0);
+    return addresses;
+  }
+
+  @Benchmark
+  public byte[] sha3GetInstance() throws NoSuchAlgorithmException {
+    return MessageDigest.getInstance("TRON-KECCAK-256", TronCastleProvider.getInstance())
+        .digest(input);
+  }
+
+  @Benchmark
+  public byte[] sha512() {
+    return Hash.sha512(input);
+  }
+}
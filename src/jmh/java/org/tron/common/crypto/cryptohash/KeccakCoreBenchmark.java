@@ -0,0 +1,54 @@
+package org.tron.common.crypto.cryptohash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The keccak-f permutation on one rate sized block, without padding or output, absorbed from an
+ * array or read in place from a little-endian direct buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeccakCoreBenchmark {
+
+  private Keccak256 keccak;
+  private byte[] block;
+  private ByteBuffer directBlock;
+
+  @Setup
+  public void setUp() {
+    keccak = new Keccak256();
+    block = new byte[keccak.getBlockLength()];
+    new Random(1).nextBytes(block);
+    directBlock = ByteBuffer.allocateDirect(block.length).order(ByteOrder.LITTLE_ENDIAN);
+    directBlock.put(block).flip();
+  }
+
+  @Benchmark
+  public Keccak256 processBlock() {
+    keccak.processBlock(block);
+    return keccak;
+  }
+
+  @Benchmark
+  public Keccak256 processDirectBlock() {
+    keccak.processBlock(directBlock, 0);
+    return keccak;
+  }
+}
@@ -0,0 +1,67 @@
+package org.tron.common.utils;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import java.math.BigInteger;
+import java.util.Random;
+import org.tron.common.crypto.ECKey;
+import org.tron.protos.Contract.TransferContract;
+import org.tron.protos.Protocol.Account;
+import org.tron.protos.Protocol.AccountType;
+import org.tron.protos.Protocol.Transaction;
+
+/**
+ * Deterministic keys, transactions and accounts shared by the benchmarks, so that runs compare
+ * like with like.
+ */
+public class BenchmarkFixtures {
+
+  private BenchmarkFixtures() {
+  }
+
+  public static ECKey key(long seed) {
+    return ECKey.fromPrivate(new BigInteger(250, new Random(seed)).add(BigInteger.ONE));
+  }
+
+  /**
+   * An unsigned transaction with {@code contracts} transfers from {@code owner}.
+   */
+  public static Transaction transfer(ECKey owner, int contracts) {
+    byte[] to = key(-1).getAddress();
+    Transaction.raw.Builder raw = Transaction.raw.newBuilder()
+        .setType(Transaction.TransactionType.ContractType)
+        .setExpiration(1520000000000L);
+    for (int i = 0; i < contracts; i++) {
+      TransferContract contract = TransferContract.newBuilder()
+          .setOwnerAddress(ByteString.copyFrom(owner.getAddress()))
+          .setToAddress(ByteString.copyFrom(to))
+          .setAmount(1000 + i)
+          .build();
+      raw.addContract(Transaction.Contract.newBuilder()
+          .setType(Transaction.Contract.ContractType.TransferContract)
+          .setParameter(Any.pack(contract)));
+    }
+    return Transaction.newBuilder().setRawData(raw).build();
+  }
+
+  public static Account account(int i) {
+    Random random = new Random(i);
+    byte[] address = new byte[21];
+    random.nextBytes(address);
+    Account.Builder account = Account.newBuilder()
+        .setAccountName(ByteString.copyFromUtf8("account-" + i))
+        .setType(AccountType.Normal)
+        .setAddress(ByteString.copyFrom(address))
+        .setBalance(random.nextInt(Integer.MAX_VALUE))
+        .setLatestOprationTime(1520000000000L + i);
+    for (int v = 0; v < i % 3; v++) {
+      account.addVotes(Account.Vote.newBuilder()
+          .setVoteAddress(ByteString.copyFrom(address))
+          .setVoteCount(v + 1));
+    }
+    if (i % 2 == 0) {
+      account.putAsset("TRX" + i % 10, i);
+    }
+    return account.build();
+  }
+}
@@ -0,0 +1,57 @@
+package org.tron.common.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tron.common.crypto.ECKey;
+import org.tron.protos.Protocol.Transaction;
+
+/**
+ * Signing, validating and hashing a transfer transaction with one or several contracts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransactionUtilsBenchmark {
+
+  @Param({"1", "4"})
+  public int contracts;
+
+  private ECKey key;
+  private Transaction unsigned;
+  private Transaction signed;
+
+  @Setup
+  public void setUp() {
+    key = BenchmarkFixtures.key(1);
+    unsigned = BenchmarkFixtures.transfer(key, contracts);
+    signed = TransactionUtils.sign(unsigned, key);
+  }
+
+  @Benchmark
+  public Transaction sign() {
+    return TransactionUtils.sign(unsigned, key);
+  }
+
+  @Benchmark
+  public boolean validTransaction() {
+    return TransactionUtils.validTransaction(signed);
+  }
+
+  @Benchmark
+  public byte[] getHash() {
+    return TransactionUtils.getHash(signed);
+  }
+}
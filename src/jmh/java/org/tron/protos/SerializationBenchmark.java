@@ -0,0 +1,87 @@
+package org.tron.protos;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tron.api.GrpcAPI.AccountList;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.utils.BenchmarkFixtures;
+import org.tron.common.utils.TransactionUtils;
+import org.tron.protos.Protocol.Transaction;
+
+/**
+ * Protobuf encoding and decoding of a signed transaction and of an account list as returned by
+ * ListAccounts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @State(Scope.Thread)
+  public static class SignedTransaction {
+
+    private Transaction transaction;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+      ECKey key = BenchmarkFixtures.key(1);
+      transaction = TransactionUtils.sign(BenchmarkFixtures.transfer(key, 1), key);
+      bytes = transaction.toByteArray();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Accounts {
+
+    @Param({"10", "1000"})
+    public int accounts;
+
+    private AccountList accountList;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+      AccountList.Builder builder = AccountList.newBuilder();
+      for (int i = 0; i < accounts; i++) {
+        builder.addAccounts(BenchmarkFixtures.account(i));
+      }
+      accountList = builder.build();
+      bytes = accountList.toByteArray();
+    }
+  }
+
+  @Benchmark
+  public byte[] transactionToByteArray(SignedTransaction state) {
+    return state.transaction.toByteArray();
+  }
+
+  @Benchmark
+  public Transaction transactionParseFrom(SignedTransaction state)
+      throws InvalidProtocolBufferException {
+    return Transaction.parseFrom(state.bytes);
+  }
+
+  @Benchmark
+  public byte[] accountListToByteArray(Accounts state) {
+    return state.accountList.toByteArray();
+  }
+
+  @Benchmark
+  public AccountList accountListParseFrom(Accounts state) throws InvalidProtocolBufferException {
+    return AccountList.parseFrom(state.bytes);
+  }
+}
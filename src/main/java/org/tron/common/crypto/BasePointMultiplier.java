@@ -0,0 +1,74 @@
+package org.tron.common.crypto;
+
+import java.math.BigInteger;
+import org.spongycastle.math.ec.ECMultiplier;
+import org.spongycastle.math.ec.ECPoint;
+import org.spongycastle.math.ec.FixedPointCombMultiplier;
+
+/**
+ * Engines for multiplying the secp256k1 generator G by a scalar, which is what deriving a public
+ * key and producing the nonce point of a signature both come down to. Every engine returns the
+ * same point; they only differ in speed and memory.
+ *
+ * @see ECKey#setBasePointMultiplier(BasePointMultiplier)
+ */
+public enum BasePointMultiplier {
+
+  /**
+   * The curve's own multiplier (GLV with a wNAF table rebuilt for every call). Needs no memory up
+   * front, but is slower than the comb that spongycastle's own {@code ECDSASigner} uses for the
+   * nonce point, so selecting it slows signing down as well as key derivation.
+   */
+  GENERIC {
+    @Override
+    public ECMultiplier getMultiplier() {
+      return ECKey.CURVE.getCurve().getMultiplier();
+    }
+  },
+
+  /**
+   * Fixed-point comb over a table of multiples of G that is computed once and then shared by all
+   * threads (a few tens of KiB). This is the default, and the same multiplier {@code
+   * ECDSASigner} picks for k * G. A multiplication is then only additions and doublings over the
+   * comb, several times cheaper than the generic path.
+   */
+  COMB {
+    private final ECMultiplier multiplier = new FixedPointCombMultiplier();
+
+    @Override
+    public ECMultiplier getMultiplier() {
+      return multiplier;
+    }
+
+    @Override
+    void warmUp() {
+      // Builds the comb table and caches it on G.
+      multiplier.multiply(ECKey.CURVE.getG(), BigInteger.ONE);
+    }
+  };
+
+  /**
+   * System property naming the engine to use at startup, e.g. {@code
+   * -Dtron.crypto.basePointMultiplier=comb}.
+   */
+  public static final String PROPERTY = "tron.crypto.basePointMultiplier";
+
+  public abstract ECMultiplier getMultiplier();
+
+  /**
+   * Compute {@code k * G}, normalized to affine coordinates.
+   */
+  public ECPoint multiply(BigInteger k) {
+    return getMultiplier().multiply(ECKey.CURVE.getG(), k).normalize();
+  }
+
+  void warmUp() {
+  }
+
+  public static BasePointMultiplier fromName(String name) {
+    if (name == null || "".equals(name.trim())) {
+      return COMB;
+    }
+    return BasePointMultiplier.valueOf(name.trim().toUpperCase());
+  }
+}
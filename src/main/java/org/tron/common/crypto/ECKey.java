@@ -57,6 +57,7 @@ import org.spongycastle.crypto.params.ECPrivateKeyParameters;
 import org.spongycastle.crypto.params.ECPublicKeyParameters;
 import org.spongycastle.crypto.params.KeyParameter;
 import org.spongycastle.crypto.params.ParametersWithIV;
+import org.spongycastle.crypto.signers.DSAKCalculator;
 import org.spongycastle.crypto.signers.ECDSASigner;
 import org.spongycastle.crypto.signers.HMacDSAKCalculator;
 import org.spongycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
@@ -66,6 +67,7 @@ import org.spongycastle.jce.spec.ECPrivateKeySpec;
 import org.spongycastle.jce.spec.ECPublicKeySpec;
 import org.spongycastle.math.ec.ECAlgorithms;
 import org.spongycastle.math.ec.ECCurve;
+import org.spongycastle.math.ec.ECMultiplier;
 import org.spongycastle.math.ec.ECPoint;
 import org.spongycastle.util.BigIntegers;
 import org.spongycastle.util.encoders.Base64;
@@ -96,6 +98,7 @@ public class ECKey implements Serializable {
       ("fffffffffffffffffffffffffffffffebaaedce6af48a03bbfd25e8cd0364141", 16);
   private static final SecureRandom secureRandom;
   private static final long serialVersionUID = -728224901792295832L;
+  private static volatile BasePointMultiplier basePointMultiplier;
 
   static {
     // All clients must agree on the curve to use by agreement.
@@ -106,6 +109,8 @@ public class ECKey implements Serializable {
         params.getN(), params.getH());
     HALF_CURVE_ORDER = params.getN().shiftRight(1);
     secureRandom = new SecureRandom();
+    setBasePointMultiplier(
+        BasePointMultiplier.fromName(System.getProperty(BasePointMultiplier.PROPERTY)));
   }
 
   protected final ECPoint pub;
@@ -243,6 +248,24 @@ public class ECKey implements Serializable {
     }
   }
 
+  /**
+   * Select the engine used for multiples of the generator in {@link #fromPrivate(BigInteger)},
+   * {@link #publicKeyFromPrivate(BigInteger, boolean)} and signing. The default comes from the
+   * {@value BasePointMultiplier#PROPERTY} system property, falling back to {@link
+   * BasePointMultiplier#COMB}. Any precomputation is done before this method returns.
+   */
+  public static void setBasePointMultiplier(BasePointMultiplier multiplier) {
+    if (multiplier == null) {
+      throw new IllegalArgumentException("Base point multiplier may not be null");
+    }
+    multiplier.warmUp();
+    basePointMultiplier = multiplier;
+  }
+
+  public static BasePointMultiplier getBasePointMultiplier() {
+    return basePointMultiplier;
+  }
+
   /**
    * Utility for compressing an elliptic curve point. Returns the same point if it's already
    * compressed. See the ECKey class docs for a discussion of point compression.
@@ -274,7 +297,7 @@ public class ECKey implements Serializable {
    * @return -
    */
   public static ECKey fromPrivate(BigInteger privKey) {
-    return new ECKey(privKey, CURVE.getG().multiply(privKey));
+    return new ECKey(privKey, basePointMultiplier.multiply(privKey));
   }
 
   /**
@@ -331,13 +354,14 @@ public class ECKey implements Serializable {
 
   /**
    * Creates an ECKey that cannot be used for signing, only verifying signatures, from the given
-   * encoded point. The compression state of pub will be preserved.
+   * encoded point. The compression state of pub will be preserved. The point is decoded once per
+   * key and then taken from the {@link PublicKeyCache}.
    *
    * @param pub -
    * @return -
    */
   public static ECKey fromPublicOnly(byte[] pub) {
-    return new ECKey(null, CURVE.getCurve().decodePoint(pub));
+    return new ECKey(null, PublicKeyCache.getDefault().point(pub));
   }
 
   /**
@@ -350,19 +374,31 @@ public class ECKey implements Serializable {
    */
   public static byte[] publicKeyFromPrivate(BigInteger privKey, boolean
       compressed) {
-    ECPoint point = CURVE.getG().multiply(privKey);
+    ECPoint point = basePointMultiplier.multiply(privKey);
     return point.getEncoded(compressed);
   }
 
   /**
-   * Compute an address from an encoded public key.
+   * Compute an address from an encoded public key, hashing each key only once while it stays in
+   * the {@link PublicKeyCache}.
    *
    * @param pubBytes an encoded (uncompressed) public key
    * @return 20-byte address
    */
   public static byte[] computeAddress(byte[] pubBytes) {
-    return Hash.sha3omit12(
-        Arrays.copyOfRange(pubBytes, 1, pubBytes.length));
+    return PublicKeyCache.getDefault().address(pubBytes);
+  }
+
+  /**
+   * Compute the addresses of many public keys with one reused hash state.
+   *
+   * @param pubKeys {@code count} encoded (uncompressed, 65 byte) public keys back to back
+   * @param count number of keys
+   * @param addresses receives the 20-byte addresses back to back, starting at {@code outOffset}
+   */
+  public static void computeAddresses(byte[] pubKeys, int count, byte[] addresses,
+      int outOffset) {
+    Hash.sha3omit12Each(pubKeys, 1, 65, 64, count, addresses, outOffset);
   }
 
   /**
@@ -476,6 +512,27 @@ public class ECKey implements Serializable {
     return computeAddress(signatureToKeyBytes(messageHash, sig));
   }
 
+  /**
+   * Compute the address of the key that signed the given signature, straight from its raw bytes.
+   *
+   * @param messageHash 32-byte hash of message
+   * @param signature R (32 bytes), S (32 bytes) and the header byte, either as 27 to 34 or as
+   * the recovery id 0 to 3, as in transaction signatures
+   * @return 20-byte address
+   */
+  public static byte[] signatureToAddress(byte[] messageHash, byte[] signature)
+      throws SignatureException {
+    if (signature.length != 65) {
+      throw new SignatureException("Signature length " + signature.length + ", expected 65");
+    }
+    byte v = signature[64];
+    if (v < 27) {
+      v += 27;
+    }
+    return signatureToAddress(messageHash, ECDSASignature.fromComponents(
+        Arrays.copyOfRange(signature, 0, 32), Arrays.copyOfRange(signature, 32, 64), v));
+  }
+
   /**
    * Compute the key that signed the given signature.
    *
@@ -861,8 +918,8 @@ public class ECKey implements Serializable {
       throw new MissingPrivateKeyException();
     }
     if (privKey instanceof BCECPrivateKey) {
-      ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new
-          SHA256Digest()));
+      ECDSASigner signer = new BasePointECDSASigner(new HMacDSAKCalculator(new
+          SHA256Digest()), basePointMultiplier);
       ECPrivateKeyParameters privKeyParams = new ECPrivateKeyParameters
           (((BCECPrivateKey) privKey).getD(), CURVE);
       signer.init(true, privKeyParams);
@@ -884,6 +941,59 @@ public class ECKey implements Serializable {
     }
   }
 
+  /**
+   * Signs the given hash like {@link #doSign(byte[])}, and also sets the recovery id from the
+   * nonce point R = k * G produced along the way: bit 0 is the parity of R.y and bit 1 is set when
+   * R.x overflowed the curve order. No public key recovery is needed afterwards.
+   *
+   * @param input to sign
+   * @return canonical ECDSASignature with v set to recId + 27
+   * @throws UnsupportedOperationException if the private key is not a Bouncy Castle key
+   */
+  public ECDSASignature doSignRecoverable(byte[] input) {
+    if (input.length != 32) {
+      throw new IllegalArgumentException("Expected 32 byte input to " +
+          "ECDSA signature, not " + input.length);
+    }
+    if (privKey == null) {
+      throw new MissingPrivateKeyException();
+    }
+    if (!(privKey instanceof BCECPrivateKey)) {
+      throw new UnsupportedOperationException("Recoverable signing needs the private scalar");
+    }
+    BigInteger n = CURVE.getN();
+    BigInteger d = ((BCECPrivateKey) privKey).getD();
+    // Same steps as ECDSASigner.generateSignature, keeping R.
+    BigInteger e = new BigInteger(1, input);
+    DSAKCalculator kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+    kCalculator.init(n, d, input);
+    BigInteger r;
+    BigInteger s;
+    int recId;
+    do {
+      BigInteger k;
+      ECPoint p;
+      BigInteger x;
+      do {
+        k = kCalculator.nextK();
+        p = basePointMultiplier.getMultiplier().multiply(CURVE.getG(), k).normalize();
+        x = p.getAffineXCoord().toBigInteger();
+        r = x.mod(n);
+      } while (r.signum() == 0);
+      s = k.modInverse(n).multiply(e.add(d.multiply(r))).mod(n);
+      recId = (p.getAffineYCoord().testBitZero() ? 1 : 0) | (x.compareTo(n) >= 0 ? 2 : 0);
+    } while (s.signum() == 0);
+
+    if (s.compareTo(HALF_CURVE_ORDER) > 0) {
+      // (r, n - s) is the signature for -k, whose point -R has the other y parity.
+      s = n.subtract(s);
+      recId ^= 1;
+    }
+    ECDSASignature sig = new ECDSASignature(r, s);
+    sig.v = (byte) (recId + 27);
+    return sig;
+  }
+
   /**
    * Takes the keccak hash (32 bytes) of data and returns the ECDSA signature
    *
@@ -892,24 +1002,33 @@ public class ECKey implements Serializable {
    * @throws IllegalStateException if this ECKey does not have the private part.
    */
   public ECDSASignature sign(byte[] messageHash) {
+    if (privKey instanceof BCECPrivateKey) {
+      return doSignRecoverable(messageHash);
+    }
     ECDSASignature sig = doSign(messageHash);
-    // Now we have to work backwards to figure out the recId needed to
-    // recover the signature.
-    int recId = -1;
+    sig.v = (byte) (findRecoveryId(sig, messageHash) + 27);
+    return sig;
+  }
+
+  /**
+   * Work backwards from a signature made by this key to the recId that recovers this key, by
+   * trying each candidate in turn. This is the slow path for keys held by other providers, and
+   * also a way to double check a recoverable signature.
+   *
+   * @param sig signature made by this key
+   * @param messageHash the signed hash
+   * @return recId between 0 and 3
+   */
+  public int findRecoveryId(ECDSASignature sig, byte[] messageHash) {
     byte[] thisKey = this.pub.getEncoded(/* compressed */ false);
     for (int i = 0; i < 4; i++) {
       byte[] k = ECKey.recoverPubBytesFromSignature(i, sig, messageHash);
       if (k != null && Arrays.equals(k, thisKey)) {
-        recId = i;
-        break;
+        return i;
       }
     }
-    if (recId == -1) {
-      throw new RuntimeException("Could not construct a recoverable key" +
-          ". This should never happen.");
-    }
-    sig.v = (byte) (recId + 27);
-    return sig;
+    throw new RuntimeException("Could not construct a recoverable key" +
+        ". This should never happen.");
   }
 
   public BigInteger keyAgreement(ECPoint otherParty) {
@@ -1227,6 +1346,24 @@ public class ECKey implements Serializable {
     }
   }
 
+  /**
+   * ECDSA signer whose nonce point k * G comes from the selected {@link BasePointMultiplier}.
+   */
+  private static class BasePointECDSASigner extends ECDSASigner {
+
+    private final BasePointMultiplier multiplier;
+
+    BasePointECDSASigner(DSAKCalculator kCalculator, BasePointMultiplier multiplier) {
+      super(kCalculator);
+      this.multiplier = multiplier;
+    }
+
+    @Override
+    protected ECMultiplier createBasePointMultiplier() {
+      return multiplier.getMultiplier();
+    }
+  }
+
   @SuppressWarnings("serial")
   public static class MissingPrivateKeyException extends RuntimeException {
 
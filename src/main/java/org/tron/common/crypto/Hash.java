@@ -18,16 +18,27 @@
 
 package org.tron.common.crypto;
 
-import static java.util.Arrays.copyOfRange;
-
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.security.Security;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tron.common.crypto.cryptohash.Keccak256;
+import org.tron.common.crypto.cryptohash.Keccak512;
 import org.tron.common.crypto.jce.TronCastleProvider;
 
+/**
+ * Hash functions used by the wallet. Every thread gets its own digest instance for each
+ * algorithm, so the methods are safe to call concurrently and no provider lookup happens per
+ * call.
+ *
+ * <p>Besides the {@code byte[]} in / {@code byte[]} out forms there are overloads that hash a
+ * slice of an array or the remaining bytes of a {@link ByteBuffer}, and overloads that write the
+ * hash into a caller-provided array instead of allocating one.
+ */
 public class Hash {
 
   private static final Logger LOG = LoggerFactory.getLogger(Hash.class);
@@ -36,20 +47,51 @@ public class Hash {
   private static final String HASH_256_ALGORITHM_NAME;
   private static final String HASH_512_ALGORITHM_NAME;
 
-  private static final MessageDigest sha256digest;
+  public static final int SHA256_LENGTH = 32;
+  public static final int SHA3_LENGTH = 32;
+  public static final int SHA512_LENGTH = 64;
+
+  private static final ThreadLocal<MessageDigest> sha256digest;
+  public static final int ADDRESS_LENGTH = 20;
+
+  private static final ThreadLocal<Keccak256> sha3digest;
+  private static final ThreadLocal<Keccak512> sha512digest;
+  private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[4096]);
 
   static {
     Security.addProvider(TronCastleProvider.getInstance());
     CRYPTO_PROVIDER = Security.getProvider("SC");
     HASH_256_ALGORITHM_NAME = "TRON-KECCAK-256";
     HASH_512_ALGORITHM_NAME = "TRON-KECCAK-512";
+    sha256digest = ThreadLocal.withInitial(() -> newDigest("SHA-256", null));
+    // The provider would hand out these same classes; holding them typed gives access to the
+    // ByteBuffer and batch methods of the engine.
+    sha3digest = ThreadLocal.withInitial(Keccak256::new);
+    sha512digest = ThreadLocal.withInitial(Keccak512::new);
+  }
+
+  private static MessageDigest newDigest(String algorithm, Provider provider) {
     try {
-      sha256digest = MessageDigest.getInstance("SHA-256");
+      return provider == null ? MessageDigest.getInstance(algorithm)
+          : MessageDigest.getInstance(algorithm, provider);
     } catch (NoSuchAlgorithmException e) {
-      LOG.error("Can't initialize HashUtils", e);
+      LOG.error("Can't find such algorithm", e);
       throw new RuntimeException(e); // Can't happen.
     }
+  }
+
+  /**
+   * A new SHA-256 digest owned by the caller, for hashing data that arrives in pieces.
+   */
+  public static MessageDigest newSha256Digest() {
+    return newDigest("SHA-256", null);
+  }
 
+  /**
+   * A new keccak-256 digest owned by the caller, for hashing data that arrives in pieces.
+   */
+  public static MessageDigest newSha3Digest() {
+    return newDigest(HASH_256_ALGORITHM_NAME, CRYPTO_PROVIDER);
   }
 
   /**
@@ -57,34 +99,70 @@ public class Hash {
    * @return - sha256 hash of the data
    */
   public static byte[] sha256(byte[] input) {
-    return sha256digest.digest(input);
+    MessageDigest digest = sha256digest.get();
+    try {
+      return digest.digest(input);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
+    }
   }
 
-  public static byte[] sha3(byte[] input) {
-    MessageDigest digest;
+  public static byte[] sha256(byte[] input, int start, int length) {
+    MessageDigest digest = sha256digest.get();
     try {
-      digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME,
-          CRYPTO_PROVIDER);
-      digest.update(input);
+      digest.update(input, start, length);
       return digest.digest();
-    } catch (NoSuchAlgorithmException e) {
-      LOG.error("Can't find such algorithm", e);
-      throw new RuntimeException(e);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
     }
+  }
 
+  /**
+   * Hash the remaining bytes of the buffer. The buffer's position is left unchanged.
+   */
+  public static byte[] sha256(ByteBuffer input) {
+    MessageDigest digest = sha256digest.get();
+    try {
+      update(digest, input);
+      return digest.digest();
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
+    }
+  }
+
+  /**
+   * Hash a chunk of the data into {@code out}, starting at {@code outOffset}.
+   *
+   * @return - number of bytes written, always {@link #SHA256_LENGTH}
+   */
+  public static int sha256(byte[] input, int start, int length, byte[] out, int outOffset) {
+    checkOutput(out, outOffset, SHA256_LENGTH);
+    MessageDigest digest = sha256digest.get();
+    try {
+      digest.update(input, start, length);
+      return digest(digest, out, outOffset, SHA256_LENGTH);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
+    }
+  }
+
+  public static byte[] sha3(byte[] input) {
+    MessageDigest digest = sha3digest.get();
+    try {
+      return digest.digest(input);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
+    }
   }
 
   public static byte[] sha3(byte[] input1, byte[] input2) {
-    MessageDigest digest;
+    MessageDigest digest = sha3digest.get();
     try {
-      digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME,
-          CRYPTO_PROVIDER);
       digest.update(input1, 0, input1.length);
       digest.update(input2, 0, input2.length);
       return digest.digest();
-    } catch (NoSuchAlgorithmException e) {
-      LOG.error("Can't find such algorithm", e);
-      throw new RuntimeException(e);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
     }
   }
 
@@ -97,28 +175,76 @@ public class Hash {
    * @return - keccak hash of the chunk
    */
   public static byte[] sha3(byte[] input, int start, int length) {
-    MessageDigest digest;
+    MessageDigest digest = sha3digest.get();
     try {
-      digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME,
-          CRYPTO_PROVIDER);
       digest.update(input, start, length);
       return digest.digest();
-    } catch (NoSuchAlgorithmException e) {
-      LOG.error("Can't find such algorithm", e);
-      throw new RuntimeException(e);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
+    }
+  }
+
+  /**
+   * Hash the remaining bytes of the buffer. The buffer's position is left unchanged.
+   */
+  public static byte[] sha3(ByteBuffer input) {
+    byte[] out = new byte[SHA3_LENGTH];
+    sha3(input, out, 0);
+    return out;
+  }
+
+  /**
+   * Hash the remaining bytes of the buffer into {@code out}, starting at {@code outOffset}. The
+   * buffer's position is left unchanged and nothing is allocated.
+   *
+   * @return - number of bytes written, always {@link #SHA3_LENGTH}
+   */
+  public static int sha3(ByteBuffer input, byte[] out, int outOffset) {
+    checkOutput(out, outOffset, SHA3_LENGTH);
+    Keccak256 digest = sha3digest.get();
+    try {
+      return digest.digest(input, out, outOffset);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
+    }
+  }
+
+  /**
+   * Hash a chunk of the data into {@code out}, starting at {@code outOffset}.
+   *
+   * @return - number of bytes written, always {@link #SHA3_LENGTH}
+   */
+  public static int sha3(byte[] input, int start, int length, byte[] out, int outOffset) {
+    checkOutput(out, outOffset, SHA3_LENGTH);
+    MessageDigest digest = sha3digest.get();
+    try {
+      digest.update(input, start, length);
+      return digest(digest, out, outOffset, SHA3_LENGTH);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
     }
   }
 
   public static byte[] sha512(byte[] input) {
-    MessageDigest digest;
+    MessageDigest digest = sha512digest.get();
     try {
-      digest = MessageDigest.getInstance(HASH_512_ALGORITHM_NAME,
-          CRYPTO_PROVIDER);
-      digest.update(input);
-      return digest.digest();
-    } catch (NoSuchAlgorithmException e) {
-      LOG.error("Can't find such algorithm", e);
-      throw new RuntimeException(e);
+      return digest.digest(input);
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
+    }
+  }
+
+  /**
+   * Hash the remaining bytes of the buffer. The buffer's position is left unchanged.
+   */
+  public static byte[] sha512(ByteBuffer input) {
+    byte[] out = new byte[SHA512_LENGTH];
+    Keccak512 digest = sha512digest.get();
+    try {
+      digest.digest(input, out, 0);
+      return out;
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
     }
   }
 
@@ -129,7 +255,95 @@ public class Hash {
    * @return - 20 right bytes of the hash keccak of the data
    */
   public static byte[] sha3omit12(byte[] input) {
-    byte[] hash = sha3(input);
-    return copyOfRange(hash, 12, hash.length);
+    return sha3omit12(input, 0, input.length);
+  }
+
+  public static byte[] sha3omit12(byte[] input, int start, int length) {
+    byte[] out = new byte[ADDRESS_LENGTH];
+    sha3omit12(input, start, length, out, 0);
+    return out;
+  }
+
+  /**
+   * RIGTMOST160(SHA3(chunk)) into {@code out}, starting at {@code outOffset}. Nothing is
+   * allocated.
+   *
+   * @return - number of bytes written, always {@link #ADDRESS_LENGTH}
+   */
+  public static int sha3omit12(byte[] input, int start, int length, byte[] out, int outOffset) {
+    checkOutput(out, outOffset, ADDRESS_LENGTH);
+    byte[] hash = scratch.get();
+    sha3(input, start, length, hash, 0);
+    System.arraycopy(hash, SHA3_LENGTH - ADDRESS_LENGTH, out, outOffset, ADDRESS_LENGTH);
+    return ADDRESS_LENGTH;
+  }
+
+  /**
+   * RIGTMOST160(SHA3(...)) of {@code count} chunks of {@code length} bytes, chunk {@code i}
+   * starting at {@code inOffset + i * inStride}, written back to back into {@code out} from
+   * {@code outOffset}. One keccak state is reused for all of them and nothing is allocated.
+   */
+  public static void sha3omit12Each(byte[] input, int inOffset, int inStride, int length,
+      int count, byte[] out, int outOffset) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Bad arguments");
+    }
+    checkOutput(out, outOffset, count * ADDRESS_LENGTH);
+    Keccak256 digest = sha3digest.get();
+    byte[] hashes = scratch.get();
+    int perPass = hashes.length / SHA3_LENGTH;
+    try {
+      for (int done = 0; done < count; done += perPass) {
+        int pass = Math.min(perPass, count - done);
+        digest.digestEach(input, inOffset + done * inStride, inStride, length, pass, hashes, 0);
+        for (int i = 0; i < pass; i++) {
+          System.arraycopy(hashes, i * SHA3_LENGTH + SHA3_LENGTH - ADDRESS_LENGTH, out,
+              outOffset + (done + i) * ADDRESS_LENGTH, ADDRESS_LENGTH);
+        }
+      }
+    } catch (RuntimeException e) {
+      throw reset(digest, e);
+    }
+  }
+
+  private static void update(MessageDigest digest, ByteBuffer input) {
+    if (input.hasArray()) {
+      digest.update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+    } else {
+      // Copy through a scratch array rather than a temporary one per call.
+      byte[] chunk = scratch.get();
+      ByteBuffer source = input.duplicate();
+      while (source.hasRemaining()) {
+        int length = Math.min(chunk.length, source.remaining());
+        source.get(chunk, 0, length);
+        digest.update(chunk, 0, length);
+      }
+    }
+  }
+
+  private static int digest(MessageDigest digest, byte[] out, int outOffset, int length) {
+    try {
+      return digest.digest(out, outOffset, length);
+    } catch (DigestException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * The digests are shared by every call on the thread, so one that failed partway must not keep
+   * what it absorbed: the next hash would silently come out wrong.
+   */
+  private static RuntimeException reset(MessageDigest digest, RuntimeException e) {
+    digest.reset();
+    return e;
+  }
+
+  private static void checkOutput(byte[] out, int outOffset, int length) {
+    if (out == null) {
+      throw new IllegalArgumentException("No output buffer provided");
+    }
+    if (outOffset < 0 || outOffset > out.length - length) {
+      throw new IllegalArgumentException("Output buffer too small");
+    }
   }
 }
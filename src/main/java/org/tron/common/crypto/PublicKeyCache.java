@@ -0,0 +1,189 @@
+package org.tron.common.crypto;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.spongycastle.math.ec.ECPoint;
+
+/**
+ * Bounded cache from an encoded public key to its decoded point and its address, shared by
+ * {@link ECKey#fromPublicOnly(byte[])}, {@link ECKey#computeAddress(byte[])} and everything built
+ * on them, such as signature recovery and the wallet loaders. A service that resolves the same
+ * few thousand keys over and over then decodes and hashes each of them once.
+ *
+ * <p>The entries are spread over {@link #SEGMENTS} independently locked segments, each evicting
+ * its least recently used entry when full, so threads rarely wait on each other. The point and
+ * the address of an entry are each computed the first time they are asked for, outside the lock,
+ * and stored only once that succeeded. A lookup counts as a hit only when the value asked for was
+ * already there.
+ */
+public final class PublicKeyCache {
+
+  public static final int SEGMENTS = 16;
+  public static final int DEFAULT_MAX_ENTRIES = 16384;
+
+  private static volatile PublicKeyCache defaultCache = new PublicKeyCache(DEFAULT_MAX_ENTRIES);
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final int maxEntries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public PublicKeyCache(int maxEntries) {
+    if (maxEntries < SEGMENTS) {
+      throw new IllegalArgumentException("maxEntries must be at least " + SEGMENTS);
+    }
+    this.maxEntries = maxEntries;
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(maxEntries / SEGMENTS);
+    }
+  }
+
+  public static PublicKeyCache getDefault() {
+    return defaultCache;
+  }
+
+  /**
+   * Replace the shared cache, e.g. with one sized from the configuration.
+   */
+  public static void setDefault(PublicKeyCache cache) {
+    if (cache == null) {
+      throw new IllegalArgumentException("Cache may not be null");
+    }
+    defaultCache = cache;
+  }
+
+  /**
+   * The point encoded in {@code encoded}, compressed or not.
+   */
+  public ECPoint point(byte[] encoded) {
+    Resolved cached = lookup(encoded);
+    ECPoint point = cached == null ? null : cached.point;
+    if (point != null) {
+      hits.increment();
+      return point;
+    }
+    misses.increment();
+    // Decoded before anything is stored, so an invalid encoding never takes a slot.
+    point = ECKey.CURVE.getCurve().decodePoint(encoded);
+    store(encoded).point = point;
+    return point;
+  }
+
+  /**
+   * The 20-byte address of the uncompressed public key {@code encoded}.
+   */
+  public byte[] address(byte[] encoded) {
+    Resolved cached = lookup(encoded);
+    byte[] address = cached == null ? null : cached.address;
+    if (address != null) {
+      hits.increment();
+      return address.clone();
+    }
+    misses.increment();
+    address = Hash.sha3omit12(encoded, 1, encoded.length - 1);
+    store(encoded).address = address;
+    return address.clone();
+  }
+
+  private Segment segmentFor(ByteBuffer key) {
+    return segments[(key.hashCode() & 0x7fffffff) % SEGMENTS];
+  }
+
+  private Resolved lookup(byte[] encoded) {
+    ByteBuffer key = ByteBuffer.wrap(encoded);
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      return segment.get(key);
+    }
+  }
+
+  private Resolved store(byte[] encoded) {
+    ByteBuffer key = ByteBuffer.wrap(encoded);
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      Resolved resolved = segment.get(key);
+      if (resolved == null) {
+        resolved = new Resolved();
+        segment.put(ByteBuffer.wrap(encoded.clone()), resolved);
+      }
+      return resolved;
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Share of lookups answered from the cache since it was made, 0 before the first.
+   */
+  public double getHitRate() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("public keys: %d/%d cached, %d hits, %d misses, %.2f%% hit rate, "
+            + "%d evictions", size(), maxEntries, getHits(), getMisses(), getHitRate() * 100,
+        getEvictions());
+  }
+
+  private static final class Resolved {
+
+    // Set once computed; a race only computes the same value twice.
+    volatile ECPoint point;
+    volatile byte[] address;
+  }
+
+  private final class Segment extends LinkedHashMap<ByteBuffer, Resolved> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Resolved> eldest) {
+      if (size() > capacity) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package org.tron.common.crypto;
+
+import java.security.SignatureException;
+import org.tron.common.utils.Parallel;
+
+/**
+ * Recovers the signer addresses of many (hash, signature) pairs at once, spread over the cores
+ * of this machine by {@link Parallel}. Signatures are taken as raw 65-byte R || S || header, as
+ * stored in transactions, so nothing is converted to Base64 and back.
+ */
+public final class SignatureRecovery {
+
+  private SignatureRecovery() {
+  }
+
+  /**
+   * Recover the address that signed {@code hashes[i]} with {@code signatures[i]} into {@code
+   * addresses[i]}, for every {@code i} below {@code addresses.length}. The same hash array may
+   * appear any number of times. Called from a fork/join task, the work is forked into that
+   * task's pool rather than handed to another one.
+   *
+   * @param addresses preallocated, receives each 20-byte address, or null where the signature is
+   * malformed or no key can be recovered from it
+   * @return the number of addresses recovered
+   */
+  public static int recoverAddresses(byte[][] hashes, byte[][] signatures, byte[][] addresses) {
+    int count = addresses.length;
+    if (hashes.length < count || signatures.length < count) {
+      throw new IllegalArgumentException("Need a hash and a signature per address");
+    }
+    Parallel.forEach(count, i -> addresses[i] = recoverOrNull(hashes[i], signatures[i]));
+    int recovered = 0;
+    for (byte[] address : addresses) {
+      if (address != null) {
+        recovered++;
+      }
+    }
+    return recovered;
+  }
+
+  private static byte[] recoverOrNull(byte[] hash, byte[] signature) {
+    if (hash == null || hash.length != 32 || signature == null) {
+      return null;
+    }
+    try {
+      return ECKey.signatureToAddress(hash, signature);
+    } catch (SignatureException | RuntimeException e) {
+      return null;
+    }
+  }
+}
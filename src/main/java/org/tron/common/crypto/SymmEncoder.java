@@ -1,15 +1,39 @@
 package org.tron.common.crypto;
 
+import java.security.GeneralSecurityException;
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.spongycastle.crypto.generators.SCrypt;
 
+/**
+ * Symmetric primitives for wallet files and the keystore. Every thread keeps its own {@link
+ * Cipher} per transformation, so no provider lookup happens per call.
+ */
 public class SymmEncoder {
 
   private static final Logger LOG = LoggerFactory.getLogger(SymmEncoder.class);
 
+  public static final int GCM_IV_LENGTH = 12;
+  public static final int GCM_TAG_LENGTH = 16;
+
+  private static final ThreadLocal<Cipher> aesEcb = cipher("AES/ECB/NoPadding");
+  private static final ThreadLocal<Cipher> aesGcm = cipher("AES/GCM/NoPadding");
+
+  private static ThreadLocal<Cipher> cipher(String transformation) {
+    return ThreadLocal.withInitial(() -> {
+      try {
+        return Cipher.getInstance(transformation);
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(transformation + " is not available", e);
+      }
+    });
+  }
+
   public static SecretKey restoreSecretKey(byte[] secretBytes, String algorithm) {
     SecretKey secretKey = new SecretKeySpec(secretBytes, algorithm);
     return secretKey;
@@ -43,10 +67,82 @@ public class SymmEncoder {
     return AesEcbDecode(encoded, key);
   }
 
+  /**
+   * Encrypt and authenticate {@code plain} with AES-256-GCM.
+   *
+   * @param aesKey 32 bytes
+   * @param iv {@link #GCM_IV_LENGTH} bytes, never used twice with the same key
+   * @param aad data authenticated along with the plain text but not encrypted, may be null
+   * @return the cipher text followed by the {@link #GCM_TAG_LENGTH} byte tag
+   */
+  public static byte[] AES256GcmEnc(byte[] plain, byte[] aesKey, byte[] iv, byte[] aad) {
+    if (aesKey == null || aesKey.length != 32) {
+      LOG.error("AesKey need 32 bytes !!!");
+      return null;
+    }
+    if (iv == null || iv.length != GCM_IV_LENGTH) {
+      LOG.error("Iv need " + GCM_IV_LENGTH + " bytes !!!");
+      return null;
+    }
+    try {
+      Cipher cipher = aesGcm.get();
+      cipher.init(Cipher.ENCRYPT_MODE, restoreSecretKey(aesKey, "AES"),
+          new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+      if (aad != null) {
+        cipher.updateAAD(aad);
+      }
+      return cipher.doFinal(plain);
+    } catch (GeneralSecurityException ex) {
+      ex.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * Decrypt what {@link #AES256GcmEnc} produced.
+   *
+   * @return the plain text, or null if the key is wrong or the data or {@code aad} was altered
+   */
+  public static byte[] AES256GcmDec(byte[] encoded, byte[] aesKey, byte[] iv, byte[] aad) {
+    if (aesKey == null || aesKey.length != 32) {
+      LOG.error("AesKey need 32 bytes !!!");
+      return null;
+    }
+    if (iv == null || iv.length != GCM_IV_LENGTH || encoded == null
+        || encoded.length < GCM_TAG_LENGTH) {
+      return null;
+    }
+    try {
+      Cipher cipher = aesGcm.get();
+      cipher.init(Cipher.DECRYPT_MODE, restoreSecretKey(aesKey, "AES"),
+          new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+      if (aad != null) {
+        cipher.updateAAD(aad);
+      }
+      return cipher.doFinal(encoded);
+    } catch (AEADBadTagException ex) {
+      return null;
+    } catch (GeneralSecurityException ex) {
+      ex.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * Derive a key from a password with scrypt, which costs about {@code 128 * r * n} bytes of
+   * memory and time proportional to {@code n * r * p}.
+   *
+   * @param n CPU/memory cost, a power of 2
+   * @param r block size
+   * @param p parallelization
+   */
+  public static byte[] scrypt(byte[] password, byte[] salt, int n, int r, int p, int length) {
+    return SCrypt.generate(password, salt, n, r, p, length);
+  }
 
   private static byte[] AesEcbEncode(byte[] plainText, SecretKey key) {
     try {
-      Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
+      Cipher cipher = aesEcb.get();
       cipher.init(Cipher.ENCRYPT_MODE, key);
       return cipher.doFinal(plainText);
     } catch (Exception ex) {
@@ -57,7 +153,7 @@ public class SymmEncoder {
 
   private static byte[] AesEcbDecode(byte[] encodedText, SecretKey key) {
     try {
-      Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
+      Cipher cipher = aesEcb.get();
       cipher.init(Cipher.DECRYPT_MODE, key);
       return cipher.doFinal(encodedText);
     } catch (Exception ex) {
@@ -65,4 +161,4 @@ public class SymmEncoder {
       return null;
     }
   }
-}
\ No newline at end of file
+}
@@ -18,6 +18,7 @@
 
 package org.tron.common.crypto.cryptohash;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 
 public abstract class DigestEngine extends MessageDigest implements Digest {
@@ -52,6 +53,33 @@ public abstract class DigestEngine extends MessageDigest implements Digest {
    */
   protected abstract void processBlock(byte[] data);
 
+  /**
+   * Process one block of data read in place from {@code data} at {@code offset}. The default
+   * implementation copies the block to the internal buffer first.
+   *
+   * @param data the data
+   * @param offset the offset of the block
+   */
+  protected void processBlock(byte[] data, int offset) {
+    System.arraycopy(data, offset, inputBuf, 0, blockLen);
+    processBlock(inputBuf);
+  }
+
+  /**
+   * Process one block of data read in place from {@code data} at {@code offset}, whatever the
+   * byte order of the buffer. The default implementation copies the block to the internal
+   * buffer first.
+   *
+   * @param data the data
+   * @param offset the absolute offset of the block
+   */
+  protected void processBlock(ByteBuffer data, int offset) {
+    for (int i = 0; i < blockLen; i++) {
+      inputBuf[i] = data.get(offset + i);
+    }
+    processBlock(inputBuf);
+  }
+
   /**
    * Perform the final padding and store the result in the provided buffer. This method shall call
    * {@link #flush} and then {@link #update} with the appropriate padding data in order to getData
@@ -99,6 +127,8 @@ public abstract class DigestEngine extends MessageDigest implements Digest {
    */
   public int digest(byte[] buf, int offset, int len) {
     adjustDigestLen();
+    // Checked before padding so a bad output range leaves the state intact.
+    checkRange(buf, offset, Math.min(len, digestLen));
     if (len >= digestLen) {
       doPadding(buf, offset);
       reset();
@@ -143,7 +173,17 @@ public abstract class DigestEngine extends MessageDigest implements Digest {
    * @see Digest
    */
   public void update(byte[] input, int offset, int len) {
+    // MessageDigest.update checks this, but we override it; an out-of-range slice would
+    // otherwise fail after some blocks were already absorbed.
+    checkRange(input, offset, len);
     while (len > 0) {
+      if (inputLen == 0 && len >= blockLen) {
+        processBlock(input, offset);
+        blockCount++;
+        offset += blockLen;
+        len -= blockLen;
+        continue;
+      }
       int copyLen = blockLen - inputLen;
       if (copyLen > len) {
         copyLen = len;
@@ -161,6 +201,62 @@ public abstract class DigestEngine extends MessageDigest implements Digest {
     }
   }
 
+  private static void checkRange(byte[] buf, int offset, int len) {
+    if (buf == null) {
+      throw new IllegalArgumentException("No buffer provided");
+    }
+    if (offset < 0 || len < 0 || offset > buf.length - len) {
+      throw new IllegalArgumentException("Bad arguments");
+    }
+  }
+
+  /**
+   * Input the bytes of {@code input} from {@code position} to {@code limit}, without changing
+   * its position. Whole blocks are read in place, heap and direct buffers alike.
+   *
+   * @param input the input data
+   * @param position the absolute offset of the first byte
+   * @param limit the absolute offset after the last byte
+   */
+  public void update(ByteBuffer input, int position, int limit) {
+    if (position < 0 || position > limit || limit > input.capacity()) {
+      throw new IllegalArgumentException("Bad arguments");
+    }
+    if (input.hasArray()) {
+      update(input.array(), input.arrayOffset() + position, limit - position);
+      return;
+    }
+    while (position < limit) {
+      if (inputLen == 0 && limit - position >= blockLen) {
+        processBlock(input, position);
+        blockCount++;
+        position += blockLen;
+        continue;
+      }
+      int copyLen = Math.min(blockLen - inputLen, limit - position);
+      for (int i = 0; i < copyLen; i++) {
+        inputBuf[inputLen + i] = input.get(position + i);
+      }
+      position += copyLen;
+      inputLen += copyLen;
+      if (inputLen == blockLen) {
+        processBlock(inputBuf);
+        blockCount++;
+        inputLen = 0;
+      }
+    }
+  }
+
+  /**
+   * Backs {@link MessageDigest#update(ByteBuffer)}, which would otherwise copy the buffer into a
+   * temporary array and hand it to the unused {@code engineUpdate(byte[], int, int)}.
+   */
+  @Override
+  protected void engineUpdate(ByteBuffer input) {
+    update(input, input.position(), input.limit());
+    input.position(input.limit());
+  }
+
   /**
    * Get the internal block length. This is the length (in bytes) of the array which will be passed
    * as parameter to {@link #processBlock}. The default implementation of this method calls {@link
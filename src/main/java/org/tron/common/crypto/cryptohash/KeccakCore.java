@@ -18,6 +18,9 @@
 
 package org.tron.common.crypto.cryptohash;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 abstract class KeccakCore extends DigestEngine {
 
   private static final long[] RC = {
@@ -83,11 +86,67 @@ abstract class KeccakCore extends DigestEngine {
   }
 
   protected void processBlock(byte[] data) {
-    /* Input block */
-    for (int i = 0; i < data.length; i += 8) {
-      A[i >>> 3] ^= decodeLELong(data, i);
+    processBlock(data, 0);
+  }
+
+  @Override
+  protected void processBlock(byte[] data, int offset) {
+    int words = getBlockLength() >>> 3;
+    for (int i = 0; i < words; i++) {
+      A[i] ^= decodeLELong(data, offset + (i << 3));
+    }
+    permute();
+  }
+
+  /**
+   * Absorb a block with {@link ByteBuffer#getLong(int)}, which reads a direct buffer in one load
+   * per word, swapping the bytes when the buffer is big-endian.
+   */
+  @Override
+  protected void processBlock(ByteBuffer data, int offset) {
+    int words = getBlockLength() >>> 3;
+    if (data.order() == ByteOrder.LITTLE_ENDIAN) {
+      for (int i = 0; i < words; i++) {
+        A[i] ^= data.getLong(offset + (i << 3));
+      }
+    } else {
+      for (int i = 0; i < words; i++) {
+        A[i] ^= Long.reverseBytes(data.getLong(offset + (i << 3)));
+      }
+    }
+    permute();
+  }
+
+  /**
+   * Hash the bytes of {@code input} from its position to its limit into {@code out} at {@code
+   * outOffset}, leaving the position of the buffer unchanged and the engine reset. Nothing is
+   * allocated.
+   *
+   * @return the digest length
+   */
+  public int digest(ByteBuffer input, byte[] out, int outOffset) {
+    reset();
+    update(input, input.position(), input.limit());
+    return digest(out, outOffset, engineGetDigestLength());
+  }
+
+  /**
+   * Hash {@code count} messages of {@code length} bytes each with one reused state. Message
+   * {@code i} starts at {@code inOffset + i * inStride} in {@code in}; its digest is written at
+   * {@code outOffset + i * getDigestLength()} in {@code out}. Nothing is allocated, which makes
+   * this the cheap way to hash many public keys or other short inputs.
+   */
+  public void digestEach(byte[] in, int inOffset, int inStride, int length, int count,
+      byte[] out, int outOffset) {
+    int digestLength = engineGetDigestLength();
+    reset();
+    for (int i = 0; i < count; i++) {
+      update(in, inOffset + i * inStride, length);
+      digest(out, outOffset + i * digestLength, digestLength);
     }
+  }
 
+  private void permute() {
     long t0, t1, t2, t3, t4;
     long tt0, tt1, tt2, tt3, tt4;
     long t, kt;
@@ -511,6 +570,12 @@ abstract class KeccakCore extends DigestEngine {
     A[17] = ~A[17];
     A[20] = ~A[20];
     int dlen = engineGetDigestLength();
+    if ((dlen & 7) == 0) {
+      for (int i = 0; i < dlen; i += 8) {
+        encodeLELong(A[i >>> 3], out, off + i);
+      }
+      return;
+    }
     for (int i = 0; i < dlen; i += 8) {
       encodeLELong(A[i >>> 3], tmpOut, i);
     }
@@ -0,0 +1,216 @@
+package org.tron.common.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small file that is always replaced whole: the new content is written to a temp file next to
+ * it, synced and renamed over it, so readers and a crash see either the old or the new content.
+ *
+ * <p>The content is read once and kept; a later {@link #read} only checks the file's size,
+ * modification time and file key with one stat and reads again if any changed, e.g. because
+ * another process replaced it. Files of {@link #MAP_THRESHOLD} bytes or more are memory-mapped
+ * instead of copied onto the heap.
+ *
+ * <p>The static {@link #createTemp}, {@link #commit} and {@link #syncDir} are the same
+ * replace-by-rename steps for files written some other way, such as the keystore's data file and
+ * index.
+ */
+public final class AtomicFile {
+
+  private static final Logger logger = LoggerFactory.getLogger("AtomicFile");
+
+  public static final int MAP_THRESHOLD = 64 * 1024;
+
+  private static final ConcurrentHashMap<Path, AtomicFile> files = new ConcurrentHashMap<>();
+
+  private final Path path;
+  private final Path temp;
+  private ByteBuffer content;
+  private Stamp stamp;
+
+  private AtomicFile(Path path) {
+    this.path = path;
+    this.temp = tempFor(path);
+  }
+
+  /**
+   * The temp file next to {@code path} that its new content goes to before the rename.
+   */
+  public static Path tempFor(Path path) {
+    return path.resolveSibling(path.getFileName() + ".tmp");
+  }
+
+  /**
+   * Open {@code temp} empty, for reading and writing. The caller writes the new content, syncs
+   * it and then hands the file to {@link #commit}, or deletes it on failure.
+   */
+  public static FileChannel createTemp(Path temp) throws IOException {
+    return FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Rename the synced {@code temp} over {@code path} in one step and make the rename durable, so
+   * a crash leaves either the old or the new file at {@code path}.
+   */
+  public static void commit(Path temp, Path path) throws IOException {
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    Path dir = path.toAbsolutePath().getParent();
+    if (dir != null) {
+      syncDir(dir);
+    }
+  }
+
+  /**
+   * Make a rename in {@code dir} durable. Not every platform can sync a directory; there the
+   * rename is left to the file system.
+   */
+  public static void syncDir(Path dir) {
+    try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      logger.debug("Cannot sync directory " + dir + ", " + e.getMessage());
+    }
+  }
+
+  /**
+   * The one instance for {@code path} in this process, so they all share the cached content.
+   */
+  public static AtomicFile of(Path path) {
+    return files.computeIfAbsent(path.toAbsolutePath().normalize(), AtomicFile::new);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * The content as a read-only buffer, or null if the file does not exist.
+   */
+  public synchronized ByteBuffer read() throws IOException {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      invalidate();
+      return null;
+    }
+    Stamp current = new Stamp(attributes);
+    if (content == null || !current.equals(stamp)) {
+      content = load(attributes.size());
+      stamp = current;
+    }
+    return content.duplicate();
+  }
+
+  /**
+   * The content, or null if the file does not exist.
+   */
+  public byte[] readBytes() throws IOException {
+    ByteBuffer buffer = read();
+    if (buffer == null) {
+      return null;
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Replace the content with {@code parts}, one after the other, in one gathering write.
+   */
+  public synchronized void write(byte[]... parts) throws IOException {
+    ByteBuffer[] buffers = new ByteBuffer[parts.length];
+    int length = 0;
+    for (int i = 0; i < parts.length; i++) {
+      buffers[i] = ByteBuffer.wrap(parts[i]);
+      length += parts[i].length;
+    }
+    try (FileChannel channel = createTemp(temp)) {
+      long written = 0;
+      while (written < length) {
+        written += channel.write(buffers);
+      }
+      channel.force(true);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    commit(temp, path);
+
+    ByteBuffer written = ByteBuffer.allocate(length);
+    for (byte[] part : parts) {
+      written.put(part);
+    }
+    written.flip();
+    content = written.asReadOnlyBuffer();
+    stamp = new Stamp(Files.readAttributes(path, BasicFileAttributes.class));
+  }
+
+  /**
+   * Forget the cached content, so the next {@link #read} goes to the file.
+   */
+  public synchronized void invalidate() {
+    content = null;
+    stamp = null;
+  }
+
+  private ByteBuffer load(long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (size >= MAP_THRESHOLD) {
+        return channel.map(MapMode.READ_ONLY, 0, size);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          break;
+        }
+      }
+      buffer.flip();
+      return buffer.asReadOnlyBuffer();
+    }
+  }
+
+  private static final class Stamp {
+
+    private final long size;
+    private final long modified;
+    private final Object fileKey;
+
+    Stamp(BasicFileAttributes attributes) {
+      this.size = attributes.size();
+      this.modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+      this.fileKey = attributes.fileKey();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Stamp)) {
+        return false;
+      }
+      Stamp other = (Stamp) o;
+      return size == other.size && modified == other.modified
+          && Objects.equals(fileKey, other.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(size, modified, fileKey);
+    }
+  }
+}
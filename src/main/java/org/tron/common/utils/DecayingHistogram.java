@@ -0,0 +1,87 @@
+package org.tron.common.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Histogram} of the recent past, for decisions taken on every call such as when to
+ * hedge a request. All counts are halved once per {@code halfLifeMillis}, so old values fade out
+ * instead of holding the percentiles in place forever. A percentile is computed at most once per
+ * {@code refreshMillis} and otherwise read back from the last computation.
+ */
+public class DecayingHistogram {
+
+  // After this many half-lives nothing recorded before is left worth counting.
+  private static final int MAX_HALVINGS = 16;
+
+  private final Histogram histogram = new Histogram();
+  private final long halfLifeNanos;
+  private final long refreshNanos;
+  private final AtomicLong nextDecay;
+  private volatile Computed computed;
+
+  public DecayingHistogram(long halfLifeMillis, long refreshMillis) {
+    if (halfLifeMillis <= 0) {
+      throw new IllegalArgumentException("halfLifeMillis must be positive");
+    }
+    this.halfLifeNanos = TimeUnit.MILLISECONDS.toNanos(halfLifeMillis);
+    this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+    this.nextDecay = new AtomicLong(System.nanoTime() + halfLifeNanos);
+  }
+
+  public void record(long value) {
+    decayIfDue(System.nanoTime());
+    histogram.record(value);
+  }
+
+  /**
+   * Number of values recorded, each halved once per half-life since it was.
+   */
+  public long getCount() {
+    decayIfDue(System.nanoTime());
+    return histogram.getCount();
+  }
+
+  /**
+   * The value at the given percentile of the recent values, at most {@code refreshMillis} old.
+   */
+  public long getValueAtPercentile(double percentile) {
+    long now = System.nanoTime();
+    decayIfDue(now);
+    Computed last = computed;
+    if (last != null && last.percentile == percentile && now - last.at < refreshNanos) {
+      return last.value;
+    }
+    long value = histogram.getValueAtPercentile(percentile);
+    computed = new Computed(percentile, value, now);
+    return value;
+  }
+
+  private void decayIfDue(long now) {
+    long due = nextDecay.get();
+    if (now - due < 0) {
+      return;
+    }
+    long halvings = (now - due) / halfLifeNanos + 1;
+    if (!nextDecay.compareAndSet(due, due + halvings * halfLifeNanos)) {
+      return; // another thread does it
+    }
+    for (long i = 0; i < Math.min(halvings, MAX_HALVINGS); i++) {
+      histogram.decay();
+    }
+    computed = null;
+  }
+
+  private static final class Computed {
+
+    private final double percentile;
+    private final long value;
+    private final long at;
+
+    Computed(double percentile, long value, long at) {
+      this.percentile = percentile;
+      this.value = value;
+      this.at = at;
+    }
+  }
+}
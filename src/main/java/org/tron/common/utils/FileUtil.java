@@ -17,13 +17,10 @@
  */
 package org.tron.common.utils;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
@@ -86,38 +83,49 @@ public class FileUtil {
     }
   }
 
+  /**
+   * Write {@code data} to the file, or after its current content if {@code append}. The file is
+   * replaced atomically, see {@link AtomicFile}.
+   */
   public static void saveData(String filePath, String data, boolean append) {
     try {
-      File priFile = new File(filePath);
-      priFile.createNewFile();
-      FileWriter fw = new FileWriter(priFile, append);
-      BufferedWriter bw = new BufferedWriter(fw);
-      bw.write(data);
-      bw.flush();
-      bw.close();
+      AtomicFile file = AtomicFile.of(Paths.get(filePath));
+      byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+      byte[] current = append ? file.readBytes() : null;
+      if (current == null) {
+        file.write(bytes);
+      } else {
+        file.write(current, bytes);
+      }
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
+  /**
+   * Read up to {@code buf.length} chars of the file into {@code buf}, from the cached content if
+   * the file has not changed since.
+   *
+   * @return the number of chars read, -1 if the file is empty (as a Reader reports the end of
+   * the stream), 0 if there is no such file or it cannot be read
+   */
   public static int readData(String filePath, char[] buf) {
-    int len;
     try {
-      File file = new File(filePath);
-      FileReader fileReader = new FileReader(file);
-      if (null == fileReader) {
+      ByteBuffer content = AtomicFile.of(Paths.get(filePath)).read();
+      if (content == null) {
         return 0;
       }
-      BufferedReader bufRead = new BufferedReader(fileReader);
-      len = bufRead.read(buf, 0, buf.length);
-      bufRead.close();
-    } catch (FileNotFoundException ex) {
-      ex.printStackTrace();
-      return 0;
+      if (!content.hasRemaining()) {
+        return -1;
+      }
+      int len = Math.min(content.remaining(), buf.length);
+      for (int i = 0; i < len; i++) {
+        buf[i] = (char) (content.get() & 0xFF);
+      }
+      return len;
     } catch (IOException ex) {
       ex.printStackTrace();
       return 0;
     }
-    return len;
   }
 }
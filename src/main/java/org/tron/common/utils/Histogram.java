@@ -0,0 +1,121 @@
+package org.tron.common.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative long values with bounded relative error, laid out like an
+ * HdrHistogram: values below 32 get a bucket each, and every power of two above that is split
+ * into 16 linear sub-buckets, so a reported value is within about 6% of the recorded one over the
+ * whole long range. Recording is a few arithmetic operations and one atomic increment.
+ */
+public class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts.incrementAndGet(bucketOf(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    long current;
+    while (value > (current = max.get())) {
+      if (max.compareAndSet(current, value)) {
+        break;
+      }
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getSum() {
+    return sum.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) sum.get() / n;
+  }
+
+  /**
+   * The value at the given percentile, e.g. 99.9, as the upper bound of its bucket (never more
+   * than the maximum recorded value).
+   */
+  public long getValueAtPercentile(double percentile) {
+    // Two passes over the live counts: no copy, at the price of values recorded meanwhile
+    // shifting the result by a rank or two.
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += counts.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Halve every count and the sum, so the values recorded so far weigh half as much as the ones
+   * recorded next. The maximum is kept.
+   */
+  public void decay() {
+    for (int i = 0; i < BUCKETS; i++) {
+      if (counts.get(i) != 0) {
+        counts.getAndUpdate(i, c -> c >>> 1);
+      }
+    }
+    count.getAndUpdate(c -> c >>> 1);
+    sum.getAndUpdate(s -> s >>> 1);
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+  static int bucketOf(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    long subBucket = bucket - ((long) shift << SUB_BUCKET_BITS);
+    long upper = ((subBucket + 1) << shift) - 1;
+    return upper < 0 ? Long.MAX_VALUE : upper;
+  }
+}
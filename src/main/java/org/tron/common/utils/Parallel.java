@@ -0,0 +1,67 @@
+package org.tron.common.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * The fork/join pool that batch signature work (transaction validation, signer recovery) runs
+ * on, one thread per core, and the one way that work is split over it.
+ */
+public final class Parallel {
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(
+      Runtime.getRuntime().availableProcessors());
+
+  private Parallel() {
+  }
+
+  public static ForkJoinPool getPool() {
+    return POOL;
+  }
+
+  /**
+   * Run {@code action} for every index below {@code count} and return once all have run. Each
+   * index is its own task: every item of these batches costs at least one point multiplication,
+   * coarse enough to split down to one. Called from a fork/join task, the work is forked into
+   * that task's pool, so nested batches share the threads rather than block them.
+   */
+  public static void forEach(int count, IntConsumer action) {
+    if (count == 1) {
+      action.accept(0);
+    } else if (count > 1) {
+      RangeTask task = new RangeTask(action, 0, count);
+      if (ForkJoinTask.inForkJoinPool()) {
+        task.invoke();
+      } else {
+        POOL.invoke(task);
+      }
+    }
+  }
+
+  private static class RangeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final IntConsumer action;
+    private final int from;
+    private final int to;
+
+    RangeTask(IntConsumer action, int from, int to) {
+      this.action = action;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        action.accept(from);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new RangeTask(action, from, middle), new RangeTask(action, middle, to));
+    }
+  }
+}
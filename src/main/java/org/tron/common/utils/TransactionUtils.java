@@ -15,21 +15,28 @@
 
 package org.tron.common.utils;
 
-import static org.tron.common.crypto.Hash.sha256;
-
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Base64;
 import org.tron.common.crypto.ECKey;
 import org.tron.common.crypto.ECKey.ECDSASignature;
+import org.tron.common.crypto.Hash;
+import org.tron.common.crypto.SignatureRecovery;
 import org.tron.protos.Protocol.TXInput;
 import org.tron.protos.Protocol.Transaction;
 import org.tron.protos.Protocol.Transaction.Contract;
 
-import java.security.SignatureException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class TransactionUtils {
 
@@ -43,10 +50,55 @@ public class TransactionUtils {
    * @return byte[] the hash of the transaction's data bytes which have no id
    */
   public static byte[] getHash(Transaction transaction) {
-    Transaction.Builder tmp = transaction.toBuilder();
-    //tmp.clearId();
+    return sha256Of(transaction);
+  }
+
+  /**
+   * The transaction ID: SHA-256 of the encoded raw data, which the signatures are made over.
+   * Signing leaves the raw data of a contract transaction as it is, so a caller that needs the ID
+   * as well computes it once and hands it to {@link #sign(Transaction, ECKey, byte[])}.
+   */
+  public static byte[] getTransactionId(Transaction transaction) {
+    return sha256Of(transaction.getRawData());
+  }
+
+  private static final int HASH_BUFFER_SIZE = 4096;
+
+  private static final ThreadLocal<MessageHasher> hashers = ThreadLocal
+      .withInitial(MessageHasher::new);
 
-    return sha256(tmp.build().toByteArray());
+  /**
+   * SHA-256 of the encoding of {@code message}, streamed into the digest through a per-thread
+   * buffer rather than serialized into a new array first. Large bytes fields go from the
+   * message straight to the digest.
+   */
+  private static byte[] sha256Of(MessageLite message) {
+    MessageHasher hasher = hashers.get();
+    try {
+      message.writeTo(hasher.out);
+      hasher.out.flush();
+    } catch (IOException | RuntimeException e) {
+      // Leave no half written buffer behind for the next message.
+      hashers.remove();
+      throw new IllegalStateException("Hash message failed", e);
+    }
+    return hasher.digest.digest();
+  }
+
+  private static class MessageHasher extends OutputStream {
+
+    private final MessageDigest digest = Hash.newSha256Digest();
+    private final CodedOutputStream out = CodedOutputStream.newInstance(this, HASH_BUFFER_SIZE);
+
+    @Override
+    public void write(int b) {
+      digest.update((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      digest.update(b, off, len);
+    }
   }
 
   public static byte[] getOwner(Transaction.Contract contract) {
@@ -125,46 +177,42 @@ public class TransactionUtils {
     if (signedTransaction.getRawData().getType() == Transaction.TransactionType.UtxoType) {
       //1. check hash
       // ByteString idBS = signedTransaction.getRawData().getId(); //hash
-      byte[] hash = TransactionUtils.getHash(signedTransaction);
-      ByteString hashBS = ByteString.copyFrom(hash);
       // if (idBS == null || !idBS.equals(idBS)) {
       // return false;
       //}
-      Transaction.Builder transactionBuilderSigned = signedTransaction.toBuilder();
       Transaction.Builder transactionBuilderBeforSign = signedTransaction.toBuilder();
 
       int inSize = signedTransaction.getRawData().getVinCount();
       //Clear all vin's signature and pubKey.
+      TXInput[] clearedVins = new TXInput[inSize];
       for (int i = 0; i < inSize; i++) {
-        TXInput vin = transactionBuilderBeforSign.getRawData().getVin(i);
-        TXInput.Builder vinBuilder = vin.toBuilder();
+        TXInput.Builder vinBuilder = signedTransaction.getRawData().getVin(i).toBuilder();
         vinBuilder.clearSignature();
         vinBuilder.getRawDataBuilder().clearPubKey();
-        vin = vinBuilder.build();
-        transactionBuilderBeforSign.getRawDataBuilder().setVin(i, vin);
+        clearedVins[i] = vinBuilder.build();
+        transactionBuilderBeforSign.getRawDataBuilder().setVin(i, clearedVins[i]);
       }
 
-      Transaction transactionBeforSign = transactionBuilderBeforSign.build();//No sign no pubkey
+      //No sign no pubkey, except the vin being checked which carries its lock script.
       for (int i = 0; i < inSize; i++) {
-        transactionBuilderBeforSign = transactionBeforSign.toBuilder();
-        TXInput vin = transactionBuilderBeforSign.getRawData().getVin(i);
-        TXInput.Builder vinBuilder = vin.toBuilder();
         ByteString signBs = signedTransaction.getRawData().getVin(i).getSignature();
         byte[] signBA = signBs.toByteArray();
         ByteString pubKeyBs = signedTransaction.getRawData().getVin(i).getRawData().getPubKey();
         byte[] pubKeyBA = pubKeyBs.toByteArray();
+        if (signBA.length != 65) {
+          return false;
+        }
         ByteString lockSript = ByteString
             .copyFrom(ECKey.computeAddress(pubKeyBA));
 
+        TXInput.Builder vinBuilder = clearedVins[i].toBuilder();
         vinBuilder.getRawDataBuilder().setPubKey(lockSript);
         transactionBuilderBeforSign.getRawDataBuilder().setVin(i, vinBuilder.build());
-        hash = getHash(transactionBuilderBeforSign.build());
+        byte[] hash = sha256Of(transactionBuilderBeforSign.build());
+        transactionBuilderBeforSign.getRawDataBuilder().setVin(i, clearedVins[i]);
+
         byte[] r = new byte[32];
         byte[] s = new byte[32];
-
-        if (signBA.length != 65) {
-          return false;
-        }
         System.arraycopy(signBA, 0, r, 0, 32);
         System.arraycopy(signBA, 32, s, 0, 32);
         byte revID = signBA[64];
@@ -183,17 +231,10 @@ public class TransactionUtils {
       assert (signedTransaction.getSignatureCount() ==
           signedTransaction.getRawData().getContractCount());
       List<Transaction.Contract> listContract = signedTransaction.getRawData().getContractList();
-      byte[] hash = sha256(signedTransaction.getRawData().toByteArray());
-      for (int i = 0; i < signedTransaction.getSignatureCount(); ++i) {
-        try {
-          Transaction.Contract contract = listContract.get(i);
-          byte[] owner = getOwner(contract);
-          byte[] address = ECKey.signatureToAddress(hash, getBase64FromByteString(signedTransaction.getSignature(i)));
-          if (!Arrays.equals(owner, address)) {
-            return false;
-          }
-        } catch (SignatureException e) {
-          e.printStackTrace();
+      byte[][] signers = recoverSigners(signedTransaction);
+      for (int i = 0; i < signers.length; ++i) {
+        byte[] owner = getOwner(listContract.get(i));
+        if (signers[i] == null || !Arrays.equals(owner, signers[i])) {
           return false;
         }
       }
@@ -201,7 +242,97 @@ public class TransactionUtils {
     }
   }
 
+  /**
+   * The address that made each signature of a contract transaction, in signature order, or null
+   * where none can be recovered from the signature.
+   */
+  public static byte[][] recoverSigners(Transaction transaction) {
+    return recoverSigners(Collections.singletonList(transaction)).get(0);
+  }
+
+  /**
+   * {@link #recoverSigners(Transaction)} for many transactions, e.g. a whole block, as one batch
+   * of raw signature recoveries spread over the cores of this machine.
+   */
+  public static List<byte[][]> recoverSigners(List<Transaction> transactions) {
+    int total = 0;
+    for (Transaction transaction : transactions) {
+      total += transaction.getSignatureCount();
+    }
+    byte[][] hashes = new byte[total][];
+    byte[][] signatures = new byte[total][];
+    int[] slots = new int[total];
+    int unique = 0;
+    int at = 0;
+    for (Transaction transaction : transactions) {
+      byte[] hash = transaction.getSignatureCount() == 0 ? null : getTransactionId(transaction);
+      ByteString lastSign = null;
+      for (ByteString sign : transaction.getSignatureList()) {
+        // One key signing every contract yields the same signature each time.
+        if (!sign.equals(lastSign)) {
+          hashes[unique] = hash;
+          signatures[unique] = sign.toByteArray();
+          unique++;
+          lastSign = sign;
+        }
+        slots[at++] = unique - 1;
+      }
+    }
+    byte[][] recovered = new byte[unique][];
+    SignatureRecovery.recoverAddresses(hashes, signatures, recovered);
+
+    List<byte[][]> signers = new ArrayList<>(transactions.size());
+    at = 0;
+    for (Transaction transaction : transactions) {
+      byte[][] addresses = new byte[transaction.getSignatureCount()][];
+      for (int i = 0; i < addresses.length; i++) {
+        addresses[i] = recovered[slots[at++]];
+      }
+      signers.add(addresses);
+    }
+    return signers;
+  }
+
+  /**
+   * Validate many transactions at once, spreading them over the cores of this machine with
+   * {@link Parallel}.
+   *
+   * @param transactions transactions to validate
+   * @return one verdict per transaction, in the same order: true if
+   * {@link #validTransaction(Transaction)} accepts it
+   */
+  public static boolean[] validateAll(List<Transaction> transactions) {
+    boolean[] verdicts = new boolean[transactions.size()];
+    Parallel.forEach(verdicts.length, i -> verdicts[i] = validOrFalse(transactions.get(i)));
+    return verdicts;
+  }
+
+  /**
+   * Like {@link #validateAll(List)}, run on the {@link Parallel} pool so that the calling thread,
+   * for instance a servlet thread, is free while the signatures are checked.
+   */
+  public static CompletableFuture<boolean[]> validateAllAsync(List<Transaction> transactions) {
+    return CompletableFuture.supplyAsync(() -> validateAll(transactions), Parallel.getPool());
+  }
+
+  private static boolean validOrFalse(Transaction transaction) {
+    try {
+      return validTransaction(transaction);
+    } catch (RuntimeException e) {
+      logger.warn("Warning: validate transaction failed, " + e.getMessage() + " !!");
+      return false;
+    }
+  }
+
   public static Transaction sign(Transaction transaction, ECKey myKey) {
+    return sign(transaction, myKey, null);
+  }
+
+  /**
+   * @param transactionId {@link #getTransactionId} of {@code transaction} if the caller has it
+   * already, or null to compute it here
+   */
+  public static Transaction sign(Transaction transaction, ECKey myKey, byte[] transactionId) {
     if (TransactionUtils.isCoinbaseTransaction(transaction)) {
       return null;
     }
@@ -225,7 +356,7 @@ public class TransactionUtils {
         transactionBuilderSigned.getRawDataBuilder().setVin(i, vinBuilder.build());
       }
     } else {
-      byte[] hash = sha256(transaction.getRawData().toByteArray());
+      byte[] hash = transactionId != null ? transactionId : getTransactionId(transaction);
       List<Contract> listContract = transaction.getRawData().getContractList();
       for (int i = 0; i < listContract.size(); i++) {
         ECDSASignature signature = myKey.sign(hash);
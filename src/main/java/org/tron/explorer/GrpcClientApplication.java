@@ -15,9 +15,11 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.http.converter.protobuf.ProtobufHttpMessageConverter;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
@@ -49,6 +51,14 @@ public class GrpcClientApplication extends SpringBootServletInitializer {
         return new ProtobufHttpMessageConverter();
     }
 
+    @Bean
+    public ThreadPoolTaskExecutor mvcTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
     @Bean
     public WebMvcConfigurer webMvcConfigurer() {
 
@@ -64,6 +74,15 @@ public class GrpcClientApplication extends SpringBootServletInitializer {
                         .addResourceLocations("classpath:/static/");
             }
 
+            /**
+             * Handlers return futures of gRPC calls, so a request waiting on the full node does not
+             * hold a Tomcat thread. Streamed bodies are written from a small pool of their own.
+             */
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(mvcTaskExecutor());
+            }
+
             /**
              * Add Java8 time support for Jackson.
              */
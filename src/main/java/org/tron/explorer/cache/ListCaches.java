@@ -0,0 +1,90 @@
+package org.tron.explorer.cache;
+
+import com.google.protobuf.MessageLite;
+import com.typesafe.config.Config;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.tron.api.GrpcAPI.AccountList;
+import org.tron.api.GrpcAPI.WitnessList;
+import org.tron.core.config.Configuration;
+import org.tron.walletserver.RefreshingCache;
+import org.tron.walletserver.WalletClient;
+
+/**
+ * Account and witness lists shared by every explorer request, each kept with its response body
+ * already encoded. TTLs come from {@code explorer.cache} in config.conf.
+ */
+public class ListCaches {
+
+  private static final Log log = LogFactory.getLog(ListCaches.class);
+
+  private static final long DEFAULT_TTL_MILLIS = 3_000L;
+  private static final int MAX_PREFIXED_LENGTH = 0xFFFF;
+
+  public static final RefreshingCache<AccountList> ACCOUNTS = new RefreshingCache<>(
+      "accountList",
+      WalletClient::listAccountsAsync,
+      accountList -> encodeLengthPrefixed(accountList.getAccountsList()),
+      ttlMillis("explorer.cache.accountListTtlMillis"));
+
+  /**
+   * The ListAccounts response as received, under the same TTL as {@link #ACCOUNTS}, for {@code
+   * /accountList/stream} to walk with a cursor.
+   */
+  public static final RefreshingCache<byte[]> ACCOUNTS_ENCODED = new RefreshingCache<>(
+      "accountListEncoded",
+      WalletClient::listAccountsEncodedAsync,
+      Function.identity(),
+      ttlMillis("explorer.cache.accountListTtlMillis"));
+
+  public static final RefreshingCache<WitnessList> WITNESSES = new RefreshingCache<>(
+      "witnessList",
+      WalletClient::listWitnessesAsync,
+      witnessList -> encodeLengthPrefixed(witnessList.getWitnessesList()),
+      ttlMillis("explorer.cache.witnessListTtlMillis"));
+
+  private ListCaches() {
+  }
+
+  private static long ttlMillis(String path) {
+    Config config = Configuration.getByPath("config.conf");
+    return config.hasPath(path) ? config.getLong(path) : DEFAULT_TTL_MILLIS;
+  }
+
+  /**
+   * Each message as a 2 byte big-endian length followed by its bytes. A message too long for the
+   * 2 byte length is left out rather than corrupting the rest of the body; {@code
+   * /accountList/stream} has no such limit.
+   */
+  public static byte[] encodeLengthPrefixed(List<? extends MessageLite> objectList) {
+    int objectsSize = 0;
+    for (int i = 0; i < objectList.size(); i++) {
+      MessageLite object = objectList.get(i);
+      if (object.getSerializedSize() > MAX_PREFIXED_LENGTH) {
+        continue;
+      }
+      objectsSize += object.getSerializedSize();
+      objectsSize += 2;  //Length
+    }
+
+    byte[] returnBytes = new byte[objectsSize];
+
+    objectsSize = 0;
+    for (int i = 0; i < objectList.size(); i++) {
+      MessageLite object = objectList.get(i);
+      byte[] objectBytes = object.toByteArray();
+      int length = objectBytes.length;
+      if (length > MAX_PREFIXED_LENGTH) {
+        log.warn("Warning: " + length + " bytes message left out of length prefixed list !!");
+        continue;
+      }
+      returnBytes[objectsSize++] = (byte) (length >> 8);
+      returnBytes[objectsSize++] = (byte) (length & 0xFF);
+      System.arraycopy(objectBytes, 0, returnBytes, objectsSize, length);
+      objectsSize += length;
+    }
+    return returnBytes;
+  }
+}
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.util.Base64;
 import java.util.Base64.Decoder;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,7 +32,8 @@ public class AssetIssueController {
 
 
   @PostMapping("/createAssetIssueToView")
-  public byte[] getTransactionToView(@ModelAttribute AssetIssueVo assetIssueVo) {
+  public CompletableFuture<byte[]> getTransactionToView(
+      @ModelAttribute AssetIssueVo assetIssueVo) {
     Decoder decoder = Base64.getDecoder();
 
     Contract.AssetIssueContract.Builder builder = Contract.AssetIssueContract.newBuilder();
@@ -48,8 +50,8 @@ public class AssetIssueController {
     builder.setUrl(ByteString.copyFrom(assetIssueVo.getUrl().getBytes()));
 
     Contract.AssetIssueContract contract = builder.build();
-    Transaction transaction = WalletClient.createAssetIssueTransaction(contract);
-    return transaction.toByteArray();
+    return WalletClient.createAssetIssueTransactionAsync(contract)
+        .thenApply(Transaction::toByteArray);
   }
 
 
@@ -1,30 +1,41 @@
 package org.tron.explorer.controller;
 
 import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.googlecode.protobuf.format.JsonFormat;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiOperation;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Base64.Encoder;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.tron.common.utils.ByteArray;
+import org.tron.explorer.cache.ListCaches;
 import org.tron.explorer.domain.AccountVo;
 import org.tron.protos.Contract.AccountCreateContract;
 import org.tron.protos.Protocol.Account;
 import org.tron.protos.Protocol.AccountType;
 import org.tron.protos.Protocol.Transaction;
 import org.tron.walletcli.Test;
+import org.tron.walletserver.AccountCursor;
 import org.tron.walletserver.WalletClient;
 
 
@@ -53,49 +64,64 @@ public class GrpcClientController {
   @ApiOperation(value = "get Balance", notes = "query balance")
   @ApiImplicitParam(name = "address", value = "address", required = true, dataType = "String")
   @PostMapping("/balance")
-  public ModelAndView getBalance(@ModelAttribute AccountVo accountVo) {
-
-    long balance = WalletClient.getBalance(ByteArray.fromHexString(accountVo.getAddress()));
-    ModelAndView modelAndView = new ModelAndView("balance");
-    modelAndView.addObject("address", accountVo.getAddress());
-    modelAndView.addObject("balance", balance);
-    return modelAndView;
+  public CompletableFuture<ModelAndView> getBalance(@ModelAttribute AccountVo accountVo) {
+    return WalletClient.getBalanceAsync(ByteArray.fromHexString(accountVo.getAddress()))
+        .thenApply(balance -> {
+          ModelAndView modelAndView = new ModelAndView("balance");
+          modelAndView.addObject("address", accountVo.getAddress());
+          modelAndView.addObject("balance", balance);
+          return modelAndView;
+        });
   }
 
   @GetMapping("/accountList")
-  public byte[] getAcountList()
-      throws IOException {
-
-    List<Account> objectList = WalletClient.listAccounts().get().getAccountsList();
+  public CompletableFuture<byte[]> getAcountList() {
+    return ListCaches.ACCOUNTS.getEncodedAsync();
+  }
 
-    int objectsSize = 0;
-    for (int i = 0; i < objectList.size(); i++) {
-      Account object = objectList.get(i);
-      objectsSize += object.getSerializedSize();
-      objectsSize += 2;  //Length
-    }
+  /**
+   * Accounts as a chunked stream of records, each a varint length followed by an encoded
+   * Account. {@code offset} accounts are skipped and at most {@code limit} are sent (all when
+   * {@code limit} is 0); fewer than {@code limit} records means the list has ended. Every page
+   * is cut from the same cached response, refreshed like {@code /accountList}.
+   */
+  @GetMapping("/accountList/stream")
+  public CompletableFuture<ResponseEntity<StreamingResponseBody>> streamAccountList(
+      @RequestParam(value = "offset", defaultValue = "0") long offset,
+      @RequestParam(value = "limit", defaultValue = "0") long limit) {
+    return ListCaches.ACCOUNTS_ENCODED.getAsync().thenApply(entry -> {
+      AccountCursor cursor = new AccountCursor(entry.getValue());
+      StreamingResponseBody body = out -> writeAccounts(cursor, offset, limit, out);
+      return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+    });
+  }
 
-    byte[] returnBytes = new byte[objectsSize];
-
-    objectsSize = 0;
-    for (int i = 0; i < objectList.size(); i++) {
-      Account object = objectList.get(i);
-      byte[] objectBytes = object.toByteArray();
-      int length = objectBytes.length;
-      returnBytes[objectsSize++] = (byte) ((length & 0xFFFF) >> 8);
-      returnBytes[objectsSize++] = (byte) (length & 0xFF);
-      System.arraycopy(objectBytes, 0, returnBytes, objectsSize, length);
-      objectsSize += length;
+  private static void writeAccounts(AccountCursor cursor, long offset, long limit, OutputStream out)
+      throws IOException {
+    cursor.skip(Math.max(offset, 0));
+    long remaining = limit > 0 ? limit : Long.MAX_VALUE;
+    CodedOutputStream output = CodedOutputStream.newInstance(out, 8192);
+    while (remaining-- > 0 && cursor.hasNext()) {
+      ByteString account = cursor.nextEncoded();
+      output.writeUInt32NoTag(account.size());
+      output.writeRawBytes(account);
     }
-
-    return returnBytes;
+    output.flush();
   }
 
   @GetMapping("/alTest")
-  public byte[] getAcountListForTest()
-      throws IOException {
+  public CompletableFuture<byte[]> getAcountListForTest() {
+    return WalletClient.listAccountsAsync().thenApply(accountList -> {
+      try {
+        return getAcountListForTest(accountList.getAccountsList());
+      } catch (UnsupportedEncodingException e) {
+        throw new CompletionException(e);
+      }
+    });
+  }
 
-    final List<Account> accountsList = WalletClient.listAccounts().get().getAccountsList();
+  private byte[] getAcountListForTest(List<Account> accountsList)
+      throws UnsupportedEncodingException {
 
     Account account = accountsList.get(0);
 
@@ -116,9 +142,12 @@ public class GrpcClientController {
 
 
   @GetMapping("/aTest")
-  public String getAcountForTest() {
+  public CompletableFuture<String> getAcountForTest() {
+    return WalletClient.listAccountsAsync()
+        .thenApply(accountList -> getAcountForTest(accountList.getAccountsList()));
+  }
 
-    final List<Account> accountsList = WalletClient.listAccounts().get().getAccountsList();
+  private String getAcountForTest(List<Account> accountsList) {
 
     final JsonFormat jsonFormat = new JsonFormat();
     List list = new ArrayList();
@@ -141,12 +170,16 @@ public class GrpcClientController {
   }
 
   @PostMapping("/register")
-  public ModelAndView registerAccount(@ModelAttribute AccountVo account) {
+  public CompletableFuture<ModelAndView> registerAccount(@ModelAttribute AccountVo account) {
+    return WalletClient
+        .createAccountTransactionAsync(AccountType.Normal, account.getName().getBytes(),
+            ByteArray.fromHexString(account.getAddress()))
+        .thenApply(this::registerView);
+  }
+
+  private ModelAndView registerView(Transaction transaction) {
     ModelAndView modelAndView;
     try {
-      Transaction transaction = WalletClient
-          .createAccountTransaction(AccountType.Normal, account.getName().getBytes(),
-              ByteArray.fromHexString(account.getAddress()));
       Any contract = transaction.getRawData().getContract(0).getParameter();
       AccountCreateContract accountCreateContract = contract.unpack(AccountCreateContract.class);
       modelAndView = new ModelAndView("register");
@@ -168,17 +201,28 @@ public class GrpcClientController {
 
   //send account transaction to view
   @PostMapping("/transactionForView")
-  public byte[] getTransactionToView(@ModelAttribute AccountVo account) {
-    Transaction transaction = WalletClient
-        .createAccountTransaction(AccountType.Normal, account.getName().getBytes(),
-            ByteArray.fromHexString(account.getAddress()));
-    return transaction.toByteArray();
+  public CompletableFuture<byte[]> getTransactionToView(@ModelAttribute AccountVo account) {
+    return WalletClient
+        .createAccountTransactionAsync(AccountType.Normal, account.getName().getBytes(),
+            ByteArray.fromHexString(account.getAddress()))
+        .thenApply(Transaction::toByteArray);
   }
 
   //get account transaction from view
   @PostMapping("/transactionFromView")
-  public boolean transactionFromView(String transactionData) throws InvalidProtocolBufferException {
+  public CompletableFuture<Boolean> transactionFromView(String transactionData)
+      throws InvalidProtocolBufferException {
     final byte[] bytes = ByteArray.fromHexString(transactionData);
-    return WalletClient.broadcastTransaction(bytes);
+    return WalletClient.broadcastTransactionAsync(bytes);
+  }
+
+  //get many transactions from view, validated together before broadcast
+  @PostMapping("/transactionsFromView")
+  public CompletableFuture<boolean[]> transactionsFromView(String[] transactionData) {
+    List<byte[]> transactions = new ArrayList<>(transactionData.length);
+    for (String data : transactionData) {
+      transactions.add(ByteArray.fromHexString(data));
+    }
+    return WalletClient.broadcastTransactionsAsync(transactions);
   }
 }
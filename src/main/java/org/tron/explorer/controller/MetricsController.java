@@ -0,0 +1,31 @@
+package org.tron.explorer.controller;
+
+import java.util.List;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.tron.walletserver.RpcMetrics;
+import org.tron.walletserver.RpcMetrics.MethodSnapshot;
+
+
+@RestController
+public class MetricsController {
+
+  //per full node RPC latency, status and size metrics, as JSON
+  @GetMapping("/metrics")
+  public List<MethodSnapshot> getMetrics() {
+    return RpcMetrics.getDefault().snapshot();
+  }
+
+  //per full node RPC metrics, one line per method
+  @GetMapping("/metrics/text")
+  public String getMetricsText() {
+    return RpcMetrics.getDefault().report();
+  }
+
+  @PostMapping("/metrics/reset")
+  public boolean resetMetrics() {
+    RpcMetrics.getDefault().reset();
+    return true;
+  }
+}
@@ -1,5 +1,6 @@
 package org.tron.explorer.controller;
 
+import java.util.concurrent.CompletableFuture;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -26,13 +27,13 @@ public class TransferController {
   }
 
   @PostMapping("/sendCoinToView")
-  public byte[] getTransactionToView(@ModelAttribute Transfer transfer) {
+  public CompletableFuture<byte[]> getTransactionToView(@ModelAttribute Transfer transfer) {
     TransferContract contract = WalletClient
         .createTransferContract(ByteArray.fromHexString(transfer.getToAddress()),
             ByteArray.fromHexString(transfer.getAddress()),
             Long.parseLong(transfer.getAmount()));
-    Transaction transaction = WalletClient.createTransaction4Transfer(contract);
-    return transaction.toByteArray();
+    return WalletClient.createTransaction4TransferAsync(contract)
+        .thenApply(Transaction::toByteArray);
   }
 
 
@@ -0,0 +1,82 @@
+package org.tron.keystore;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.spongycastle.util.encoders.Hex;
+
+/**
+ * Writes the addresses of an {@link AddressPool} as they are generated, without private keys.
+ *
+ * <p>{@link Format#CSV} has a header line and then {@code index,address,publicKey} in hex per
+ * key. {@link Format#BINARY} starts with "TRAP" and a version int, then per key the index as a
+ * long and the address and public key each prefixed by its length in one byte.
+ */
+public class AddressExport implements AddressPool.Sink, Closeable {
+
+  private static final int MAGIC = 0x54524150; // "TRAP"
+  private static final int VERSION = 1;
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  public enum Format {
+    CSV, BINARY;
+
+    public static Format fromName(String name) {
+      for (Format format : values()) {
+        if (format.name().equalsIgnoreCase(name)) {
+          return format;
+        }
+      }
+      throw new IllegalArgumentException("Unknown export format " + name
+          + ", expected csv or binary");
+    }
+  }
+
+  private final Format format;
+  private final DataOutputStream out;
+
+  public AddressExport(Path path, Format format) throws IOException {
+    this.format = format;
+    OutputStream file = Files.newOutputStream(path);
+    this.out = new DataOutputStream(new BufferedOutputStream(file, BUFFER_SIZE));
+    if (format == Format.BINARY) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+    } else {
+      out.write("index,address,publicKey\n".getBytes(StandardCharsets.US_ASCII));
+    }
+  }
+
+  @Override
+  public void accept(AddressPool.Batch batch) throws IOException {
+    for (int i = 0; i < batch.size(); i++) {
+      long index = batch.getFirstIndex() + i;
+      byte[] address = batch.getAddress(i);
+      byte[] publicKey = batch.getPublicKey(i);
+      if (format == Format.BINARY) {
+        out.writeLong(index);
+        out.writeByte(address.length);
+        out.write(address);
+        out.writeByte(publicKey.length);
+        out.write(publicKey);
+      } else {
+        out.write(Long.toString(index).getBytes(StandardCharsets.US_ASCII));
+        out.write(',');
+        out.write(Hex.encode(address));
+        out.write(',');
+        out.write(Hex.encode(publicKey));
+        out.write('\n');
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,237 @@
+package org.tron.keystore;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.crypto.Hash;
+
+/**
+ * Keys derived from one seed by index, so a pool of deposit addresses can be generated in
+ * parallel and rebuilt later from the seed alone.
+ *
+ * <p>The private key at index {@code i} is HMAC-SHA256(seed, i as 8 bytes big-endian, attempt),
+ * with attempt 0 unless that is not a valid secp256k1 private key (zero or not below the curve
+ * order), in which case the next attempt is taken. Unlike BIP32 there is no chain code or public
+ * derivation: every key needs the seed.
+ */
+public final class AddressPool {
+
+  public static final int MIN_SEED_LENGTH = 16;
+
+  private static final BigInteger N = ECKey.CURVE.getN();
+  private static final int PUBLIC_KEY_LENGTH = 65;
+
+  private final byte[] seed;
+
+  public AddressPool(byte[] seed) {
+    if (seed == null || seed.length < MIN_SEED_LENGTH) {
+      throw new IllegalArgumentException("A seed of at least " + MIN_SEED_LENGTH
+          + " bytes is required");
+    }
+    this.seed = seed.clone();
+  }
+
+  /**
+   * The key at {@code index}.
+   */
+  public ECKey derive(long index) {
+    return derive(newMac(), index);
+  }
+
+  private ECKey derive(Mac mac, long index) {
+    byte[] input = new byte[9];
+    for (int i = 0; i < 8; i++) {
+      input[i] = (byte) (index >>> (56 - 8 * i));
+    }
+    for (int attempt = 0; ; attempt++) {
+      input[8] = (byte) attempt;
+      byte[] privateKey = mac.doFinal(input);
+      BigInteger priv = new BigInteger(1, privateKey);
+      Arrays.fill(privateKey, (byte) 0);
+      if (priv.signum() > 0 && priv.compareTo(N) < 0) {
+        return ECKey.fromPrivate(priv);
+      }
+    }
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(seed, "HmacSHA256"));
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HmacSHA256 is not available", e);
+    }
+  }
+
+  /**
+   * Derive the keys at {@code start} to {@code start + count - 1} on {@code threads} threads, in
+   * batches of {@code batchSize}, and hand the batches to {@code sink} in index order on the
+   * calling thread. At most two batches per thread are in memory at a time.
+   *
+   * @param password if not null, every key is also encrypted under it into a {@link KeyRecord},
+   *     all with one salt so the KDF runs once for the whole pool
+   * @return how many keys were generated and how fast
+   */
+  public Report generate(long start, long count, int threads, int batchSize, String password,
+      Sink sink) throws IOException, InterruptedException {
+    if (start < 0 || count < 0 || threads <= 0 || batchSize <= 0) {
+      throw new IllegalArgumentException("start and count may not be negative, threads and "
+          + "batchSize must be positive");
+    }
+    AtomicInteger threadNumber = new AtomicInteger();
+    ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "address-pool-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+    long begin = System.nanoTime();
+    KeyCipher cipher = password == null ? null : KeyCipher.create(password, KdfParams.getDefault());
+    long done = 0;
+    try {
+      Deque<Future<Batch>> pending = new ArrayDeque<>();
+      long next = start;
+      long end = start + count;
+      while (next < end || !pending.isEmpty()) {
+        while (next < end && pending.size() < threads * 2) {
+          long first = next;
+          int size = (int) Math.min(batchSize, end - next);
+          pending.add(workers.submit(() -> derive(macs.get(), first, size, cipher)));
+          next += size;
+        }
+        Batch batch = pending.poll().get();
+        sink.accept(batch);
+        done += batch.size();
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      workers.shutdownNow();
+      if (cipher != null) {
+        cipher.destroy();
+      }
+    }
+    return new Report(done, System.nanoTime() - begin);
+  }
+
+  private Batch derive(Mac mac, long first, int size, KeyCipher cipher) {
+    ECKey[] keys = new ECKey[size];
+    byte[][] publicKeys = new byte[size][];
+    byte[] packed = new byte[size * PUBLIC_KEY_LENGTH];
+    for (int i = 0; i < size; i++) {
+      keys[i] = derive(mac, first + i);
+      publicKeys[i] = keys[i].getPubKey();
+      System.arraycopy(publicKeys[i], 0, packed, i * PUBLIC_KEY_LENGTH, PUBLIC_KEY_LENGTH);
+    }
+    byte[] packedAddresses = new byte[size * Hash.ADDRESS_LENGTH];
+    ECKey.computeAddresses(packed, size, packedAddresses, 0);
+
+    byte[][] addresses = new byte[size][];
+    List<KeyRecord> records = cipher == null ? null : new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      addresses[i] = Arrays.copyOfRange(packedAddresses, i * Hash.ADDRESS_LENGTH,
+          (i + 1) * Hash.ADDRESS_LENGTH);
+      if (records != null) {
+        records.add(cipher.encrypt(keys[i], addresses[i], publicKeys[i]));
+      }
+    }
+    return new Batch(first, addresses, publicKeys, records);
+  }
+
+  /**
+   * Receives the generated batches, in index order.
+   */
+  public interface Sink {
+
+    void accept(Batch batch) throws IOException;
+  }
+
+  /**
+   * Consecutive keys of a pool: their addresses and public keys, and their encrypted records if
+   * a password was given. The private keys themselves are not kept.
+   */
+  public static final class Batch {
+
+    private final long firstIndex;
+    private final byte[][] addresses;
+    private final byte[][] publicKeys;
+    private final List<KeyRecord> records;
+
+    Batch(long firstIndex, byte[][] addresses, byte[][] publicKeys, List<KeyRecord> records) {
+      this.firstIndex = firstIndex;
+      this.addresses = addresses;
+      this.publicKeys = publicKeys;
+      this.records = records;
+    }
+
+    public long getFirstIndex() {
+      return firstIndex;
+    }
+
+    public int size() {
+      return addresses.length;
+    }
+
+    public byte[] getAddress(int i) {
+      return addresses[i];
+    }
+
+    public byte[] getPublicKey(int i) {
+      return publicKeys[i];
+    }
+
+    /**
+     * The encrypted keys, or null if no password was given.
+     */
+    public List<KeyRecord> getRecords() {
+      return records;
+    }
+  }
+
+  public static final class Report {
+
+    private final long keys;
+    private final long elapsedNanos;
+
+    Report(long keys, long elapsedNanos) {
+      this.keys = keys;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getKeys() {
+      return keys;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getKeysPerSecond() {
+      return elapsedNanos == 0 ? 0 : keys * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d keys in %.2f s, %.0f keys/s", keys, elapsedNanos / 1e9,
+          getKeysPerSecond());
+    }
+  }
+}
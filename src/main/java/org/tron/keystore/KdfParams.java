@@ -0,0 +1,146 @@
+package org.tron.keystore;
+
+import com.typesafe.config.Config;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tron.common.crypto.SymmEncoder;
+
+/**
+ * Cost of the scrypt key derivation that protects {@link KeyRecord#SCHEME_SCRYPT_GCM} records:
+ * N = 2^logN, block size r and parallelization p. Memory is about 128 * r * N bytes and time
+ * grows linearly with N * r * p, so logN is what {@link #calibrate} tunes.
+ */
+public final class KdfParams {
+
+  private static final Logger logger = LoggerFactory.getLogger("KdfParams");
+
+  public static final int MIN_LOG_N = 10;
+  public static final int MAX_LOG_N = 22;
+  public static final int KEY_LENGTH = 32;
+
+  // One derivation per key unlock: about 16 MiB and a few hundred ms on a slow core.
+  private static volatile KdfParams defaultParams = new KdfParams(14, 8, 1);
+  private static final LongAdder derivations = new LongAdder();
+
+  private final int logN;
+  private final int r;
+  private final int p;
+
+  public KdfParams(int logN, int r, int p) {
+    if (logN < MIN_LOG_N || logN > MAX_LOG_N || r < 1 || r > 255 || p < 1 || p > 255) {
+      throw new IllegalArgumentException("Bad scrypt parameters logN " + logN + ", r " + r
+          + ", p " + p);
+    }
+    this.logN = logN;
+    this.r = r;
+    this.p = p;
+  }
+
+  /**
+   * The parameters for newly encrypted keys.
+   */
+  public static KdfParams getDefault() {
+    return defaultParams;
+  }
+
+  public static void setDefault(KdfParams params) {
+    if (params == null) {
+      throw new IllegalArgumentException("KDF parameters may not be null");
+    }
+    defaultParams = params;
+  }
+
+  /**
+   * The parameters in {@code wallet.kdf}: calibrated to {@code targetMillis} if it is positive,
+   * otherwise {@code logN}, {@code r} and {@code p} as given, each defaulting to the built-in
+   * value.
+   */
+  public static KdfParams fromConfig(Config config) {
+    KdfParams fallback = defaultParams;
+    int logN = config.hasPath("wallet.kdf.logN") ? config.getInt("wallet.kdf.logN")
+        : fallback.logN;
+    int r = config.hasPath("wallet.kdf.r") ? config.getInt("wallet.kdf.r") : fallback.r;
+    int p = config.hasPath("wallet.kdf.p") ? config.getInt("wallet.kdf.p") : fallback.p;
+    if (config.hasPath("wallet.kdf.targetMillis")
+        && config.getLong("wallet.kdf.targetMillis") > 0) {
+      return calibrate(config.getLong("wallet.kdf.targetMillis"), r, p);
+    }
+    return new KdfParams(logN, r, p);
+  }
+
+  /**
+   * The largest logN, with the given r and p, for which one derivation on this machine takes no
+   * more than {@code targetMillis}, measured rather than guessed. Never below {@link #MIN_LOG_N}.
+   */
+  public static KdfParams calibrate(long targetMillis, int r, int p) {
+    byte[] password = "calibrate".getBytes(StandardCharsets.UTF_8);
+    byte[] salt = new byte[16];
+    int logN = MIN_LOG_N;
+    // The first run includes warm up and is discarded.
+    SymmEncoder.scrypt(password, salt, 1 << logN, r, p, KEY_LENGTH);
+    long nanos = time(password, salt, logN, r, p);
+    while (logN < MAX_LOG_N && nanos * 2 <= targetMillis * 1_000_000L) {
+      logN++;
+      nanos = time(password, salt, logN, r, p);
+    }
+    if (nanos > targetMillis * 1_000_000L && logN > MIN_LOG_N) {
+      logN--;
+    }
+    KdfParams params = new KdfParams(logN, r, p);
+    logger.info("Calibrated " + params + " to " + targetMillis + " ms per unlock");
+    return params;
+  }
+
+  private static long time(byte[] password, byte[] salt, int logN, int r, int p) {
+    long start = System.nanoTime();
+    SymmEncoder.scrypt(password, salt, 1 << logN, r, p, KEY_LENGTH);
+    return System.nanoTime() - start;
+  }
+
+  public int getLogN() {
+    return logN;
+  }
+
+  public int getR() {
+    return r;
+  }
+
+  public int getP() {
+    return p;
+  }
+
+  /**
+   * Number of key derivations run in this process, with any parameters. Bulk operations are
+   * meant to need a handful, not one per key.
+   */
+  public static long getDerivationCount() {
+    return derivations.sum();
+  }
+
+  byte[] derive(String password, byte[] salt) {
+    derivations.increment();
+    return SymmEncoder.scrypt(password.getBytes(StandardCharsets.UTF_8), salt, 1 << logN, r, p,
+        KEY_LENGTH);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof KdfParams)) {
+      return false;
+    }
+    KdfParams other = (KdfParams) o;
+    return logN == other.logN && r == other.r && p == other.p;
+  }
+
+  @Override
+  public int hashCode() {
+    return (logN * 31 + r) * 31 + p;
+  }
+
+  @Override
+  public String toString() {
+    return "scrypt N=2^" + logN + " r=" + r + " p=" + p;
+  }
+}
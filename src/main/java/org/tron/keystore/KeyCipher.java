@@ -0,0 +1,267 @@
+package org.tron.keystore;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.crypto.SymmEncoder;
+import org.tron.common.utils.Utils;
+
+/**
+ * A password-derived key for {@link KeyRecord#SCHEME_SCRYPT_GCM} records, bound to one salt and
+ * one set of {@link KdfParams}. The expensive derivation runs once when the cipher is made; each
+ * key it then encrypts or decrypts costs one AES-256-GCM operation, so bulk jobs go through one
+ * {@code KeyCipher} rather than {@link KeyRecord#encrypt(ECKey, String)} per key.
+ *
+ * <p>The record's password check field holds logN, r, p and the salt; its encrypted private key
+ * field holds a random IV followed by the cipher text and tag. The address and public key are
+ * authenticated along with the private key, so a record cannot be pointed at another address.
+ */
+public final class KeyCipher {
+
+  public static final int SALT_LENGTH = 16;
+  static final int PARAMS_LENGTH = 3 + SALT_LENGTH;
+
+  private final KdfParams params;
+  private final byte[] salt;
+  private final byte[] aesKey;
+
+  private KeyCipher(KdfParams params, byte[] salt, byte[] aesKey) {
+    this.params = params;
+    this.salt = salt;
+    this.aesKey = aesKey;
+  }
+
+  /**
+   * A cipher for new records, under a fresh random salt.
+   */
+  public static KeyCipher create(String password, KdfParams params) {
+    byte[] salt = new byte[SALT_LENGTH];
+    Utils.getRandom().nextBytes(salt);
+    return new KeyCipher(params, salt, params.derive(password, salt));
+  }
+
+  /**
+   * A cipher for {@code record} and every other record sharing its salt and parameters.
+   */
+  public static KeyCipher forRecord(KeyRecord record, String password) {
+    byte[] encoded = record.getPasswordCheck();
+    if (record.getScheme() != KeyRecord.SCHEME_SCRYPT_GCM || encoded.length != PARAMS_LENGTH) {
+      throw new IllegalArgumentException("Not a scrypt/AES-GCM record");
+    }
+    KdfParams params = new KdfParams(encoded[0] & 0xFF, encoded[1] & 0xFF, encoded[2] & 0xFF);
+    byte[] salt = Arrays.copyOfRange(encoded, 3, PARAMS_LENGTH);
+    return new KeyCipher(params, salt, params.derive(password, salt));
+  }
+
+  public KdfParams getParams() {
+    return params;
+  }
+
+  /**
+   * Whether {@code record} was encrypted under this salt and these parameters. The password may
+   * still be wrong, which only {@link #decrypt} tells.
+   */
+  public boolean matches(KeyRecord record) {
+    return record.getScheme() == KeyRecord.SCHEME_SCRYPT_GCM
+        && Arrays.equals(record.getPasswordCheck(), encodeParams());
+  }
+
+  public KeyRecord encrypt(ECKey key) {
+    if (key == null || !key.hasPrivKey()) {
+      throw new IllegalArgumentException("A private key is required");
+    }
+    return encrypt(key, key.getAddress(), key.getPubKey());
+  }
+
+  /**
+   * Encrypt the private key of {@code key}, whose address and public key are already known.
+   */
+  KeyRecord encrypt(ECKey key, byte[] address, byte[] publicKey) {
+    byte[] iv = new byte[SymmEncoder.GCM_IV_LENGTH];
+    Utils.getRandom().nextBytes(iv);
+    byte[] privateKey = key.getPrivKeyBytes();
+    try {
+      byte[] sealed = SymmEncoder.AES256GcmEnc(privateKey, aesKey, iv, aad(address, publicKey));
+      if (sealed == null) {
+        throw new IllegalStateException("AES-GCM encryption failed");
+      }
+      byte[] encrypted = new byte[iv.length + sealed.length];
+      System.arraycopy(iv, 0, encrypted, 0, iv.length);
+      System.arraycopy(sealed, 0, encrypted, iv.length, sealed.length);
+      return new KeyRecord(KeyRecord.SCHEME_SCRYPT_GCM, address, encodeParams(), publicKey,
+          encrypted);
+    } finally {
+      Arrays.fill(privateKey, (byte) 0);
+    }
+  }
+
+  /**
+   * The key with its private part, or null if the password is wrong, the record does not
+   * {@link #matches match} this cipher or it was altered.
+   */
+  public ECKey decrypt(KeyRecord record) {
+    if (!matches(record)) {
+      return null;
+    }
+    byte[] encrypted = record.getEncryptedPrivateKey();
+    if (encrypted.length < SymmEncoder.GCM_IV_LENGTH + SymmEncoder.GCM_TAG_LENGTH) {
+      return null;
+    }
+    byte[] iv = Arrays.copyOf(encrypted, SymmEncoder.GCM_IV_LENGTH);
+    byte[] sealed = Arrays.copyOfRange(encrypted, SymmEncoder.GCM_IV_LENGTH, encrypted.length);
+    byte[] publicKey = record.getPublicKey();
+    byte[] privateKey = SymmEncoder.AES256GcmDec(sealed, aesKey, iv,
+        aad(record.getAddress(), publicKey));
+    if (privateKey == null) {
+      return null;
+    }
+    try {
+      return ECKey.fromPrivateAndPrecalculatedPublic(privateKey, publicKey);
+    } finally {
+      Arrays.fill(privateKey, (byte) 0);
+    }
+  }
+
+  /**
+   * Encrypt all {@code keys} in parallel, in order.
+   */
+  public List<KeyRecord> encryptAll(List<ECKey> keys) {
+    return keys.parallelStream().map(this::encrypt).collect(Collectors.toList());
+  }
+
+  /**
+   * Decrypt all {@code records} in parallel, in order; an entry is null where {@link #decrypt}
+   * would return null.
+   */
+  public List<ECKey> decryptAll(List<KeyRecord> records) {
+    return records.parallelStream().map(this::decrypt).collect(Collectors.toList());
+  }
+
+  /**
+   * Decrypt records of any scheme and salt in one parallel pass, deriving the key once per
+   * distinct salt rather than once per record.
+   *
+   * @return the keys in the order of {@code records}, null where the password is wrong
+   */
+  public static List<ECKey> decryptAll(List<KeyRecord> records, String password) {
+    Map<ByteBuffer, KeyCipher> ciphers = ciphersFor(records, password);
+    try {
+      return IntStream.range(0, records.size()).parallel().mapToObj(i -> {
+        KeyRecord record = records.get(i);
+        if (record.getScheme() != KeyRecord.SCHEME_SCRYPT_GCM) {
+          return record.decrypt(password);
+        }
+        KeyCipher cipher = ciphers.get(ByteBuffer.wrap(record.getPasswordCheck()));
+        return cipher == null ? null : cipher.decrypt(record);
+      }).collect(Collectors.toList());
+    } finally {
+      ciphers.values().forEach(KeyCipher::destroy);
+    }
+  }
+
+  /**
+   * Decrypt {@code records} under {@code oldPassword} and encrypt them again under {@code
+   * newPassword} with {@code params}, in one parallel pass and with one new salt for all.
+   *
+   * @return the new records in the order of {@code records}
+   * @throws IllegalArgumentException if {@code oldPassword} does not open every record
+   */
+  public static List<KeyRecord> reencryptAll(List<KeyRecord> records, String oldPassword,
+      String newPassword, KdfParams params) {
+    try (Rekey rekey = new Rekey(oldPassword, newPassword, params)) {
+      List<KeyRecord> rekeyed = rekey.applyAll(records);
+      if (rekeyed.contains(null)) {
+        throw new IllegalArgumentException("Wrong password for a key in the batch");
+      }
+      return rekeyed;
+    }
+  }
+
+  // One derivation per distinct salt, which for records written in bulk is usually just one.
+  private static Map<ByteBuffer, KeyCipher> ciphersFor(List<KeyRecord> records,
+      String password) {
+    Map<ByteBuffer, KeyRecord> firstBySalt = new HashMap<>();
+    for (KeyRecord record : records) {
+      if (record.getScheme() == KeyRecord.SCHEME_SCRYPT_GCM) {
+        firstBySalt.putIfAbsent(ByteBuffer.wrap(record.getPasswordCheck()), record);
+      }
+    }
+    return firstBySalt.entrySet().parallelStream().collect(Collectors.toMap(Map.Entry::getKey,
+        entry -> forRecord(entry.getValue(), password)));
+  }
+
+  /**
+   * Zero the derived key; the cipher is unusable afterwards.
+   */
+  public void destroy() {
+    Arrays.fill(aesKey, (byte) 0);
+  }
+
+  /**
+   * Moves records from one password to another. The new key is derived once, under one new salt
+   * for every record; the old ones once per distinct salt, when the first record using it comes
+   * by. Safe to use from many threads.
+   */
+  public static final class Rekey implements AutoCloseable {
+
+    private final String oldPassword;
+    private final KeyCipher target;
+    private final Map<ByteBuffer, KeyCipher> sources = new ConcurrentHashMap<>();
+
+    public Rekey(String oldPassword, String newPassword, KdfParams params) {
+      this.oldPassword = oldPassword;
+      this.target = create(newPassword, params);
+    }
+
+    /**
+     * {@code record} encrypted under the new password, or null if the old password does not
+     * open it.
+     */
+    public KeyRecord apply(KeyRecord record) {
+      ECKey key;
+      if (record.getScheme() == KeyRecord.SCHEME_SCRYPT_GCM) {
+        KeyCipher source = sources.computeIfAbsent(ByteBuffer.wrap(record.getPasswordCheck()),
+            salt -> forRecord(record, oldPassword));
+        key = source.decrypt(record);
+      } else {
+        key = record.decrypt(oldPassword);
+      }
+      return key == null ? null : target.encrypt(key, record.getAddress(), record.getPublicKey());
+    }
+
+    /**
+     * {@link #apply} for all {@code records} in parallel, in order.
+     */
+    public List<KeyRecord> applyAll(List<KeyRecord> records) {
+      return records.parallelStream().map(this::apply).collect(Collectors.toList());
+    }
+
+    @Override
+    public void close() {
+      target.destroy();
+      sources.values().forEach(KeyCipher::destroy);
+    }
+  }
+
+  private byte[] encodeParams() {
+    byte[] encoded = new byte[PARAMS_LENGTH];
+    encoded[0] = (byte) params.getLogN();
+    encoded[1] = (byte) params.getR();
+    encoded[2] = (byte) params.getP();
+    System.arraycopy(salt, 0, encoded, 3, SALT_LENGTH);
+    return encoded;
+  }
+
+  private static byte[] aad(byte[] address, byte[] publicKey) {
+    byte[] aad = new byte[address.length + publicKey.length];
+    System.arraycopy(address, 0, aad, 0, address.length);
+    System.arraycopy(publicKey, 0, aad, address.length, publicKey.length);
+    return aad;
+  }
+}
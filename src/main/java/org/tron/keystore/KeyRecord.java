@@ -0,0 +1,158 @@
+package org.tron.keystore;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.crypto.Hash;
+import org.tron.common.crypto.SymmEncoder;
+
+/**
+ * One encrypted key of a {@link Keystore}: the address and public key in the clear, the private
+ * key encrypted under a password.
+ *
+ * <p>{@link #SCHEME_LEGACY} is the scheme of the single-key {@code Wallet} file: a 16 byte
+ * password check of double SHA-256, and the private key AES-128-ECB encrypted under the first 16
+ * bytes of SHA-256(password). A legacy file therefore imports without its password.
+ *
+ * <p>{@link #SCHEME_SCRYPT_GCM}, the scheme of new records, derives an AES-256 key with scrypt
+ * under a per-record salt and seals the private key with AES-GCM; see {@link KeyCipher}.
+ */
+public final class KeyRecord {
+
+  public static final byte SCHEME_LEGACY = 1;
+  public static final byte SCHEME_SCRYPT_GCM = 2;
+
+  private final byte scheme;
+  private final byte[] address;
+  private final byte[] passwordCheck;
+  private final byte[] publicKey;
+  private final byte[] encryptedPrivateKey;
+
+  public KeyRecord(byte scheme, byte[] address, byte[] passwordCheck, byte[] publicKey,
+      byte[] encryptedPrivateKey) {
+    if (address.length == 0 || address.length > KeystoreIndex.MAX_ADDRESS_LENGTH) {
+      throw new IllegalArgumentException("Address length " + address.length);
+    }
+    this.scheme = scheme;
+    this.address = address;
+    this.passwordCheck = passwordCheck;
+    this.publicKey = publicKey;
+    this.encryptedPrivateKey = encryptedPrivateKey;
+  }
+
+  /**
+   * Encrypt the private key of {@code key} under {@code password} with the default {@link
+   * KdfParams}. This runs the KDF once for this one key; many keys should share a {@link
+   * KeyCipher}.
+   */
+  public static KeyRecord encrypt(ECKey key, String password) {
+    KeyCipher cipher = KeyCipher.create(password, KdfParams.getDefault());
+    try {
+      return cipher.encrypt(key);
+    } finally {
+      cipher.destroy();
+    }
+  }
+
+  public byte getScheme() {
+    return scheme;
+  }
+
+  public byte[] getAddress() {
+    return address.clone();
+  }
+
+  public byte[] getPublicKey() {
+    return publicKey.clone();
+  }
+
+  /**
+   * The key without its private part, no password needed.
+   */
+  public ECKey toPublicKey() {
+    return ECKey.fromPublicOnly(publicKey);
+  }
+
+  /**
+   * Whether {@code password} opens this record. For {@link #SCHEME_SCRYPT_GCM} this costs a full
+   * {@link #decrypt}.
+   */
+  public boolean checkPassword(String password) {
+    if (scheme == SCHEME_SCRYPT_GCM) {
+      return decrypt(password) != null;
+    }
+    return scheme == SCHEME_LEGACY
+        && MessageDigest.isEqual(passwordCheck, legacyPasswordCheck(password));
+  }
+
+  /**
+   * The key with its private part, or null if the password is wrong.
+   */
+  public ECKey decrypt(String password) {
+    if (scheme == SCHEME_SCRYPT_GCM) {
+      KeyCipher cipher = KeyCipher.forRecord(this, password);
+      try {
+        return cipher.decrypt(this);
+      } finally {
+        cipher.destroy();
+      }
+    }
+    if (scheme != SCHEME_LEGACY
+        || !MessageDigest.isEqual(passwordCheck, legacyPasswordCheck(password))) {
+      return null;
+    }
+    byte[] privateKey = SymmEncoder.AES128EcbDec(encryptedPrivateKey, legacyEncKey(password));
+    if (privateKey == null) {
+      return null;
+    }
+    try {
+      return ECKey.fromPrivateAndPrecalculatedPublic(privateKey, publicKey);
+    } finally {
+      Arrays.fill(privateKey, (byte) 0);
+    }
+  }
+
+  byte[] getPasswordCheck() {
+    return passwordCheck;
+  }
+
+  byte[] getEncryptedPrivateKey() {
+    return encryptedPrivateKey;
+  }
+
+  static byte[] legacyPasswordCheck(String password) {
+    byte[] check = Hash.sha256(Hash.sha256(password.getBytes()));
+    return Arrays.copyOfRange(check, 0, 16);
+  }
+
+  static byte[] legacyEncKey(String password) {
+    return Arrays.copyOfRange(Hash.sha256(password.getBytes()), 0, 16);
+  }
+
+  int getEncodedLength() {
+    return 1 + 1 + address.length + 1 + passwordCheck.length + 1 + publicKey.length + 2
+        + encryptedPrivateKey.length;
+  }
+
+  void encode(ByteBuffer out) {
+    out.put(scheme);
+    out.put((byte) address.length).put(address);
+    out.put((byte) passwordCheck.length).put(passwordCheck);
+    out.put((byte) publicKey.length).put(publicKey);
+    out.putShort((short) encryptedPrivateKey.length).put(encryptedPrivateKey);
+  }
+
+  static KeyRecord decode(ByteBuffer in) {
+    byte scheme = in.get();
+    byte[] address = new byte[in.get() & 0xFF];
+    in.get(address);
+    byte[] passwordCheck = new byte[in.get() & 0xFF];
+    in.get(passwordCheck);
+    byte[] publicKey = new byte[in.get() & 0xFF];
+    in.get(publicKey);
+    byte[] encryptedPrivateKey = new byte[in.getShort() & 0xFFFF];
+    in.get(encryptedPrivateKey);
+    return new KeyRecord(scheme, address, passwordCheck, publicKey, encryptedPrivateKey);
+  }
+}
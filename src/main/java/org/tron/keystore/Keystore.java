@@ -0,0 +1,592 @@
+package org.tron.keystore;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongycastle.util.encoders.Hex;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.crypto.Hash;
+import org.tron.common.utils.AtomicFile;
+import org.tron.common.utils.Utils;
+
+/**
+ * Many encrypted keys in one directory, looked up by address.
+ *
+ * <p>{@code keystore.dat} is an append-only log of {@link KeyRecord}s, each framed by its length
+ * and CRC32, and {@code keystore.idx} a memory-mapped {@link KeystoreIndex} from address to
+ * record position. A record is written in one positional write and synced before the index points
+ * at it, so a crash can at worst leave a torn record at the end of the log; it is cut off the
+ * next time the keystore is opened. Adding a key that is already stored supersedes the old
+ * record. {@link #rekey} rewrites the whole log into a new file and swaps it in.
+ *
+ * <p>Keys added under the same password share one salt, and so one {@link KeyCipher}: the
+ * keystore keeps the cipher of the last password it encrypted under and, on the first add of a
+ * session, takes over the salt of a stored record that the password opens. A rekey then derives
+ * the old key once per password rather than once per key.
+ *
+ * <p>The data file is locked while open, so only one process uses a keystore at a time.
+ */
+public class Keystore implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger("Keystore");
+
+  public static final String DATA_FILE = "keystore.dat";
+  public static final String INDEX_FILE = "keystore.idx";
+
+  private static final int MAGIC = 0x54524b53; // "TRKS"
+  private static final int VERSION = 1;
+  private static final int FILE_HEADER_SIZE = 8;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int MAX_RECORD_SIZE = 4096;
+  private static final int REKEY_CHUNK = 4096;
+  private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+  // Legacy Wallet file: hex password check, public key and encrypted private key.
+  private static final int LEGACY_LENGTH = 226;
+  private static final int LEGACY_PUBKEY_AT = 32;
+  private static final int LEGACY_PRIKEY_AT = 162;
+
+  private final Path dir;
+  private FileChannel data;
+  private FileLock lock;
+  private KeystoreIndex index;
+  private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+  private long dataLength;
+
+  // Taken before rwLock, never while holding it.
+  private final Object cipherLock = new Object();
+  private final byte[] passwordSalt = new byte[16];
+  private KeyCipher cipher;
+  private byte[] cipherPasswordHash;
+
+  private Keystore(Path dir, FileChannel data, FileLock lock, KeystoreIndex index,
+      long dataLength) {
+    this.dir = dir;
+    this.data = data;
+    this.lock = lock;
+    this.index = index;
+    this.dataLength = dataLength;
+    Utils.getRandom().nextBytes(passwordSalt);
+  }
+
+  /**
+   * Open the keystore in {@code dir}, creating it if there is none.
+   */
+  public static Keystore open(Path dir) throws IOException {
+    Files.createDirectories(dir);
+    FileChannel data = FileChannel.open(dir.resolve(DATA_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      FileLock lock;
+      try {
+        lock = data.tryLock();
+      } catch (OverlappingFileLockException e) {
+        throw new IOException("Keystore " + dir + " is already open");
+      }
+      if (lock == null) {
+        throw new IOException("Keystore " + dir + " is used by another process");
+      }
+      if (data.size() < FILE_HEADER_SIZE) {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        writeFully(data, header, 0);
+        data.truncate(FILE_HEADER_SIZE);
+        data.force(true);
+      } else {
+        ByteBuffer header = readFully(data, 0, FILE_HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+          throw new IOException(dir.resolve(DATA_FILE) + " is not a keystore");
+        }
+      }
+
+      Path indexPath = dir.resolve(INDEX_FILE);
+      KeystoreIndex index = KeystoreIndex.open(indexPath);
+      if (index == null || index.getCoveredLength() < FILE_HEADER_SIZE
+          || index.getCoveredLength() > data.size()) {
+        if (index != null || data.size() > FILE_HEADER_SIZE) {
+          logger.warn("Warning: rebuild keystore index of " + dir + " !!");
+        }
+        index = KeystoreIndex.create(indexPath, KeystoreIndex.MIN_CAPACITY, FILE_HEADER_SIZE);
+      }
+      long dataLength = replay(data, index, dir);
+      return new Keystore(dir, data, lock, index, dataLength);
+    } catch (IOException | RuntimeException e) {
+      data.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Index the records the index does not cover yet, and cut off a torn record at the end.
+   */
+  private static long replay(FileChannel data, KeystoreIndex index, Path dir)
+      throws IOException {
+    long size = data.size();
+    long position = index.getCoveredLength();
+    while (position < size) {
+      KeyRecord record = size - position < RECORD_HEADER_SIZE ? null
+          : readRecord(data, position, size);
+      if (record == null) {
+        logger.warn("Warning: drop " + (size - position) + " bytes of torn record at the end of "
+            + dir.resolve(DATA_FILE) + " !!");
+        data.truncate(position);
+        data.force(true);
+        break;
+      }
+      index.put(record.getAddress(), position);
+      position += RECORD_HEADER_SIZE + record.getEncodedLength();
+    }
+    index.setCoveredLength(position);
+    return position;
+  }
+
+  public Path getDir() {
+    return dir;
+  }
+
+  public int size() {
+    rwLock.readLock().lock();
+    try {
+      return index.size();
+    } finally {
+      rwLock.readLock().unlock();
+    }
+  }
+
+  public boolean contains(byte[] address) {
+    rwLock.readLock().lock();
+    try {
+      return index.get(address) >= 0;
+    } finally {
+      rwLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Every stored address, in no particular order.
+   */
+  public List<byte[]> getAddresses() {
+    rwLock.readLock().lock();
+    try {
+      return index.addresses();
+    } finally {
+      rwLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * The record for {@code address}, or null if it is not stored.
+   */
+  public KeyRecord get(byte[] address) throws IOException {
+    rwLock.readLock().lock();
+    try {
+      long position = index.get(address);
+      if (position < 0) {
+        return null;
+      }
+      KeyRecord record = readRecord(data, position, dataLength);
+      if (record == null) {
+        throw new IOException("Damaged keystore record at " + position + " in " + dir);
+      }
+      return record;
+    } finally {
+      rwLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * The key for {@code address} with its private part, or null if it is not stored or the
+   * password is wrong.
+   */
+  public ECKey unlock(byte[] address, String password) throws IOException {
+    KeyRecord record = get(address);
+    if (record == null) {
+      return null;
+    }
+    synchronized (cipherLock) {
+      if (cipher != null && cipher.matches(record) && isCipherPassword(password)) {
+        return cipher.decrypt(record);
+      }
+    }
+    return record.decrypt(password);
+  }
+
+  /**
+   * Encrypt {@code key} under {@code password} and store it. Keys added under the same password
+   * share one salt, so only the first add under a password derives a key.
+   *
+   * @return its address
+   */
+  public byte[] add(ECKey key, String password) throws IOException {
+    KeyRecord record;
+    synchronized (cipherLock) {
+      record = cipherFor(password).encrypt(key);
+    }
+    put(record);
+    return record.getAddress();
+  }
+
+  /**
+   * The cipher for new records under {@code password}: the one used last if the password and
+   * the default {@link KdfParams} are the same, else one on the salt of a stored record the
+   * password opens, else one on a fresh salt.
+   */
+  private KeyCipher cipherFor(String password) throws IOException {
+    KdfParams params = KdfParams.getDefault();
+    if (cipher != null && cipher.getParams().equals(params) && isCipherPassword(password)) {
+      return cipher;
+    }
+    KeyCipher next = null;
+    KeyRecord candidate = anyScryptRecord(params);
+    if (candidate != null) {
+      next = KeyCipher.forRecord(candidate, password);
+      if (next.decrypt(candidate) == null) {
+        next.destroy();
+        next = null;
+      }
+    }
+    if (next == null) {
+      next = KeyCipher.create(password, params);
+    }
+    if (cipher != null) {
+      cipher.destroy();
+    }
+    cipher = next;
+    cipherPasswordHash = passwordHash(password);
+    return next;
+  }
+
+  private KeyRecord anyScryptRecord(KdfParams params) throws IOException {
+    for (byte[] address : getAddresses()) {
+      KeyRecord record = get(address);
+      if (record == null || record.getScheme() != KeyRecord.SCHEME_SCRYPT_GCM) {
+        continue;
+      }
+      byte[] encoded = record.getPasswordCheck();
+      if ((encoded[0] & 0xFF) == params.getLogN() && (encoded[1] & 0xFF) == params.getR()
+          && (encoded[2] & 0xFF) == params.getP()) {
+        return record;
+      }
+    }
+    return null;
+  }
+
+  private boolean isCipherPassword(String password) {
+    byte[] hash = passwordHash(password);
+    try {
+      return MessageDigest.isEqual(hash, cipherPasswordHash);
+    } finally {
+      Arrays.fill(hash, (byte) 0);
+    }
+  }
+
+  private byte[] passwordHash(String password) {
+    byte[] bytes = password.getBytes(StandardCharsets.UTF_8);
+    byte[] salted = new byte[passwordSalt.length + bytes.length];
+    System.arraycopy(passwordSalt, 0, salted, 0, passwordSalt.length);
+    System.arraycopy(bytes, 0, salted, passwordSalt.length, bytes.length);
+    try {
+      return Hash.sha256(salted);
+    } finally {
+      Arrays.fill(salted, (byte) 0);
+      Arrays.fill(bytes, (byte) 0);
+    }
+  }
+
+  /**
+   * Append one record.
+   *
+   * @return true if its address was not stored yet
+   */
+  public boolean put(KeyRecord record) throws IOException {
+    return putAll(Collections.singletonList(record)) == 1;
+  }
+
+  /**
+   * Append many records with a single write and sync.
+   *
+   * @return the number of addresses that were not stored yet
+   */
+  public int putAll(Collection<KeyRecord> records) throws IOException {
+    int size = 0;
+    for (KeyRecord record : records) {
+      size += RECORD_HEADER_SIZE + record.getEncodedLength();
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    CRC32 crc = new CRC32();
+    for (KeyRecord record : records) {
+      frame(record, buffer, crc);
+    }
+    buffer.flip();
+
+    rwLock.writeLock().lock();
+    try {
+      long position = dataLength;
+      writeFully(data, buffer, position);
+      data.force(false);
+      int added = 0;
+      for (KeyRecord record : records) {
+        if (index.put(record.getAddress(), position)) {
+          added++;
+        }
+        position += RECORD_HEADER_SIZE + record.getEncodedLength();
+      }
+      dataLength = position;
+      index.setCoveredLength(position);
+      return added;
+    } finally {
+      rwLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Re-encrypt every key that {@code oldPassword} opens under {@code newPassword}, on all cores.
+   * Keys it does not open are kept as they are; if it opens none, nothing is written.
+   *
+   * <p>The live records are streamed in log order through {@link KeyCipher.Rekey} in chunks and
+   * written, superseded records left out, to a new data file in one sequential buffered pass.
+   * That file is synced and renamed over the old one, so a crash leaves either the old store or
+   * the new one, never a mix; the index is rebuilt after the swap.
+   *
+   * @return the number of keys re-encrypted
+   */
+  public int rekey(String oldPassword, String newPassword, KdfParams params) throws IOException {
+    Path dataPath = dir.resolve(DATA_FILE);
+    Path temp = AtomicFile.tempFor(dataPath);
+    rwLock.writeLock().lock();
+    try {
+      FileChannel out = AtomicFile.createTemp(temp);
+      FileLock outLock = null;
+      boolean swapped = false;
+      try {
+        outLock = out.tryLock();
+        if (outLock == null) {
+          throw new IOException(temp + " is used by another process");
+        }
+        List<byte[]> addresses = new ArrayList<>(index.size());
+        List<Long> positions = new ArrayList<>(index.size());
+        int rekeyed;
+        long length;
+        try (KeyCipher.Rekey rekey = new KeyCipher.Rekey(oldPassword, newPassword, params)) {
+          ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+          buffer.putInt(MAGIC).putInt(VERSION);
+          CRC32 crc = new CRC32();
+          length = FILE_HEADER_SIZE;
+          rekeyed = 0;
+          List<KeyRecord> chunk = new ArrayList<>(REKEY_CHUNK);
+          long position = FILE_HEADER_SIZE;
+          while (position < dataLength || !chunk.isEmpty()) {
+            if (position < dataLength && chunk.size() < REKEY_CHUNK) {
+              KeyRecord record = readRecord(data, position, dataLength);
+              if (record == null) {
+                throw new IOException("Damaged keystore record at " + position + " in " + dir);
+              }
+              if (index.get(record.getAddress()) == position) {
+                chunk.add(record);
+              }
+              position += RECORD_HEADER_SIZE + record.getEncodedLength();
+              continue;
+            }
+            List<KeyRecord> results = rekey.applyAll(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+              KeyRecord record = results.get(i);
+              if (record == null) {
+                record = chunk.get(i);
+              } else {
+                rekeyed++;
+              }
+              if (buffer.remaining() < RECORD_HEADER_SIZE + record.getEncodedLength()) {
+                buffer.flip();
+                writeFully(out, buffer, length - buffer.remaining());
+                buffer.clear();
+              }
+              addresses.add(record.getAddress());
+              positions.add(length);
+              frame(record, buffer, crc);
+              length += RECORD_HEADER_SIZE + record.getEncodedLength();
+            }
+            chunk.clear();
+          }
+          buffer.flip();
+          writeFully(out, buffer, length - buffer.remaining());
+        }
+        if (rekeyed == 0) {
+          return 0;
+        }
+        out.force(true);
+
+        // Until the new index is written, a crash must not leave the old one pointing into the
+        // new data file, so it is emptied first and rebuilt from the data on the next open.
+        index.setCoveredLength(0);
+        index.force();
+        AtomicFile.commit(temp, dataPath);
+        swapped = true;
+        if (lock.isValid()) {
+          lock.release();
+        }
+        data.close();
+        data = out;
+        lock = outLock;
+        dataLength = length;
+
+        int capacity = KeystoreIndex.MIN_CAPACITY;
+        while (capacity < (addresses.size() + 1) * 2L) {
+          capacity <<= 1;
+        }
+        KeystoreIndex rebuilt = KeystoreIndex.create(dir.resolve(INDEX_FILE), capacity,
+            FILE_HEADER_SIZE);
+        for (int i = 0; i < addresses.size(); i++) {
+          rebuilt.put(addresses.get(i), positions.get(i));
+        }
+        rebuilt.setCoveredLength(length);
+        rebuilt.force();
+        index = rebuilt;
+        logger.info("Rekeyed " + rekeyed + " of " + addresses.size() + " keys in " + dir);
+        return rekeyed;
+      } finally {
+        if (!swapped) {
+          out.close();
+          Files.deleteIfExists(temp);
+        }
+      }
+    } finally {
+      rwLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Import the key of a single-key {@code Wallet} file as it is, without its password. A key
+   * that is already stored is left alone, so its record is never replaced by the weaker legacy
+   * encryption and opening the keystore again appends nothing.
+   *
+   * @return the address of the key, or null if the file is not a wallet file or its key is
+   * already stored
+   */
+  public byte[] importLegacyWallet(Path walletFile) throws IOException {
+    String wallet = new String(Files.readAllBytes(walletFile), StandardCharsets.US_ASCII);
+    if (wallet.length() != LEGACY_LENGTH) {
+      logger.warn("Warning: " + walletFile + " is not a wallet file, length " + wallet.length()
+          + " !!");
+      return null;
+    }
+    byte[] passwordCheck;
+    byte[] publicKey;
+    byte[] encryptedPrivateKey;
+    byte[] address;
+    try {
+      passwordCheck = Hex.decode(wallet.substring(0, LEGACY_PUBKEY_AT));
+      publicKey = Hex.decode(wallet.substring(LEGACY_PUBKEY_AT, LEGACY_PRIKEY_AT));
+      encryptedPrivateKey = Hex.decode(wallet.substring(LEGACY_PRIKEY_AT));
+      address = ECKey.computeAddress(publicKey);
+    } catch (RuntimeException e) {
+      logger.warn("Warning: " + walletFile + " is not a wallet file, " + e.getMessage() + " !!");
+      return null;
+    }
+    if (contains(address)) {
+      return null;
+    }
+    put(new KeyRecord(KeyRecord.SCHEME_LEGACY, address, passwordCheck, publicKey,
+        encryptedPrivateKey));
+    return address;
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (cipherLock) {
+      if (cipher != null) {
+        cipher.destroy();
+        cipher = null;
+      }
+    }
+    rwLock.writeLock().lock();
+    try {
+      index.force();
+      if (lock.isValid()) {
+        lock.release();
+      }
+      data.close();
+    } finally {
+      rwLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * The record at {@code position}, or null if it is cut short or its checksum does not match.
+   */
+  private static KeyRecord readRecord(FileChannel data, long position, long limit)
+      throws IOException {
+    if (limit - position < RECORD_HEADER_SIZE) {
+      return null;
+    }
+    ByteBuffer header = readFully(data, position, RECORD_HEADER_SIZE);
+    int length = header.getInt();
+    int checksum = header.getInt();
+    if (length <= 0 || length > MAX_RECORD_SIZE
+        || position + RECORD_HEADER_SIZE + length > limit) {
+      return null;
+    }
+    ByteBuffer body = readFully(data, position + RECORD_HEADER_SIZE, length);
+    CRC32 crc = new CRC32();
+    crc.update(body.array(), 0, length);
+    if ((int) crc.getValue() != checksum) {
+      return null;
+    }
+    try {
+      KeyRecord record = KeyRecord.decode(body);
+      return record.getEncodedLength() == length ? record : null;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Append {@code record} to {@code buffer} with its length and CRC32.
+   */
+  private static void frame(KeyRecord record, ByteBuffer buffer, CRC32 crc) {
+    int start = buffer.position();
+    buffer.putInt(record.getEncodedLength()).putInt(0);
+    record.encode(buffer);
+    crc.reset();
+    crc.update(buffer.array(), start + RECORD_HEADER_SIZE, record.getEncodedLength());
+    buffer.putInt(start + 4, (int) crc.getValue());
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+}
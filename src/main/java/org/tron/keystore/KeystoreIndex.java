@@ -0,0 +1,269 @@
+package org.tron.keystore;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.tron.common.utils.AtomicFile;
+
+/**
+ * Memory-mapped open addressing hash table from address to the position of its record in the
+ * keystore data file.
+ *
+ * <p>Layout: a 32 byte header (magic, version, capacity, count, length of the data file already
+ * indexed) followed by {@code capacity} slots of 32 bytes (record position + 1, 0 for an empty
+ * slot, then the address length and the address). The table is kept at most half full and
+ * doubled by writing a new file and renaming it over the old one.
+ *
+ * <p>The index is only a cache of the data file: when it is missing, damaged or behind, {@link
+ * Keystore} rebuilds or replays it. Not thread safe, the keystore guards it.
+ */
+final class KeystoreIndex {
+
+  static final int MAX_ADDRESS_LENGTH = 23;
+
+  private static final int MAGIC = 0x54524b49; // "TRKI"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 32;
+  private static final int CAPACITY_AT = 8;
+  private static final int COUNT_AT = 12;
+  private static final int COVERED_AT = 16;
+  private static final int SLOT_SIZE = 32;
+  private static final int MAX_CAPACITY = 1 << 25; // one mapping of at most 1 GiB
+  static final int MIN_CAPACITY = 1024;
+
+  private final Path path;
+  private MappedByteBuffer map;
+  private int capacity;
+  private int count;
+
+  private KeystoreIndex(Path path, MappedByteBuffer map) {
+    this.path = path;
+    this.map = map;
+    this.capacity = map.getInt(CAPACITY_AT);
+    this.count = map.getInt(COUNT_AT);
+  }
+
+  /**
+   * Map an existing index, or return null if there is none or it is not a valid index.
+   */
+  static KeystoreIndex open(Path path) throws IOException {
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        return null;
+      }
+      MappedByteBuffer map = channel.map(MapMode.READ_WRITE, 0, size);
+      int capacity = map.getInt(CAPACITY_AT);
+      if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION
+          || capacity < MIN_CAPACITY || capacity > MAX_CAPACITY
+          || Integer.bitCount(capacity) != 1
+          || size != HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+        return null;
+      }
+      return new KeystoreIndex(path, map);
+    }
+  }
+
+  /**
+   * Write an empty index of {@code capacity} slots over whatever is at {@code path}.
+   */
+  static KeystoreIndex create(Path path, int capacity, long coveredLength) throws IOException {
+    MappedByteBuffer map = createFile(path, capacity, coveredLength, null, 0);
+    return new KeystoreIndex(path, map);
+  }
+
+  /**
+   * Write a new index file with the slots of {@code source}, if any, rehashed into it. The slots,
+   * count and covered length are all in place and synced before the file is renamed over {@code
+   * path}, so a crash leaves either the old index or a complete new one.
+   */
+  private static MappedByteBuffer createFile(Path path, int capacity, long coveredLength,
+      MappedByteBuffer source, int sourceCapacity) throws IOException {
+    Path temp = AtomicFile.tempFor(path);
+    MappedByteBuffer map;
+    try (FileChannel channel = AtomicFile.createTemp(temp)) {
+      map = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+    }
+    map.putInt(0, MAGIC);
+    map.putInt(4, VERSION);
+    map.putInt(CAPACITY_AT, capacity);
+    int count = source == null ? 0 : copySlots(source, sourceCapacity, map, capacity);
+    map.putInt(COUNT_AT, count);
+    map.putLong(COVERED_AT, coveredLength);
+    map.force();
+    AtomicFile.commit(temp, path);
+    return map;
+  }
+
+  /**
+   * Rehash every used slot of {@code from} into the empty table {@code to}.
+   *
+   * @return the number of slots copied
+   */
+  private static int copySlots(MappedByteBuffer from, int fromCapacity, MappedByteBuffer to,
+      int toCapacity) {
+    int mask = toCapacity - 1;
+    int copied = 0;
+    for (int slot = 0; slot < fromCapacity; slot++) {
+      int src = HEADER_SIZE + slot * SLOT_SIZE;
+      if (from.getLong(src) == 0) {
+        continue;
+      }
+      int dst;
+      for (int s = hash(from, src) & mask; ; s = (s + 1) & mask) {
+        dst = HEADER_SIZE + s * SLOT_SIZE;
+        if (to.getLong(dst) == 0) {
+          break;
+        }
+      }
+      for (int i = 0; i < SLOT_SIZE; i++) {
+        to.put(dst + i, from.get(src + i));
+      }
+      copied++;
+    }
+    return copied;
+  }
+
+  int size() {
+    return count;
+  }
+
+  /**
+   * Length of the data file whose records are all in the index.
+   */
+  long getCoveredLength() {
+    return map.getLong(COVERED_AT);
+  }
+
+  /**
+   * Record that the data file is indexed up to {@code length}. The slots are forced first: the
+   * pages of a mapping reach the disk in any order, and a covered length saved ahead of its
+   * slots would hide their records after a crash, where slots ahead of it are only replayed.
+   */
+  void setCoveredLength(long length) {
+    map.force();
+    map.putLong(COVERED_AT, length);
+  }
+
+  /**
+   * Position of the record for {@code address}, or -1.
+   */
+  long get(byte[] address) {
+    int mask = capacity - 1;
+    for (int slot = hash(address) & mask; ; slot = (slot + 1) & mask) {
+      int at = HEADER_SIZE + slot * SLOT_SIZE;
+      long position = map.getLong(at) - 1;
+      if (position < 0) {
+        return -1;
+      }
+      if (matches(at, address)) {
+        return position;
+      }
+    }
+  }
+
+  /**
+   * Point {@code address} at the record at {@code position}.
+   *
+   * @return true if the address was not in the index yet
+   */
+  boolean put(byte[] address, long position) throws IOException {
+    if (address.length > MAX_ADDRESS_LENGTH) {
+      throw new IllegalArgumentException("Address length " + address.length);
+    }
+    if ((count + 1) * 2L > capacity) {
+      grow();
+    }
+    int mask = capacity - 1;
+    for (int slot = hash(address) & mask; ; slot = (slot + 1) & mask) {
+      int at = HEADER_SIZE + slot * SLOT_SIZE;
+      if (map.getLong(at) == 0) {
+        map.put(at + 8, (byte) address.length);
+        for (int i = 0; i < address.length; i++) {
+          map.put(at + 9 + i, address[i]);
+        }
+        map.putLong(at, position + 1);
+        map.putInt(COUNT_AT, ++count);
+        return true;
+      }
+      if (matches(at, address)) {
+        map.putLong(at, position + 1);
+        return false;
+      }
+    }
+  }
+
+  List<byte[]> addresses() {
+    List<byte[]> addresses = new ArrayList<>(count);
+    for (int slot = 0; slot < capacity; slot++) {
+      int at = HEADER_SIZE + slot * SLOT_SIZE;
+      if (map.getLong(at) != 0) {
+        byte[] address = new byte[map.get(at + 8)];
+        for (int i = 0; i < address.length; i++) {
+          address[i] = map.get(at + 9 + i);
+        }
+        addresses.add(address);
+      }
+    }
+    return addresses;
+  }
+
+  void force() {
+    map.force();
+  }
+
+  private void grow() throws IOException {
+    if (capacity >= MAX_CAPACITY) {
+      throw new IOException("Keystore index is full at " + count + " keys");
+    }
+    int newCapacity = capacity * 2;
+    map = createFile(path, newCapacity, map.getLong(COVERED_AT), map, capacity);
+    capacity = newCapacity;
+  }
+
+  private boolean matches(int at, byte[] address) {
+    if (map.get(at + 8) != address.length) {
+      return false;
+    }
+    for (int i = 0; i < address.length; i++) {
+      if (map.get(at + 9 + i) != address[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hash(byte[] address) {
+    long h = 0;
+    for (byte b : address) {
+      h = h * 31 + b;
+    }
+    return mix(h);
+  }
+
+  private static int hash(MappedByteBuffer map, int at) {
+    long h = 0;
+    int length = map.get(at + 8);
+    for (int i = 0; i < length; i++) {
+      h = h * 31 + map.get(at + 9 + i);
+    }
+    return mix(h);
+  }
+
+  private static int mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+}
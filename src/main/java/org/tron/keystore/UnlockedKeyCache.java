@@ -0,0 +1,240 @@
+package org.tron.keystore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.spongycastle.math.ec.ECPoint;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.crypto.Hash;
+import org.tron.common.utils.Utils;
+
+/**
+ * Private keys decrypted earlier in the session, by address, so a run of signed operations does
+ * not read and decrypt the key again for each one.
+ *
+ * <p>A key stays unlocked until it has not been used for {@code idleTimeoutMillis}, until more
+ * than {@code maxKeys} keys are unlocked and it is the least recently used, or until it is locked
+ * explicitly. The cache keeps the private key as bytes and overwrites them with zeros when the
+ * key leaves it; the {@link ECKey} handed out for one operation is built from them, and is left
+ * to the garbage collector.
+ *
+ * <p>Unlocking a key that is already unlocked only checks the password against a salted hash
+ * taken at the first unlock, however expensive the {@link KeySource} is.
+ */
+public class UnlockedKeyCache implements Closeable {
+
+  private static final ScheduledExecutorService sweeper = Executors
+      .newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "unlocked-key-sweeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /**
+   * Where keys that are not unlocked yet come from, typically {@link Keystore#unlock}.
+   */
+  public interface KeySource {
+
+    /**
+     * The key with its private part, or null if there is none or the password is wrong.
+     */
+    ECKey unlock(byte[] address, String password) throws IOException;
+  }
+
+  private final KeySource source;
+  private final long idleTimeoutMillis;
+  private final int maxKeys;
+  private final LinkedHashMap<ByteBuffer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final ScheduledFuture<?> sweep;
+
+  public UnlockedKeyCache(KeySource source, long idleTimeoutMillis, int maxKeys) {
+    if (idleTimeoutMillis <= 0 || maxKeys <= 0) {
+      throw new IllegalArgumentException("idleTimeoutMillis and maxKeys must be positive");
+    }
+    this.source = source;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.maxKeys = maxKeys;
+    long period = Math.max(idleTimeoutMillis / 4, 100);
+    this.sweep = sweeper.scheduleWithFixedDelay(this::lockIdle, period, period,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * The key for {@code address}, from the cache if it is unlocked and {@code password} matches,
+   * otherwise from the key source and then cached.
+   *
+   * @return null if the key source has no such key or the password is wrong
+   */
+  public ECKey unlock(byte[] address, String password) throws IOException {
+    ByteBuffer id = ByteBuffer.wrap(address.clone());
+    synchronized (this) {
+      Entry entry = live(id);
+      if (entry != null) {
+        return entry.matches(password) ? entry.toKey() : null;
+      }
+    }
+    ECKey key = source.unlock(address, password);
+    if (key == null) {
+      return null;
+    }
+    Entry entry = new Entry(key, password);
+    synchronized (this) {
+      Entry previous = entries.put(id, entry);
+      if (previous != null) {
+        previous.destroy();
+      }
+      evictOverflow();
+    }
+    return key;
+  }
+
+  /**
+   * The unlocked key for {@code address}, or null if it is locked.
+   */
+  public synchronized ECKey get(byte[] address) {
+    Entry entry = live(ByteBuffer.wrap(address));
+    return entry == null ? null : entry.toKey();
+  }
+
+  public synchronized boolean isUnlocked(byte[] address) {
+    return live(ByteBuffer.wrap(address)) != null;
+  }
+
+  /**
+   * Forget the key for {@code address}.
+   *
+   * @return true if it was unlocked
+   */
+  public synchronized boolean lock(byte[] address) {
+    Entry entry = entries.remove(ByteBuffer.wrap(address));
+    if (entry == null) {
+      return false;
+    }
+    entry.destroy();
+    return true;
+  }
+
+  public synchronized void lockAll() {
+    for (Entry entry : entries.values()) {
+      entry.destroy();
+    }
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * The private key bytes held for {@code address} themselves, not a copy, or null if there are
+   * none. For tests that check the bytes are zeroed when the key leaves the cache.
+   */
+  synchronized byte[] heldPrivateKey(byte[] address) {
+    // Iterated rather than looked up, which would count as a use in the LRU order.
+    ByteBuffer id = ByteBuffer.wrap(address);
+    for (Map.Entry<ByteBuffer, Entry> entry : entries.entrySet()) {
+      if (entry.getKey().equals(id)) {
+        return entry.getValue().privateKey;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void close() {
+    sweep.cancel(false);
+    lockAll();
+  }
+
+  private Entry live(ByteBuffer id) {
+    Entry entry = entries.get(id);
+    if (entry == null) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    if (now - entry.lastUsed >= idleTimeoutMillis) {
+      entries.remove(id);
+      entry.destroy();
+      return null;
+    }
+    entry.lastUsed = now;
+    return entry;
+  }
+
+  private void evictOverflow() {
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (entries.size() > maxKeys && eldest.hasNext()) {
+      eldest.next().destroy();
+      eldest.remove();
+    }
+  }
+
+  private synchronized void lockIdle() {
+    long now = System.currentTimeMillis();
+    Iterator<Map.Entry<ByteBuffer, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next().getValue();
+      if (now - entry.lastUsed >= idleTimeoutMillis) {
+        entry.destroy();
+        iterator.remove();
+      }
+    }
+  }
+
+  private static class Entry {
+
+    private final byte[] privateKey;
+    private final ECPoint publicKey;
+    private final byte[] salt = new byte[16];
+    private final byte[] passwordHash;
+    private long lastUsed = System.currentTimeMillis();
+
+    Entry(ECKey key, String password) {
+      this.privateKey = key.getPrivKeyBytes();
+      this.publicKey = key.getPubKeyPoint();
+      Utils.getRandom().nextBytes(salt);
+      this.passwordHash = hash(password);
+    }
+
+    boolean matches(String password) {
+      byte[] hash = hash(password);
+      try {
+        return MessageDigest.isEqual(hash, passwordHash);
+      } finally {
+        Arrays.fill(hash, (byte) 0);
+      }
+    }
+
+    ECKey toKey() {
+      return ECKey.fromPrivateAndPrecalculatedPublic(new BigInteger(1, privateKey), publicKey);
+    }
+
+    void destroy() {
+      Arrays.fill(privateKey, (byte) 0);
+      Arrays.fill(passwordHash, (byte) 0);
+    }
+
+    private byte[] hash(String password) {
+      byte[] bytes = password.getBytes();
+      byte[] salted = new byte[salt.length + bytes.length];
+      System.arraycopy(salt, 0, salted, 0, salt.length);
+      System.arraycopy(bytes, 0, salted, salt.length, bytes.length);
+      try {
+        return Hash.sha256(salted);
+      } finally {
+        Arrays.fill(salted, (byte) 0);
+        Arrays.fill(bytes, (byte) 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,261 @@
+package org.tron.standin;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.utils.ByteArray;
+import org.tron.explorer.GrpcClientApplication;
+import org.tron.walletserver.GrpcClient;
+import org.tron.walletserver.WalletClient;
+
+/**
+ * Runs the explorer against a {@link StandInFullNode} and drives it over HTTP with more
+ * concurrent clients than Tomcat has worker threads, e.g.
+ *
+ * <pre>
+ * ExplorerLoadGenerator --clients 800 --server-threads 200 --latency 200 --seconds 20
+ * </pre>
+ *
+ * <p>If handlers blocked their worker thread on the full node, throughput could not exceed
+ * {@code server-threads * 1000 / latency} requests per second; the report prints that ceiling
+ * next to the measured rate and the concurrency the server actually sustained.
+ */
+public class ExplorerLoadGenerator {
+
+  private static final Logger logger = LoggerFactory.getLogger("ExplorerLoadGenerator");
+
+  @Parameter(names = {"--flow"}, description = "transfer, balance or witnesses")
+  private String flow = "transfer";
+
+  @Parameter(names = {"--clients"}, description = "Concurrent HTTP clients")
+  private int clients = 800;
+
+  @Parameter(names = {"--server-threads"}, description = "Tomcat worker threads")
+  private int serverThreads = 200;
+
+  @Parameter(names = {"--seconds"}, description = "Measured run time")
+  private int seconds = 20;
+
+  @Parameter(names = {"--warmup"}, description = "Unmeasured run time before the measurement")
+  private int warmupSeconds = 5;
+
+  @Parameter(names = {"--latency"}, description = "Stand-in latency in ms")
+  private long latencyMillis = 200;
+
+  @Parameter(names = {"--help"}, help = true)
+  private boolean help;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger peakInFlight = new AtomicInteger();
+  private String baseUrl;
+  private String owner;
+  private String to;
+
+  public static void main(String[] args) throws Exception {
+    ExplorerLoadGenerator generator = new ExplorerLoadGenerator();
+    JCommander commander = JCommander.newBuilder().addObject(generator).build();
+    commander.parse(args);
+    if (generator.help) {
+      commander.usage();
+      return;
+    }
+    generator.run();
+    System.exit(0);
+  }
+
+  public void run() throws Exception {
+    // Keep a connection per client alive instead of the JDK default of 5.
+    System.setProperty("http.maxConnections", String.valueOf(clients));
+    StandInWallet wallet = new StandInWallet(new StandInWallet.Options()
+        .setLatencyMillis(latencyMillis)
+        .setResponderThreads(4));
+    wallet.seed(100, 1);
+    owner = ByteArray.toHexString(new ECKey().getAddress());
+    to = ByteArray.toHexString(new ECKey().getAddress());
+    try (StandInFullNode node = new StandInFullNode("explorer-load", -1, wallet)) {
+      GrpcClient client = node.newInProcessClient();
+      GrpcClient previous = WalletClient.setGrpcClient(client);
+      ConfigurableApplicationContext context = SpringApplication.run(
+          GrpcClientApplication.class, "--server.port=0",
+          "--server.tomcat.max-threads=" + serverThreads,
+          "--server.tomcat.max-connections=" + Math.max(10_000, 2 * clients));
+      try {
+        int port = ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer()
+            .getPort();
+        baseUrl = "http://127.0.0.1:" + port;
+        logger.info("Explorer on " + baseUrl + " with " + serverThreads + " worker threads, "
+            + clients + " clients, flow " + flow + ", stand-in latency " + latencyMillis + " ms");
+        if (warmupSeconds > 0) {
+          drive(warmupSeconds);
+        }
+        peakInFlight.set(0);
+        Result result = drive(seconds);
+        logger.info(result.toString());
+        logger.info(String.format("Concurrency in the server %.0f (throughput x mean latency),"
+                + " peak requests outstanding %d, blocking ceiling %.1f requests/s",
+            result.getThroughput() * result.getMeanMillis() / 1000, peakInFlight.get(),
+            serverThreads * 1000.0 / Math.max(latencyMillis, 1)));
+      } finally {
+        context.close();
+        WalletClient.setGrpcClient(previous);
+        client.shutdown();
+      }
+    }
+  }
+
+  private Result drive(int seconds) throws Exception {
+    ExecutorService workers = Executors.newFixedThreadPool(clients);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    List<Future<Worker>> futures = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      Worker worker = new Worker(deadline);
+      futures.add(workers.submit(worker, worker));
+    }
+    Result result = new Result(seconds);
+    for (Future<Worker> future : futures) {
+      result.add(future.get());
+    }
+    workers.shutdown();
+    return result;
+  }
+
+  private boolean request() throws IOException {
+    HttpURLConnection connection;
+    switch (flow) {
+      case "transfer":
+        connection = post("/sendCoinToView",
+            "address=" + owner + "&toAddress=" + to + "&amount=1");
+        break;
+      case "balance":
+        connection = post("/balance", "address=" + owner);
+        break;
+      case "witnesses":
+        connection = (HttpURLConnection) new URL(baseUrl + "/witnessList").openConnection();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown flow " + flow);
+    }
+    int status = connection.getResponseCode();
+    InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+    if (body != null) {
+      byte[] buffer = new byte[4096];
+      while (body.read(buffer) >= 0) {
+        // Drain so the connection can be reused.
+      }
+      body.close();
+    }
+    return status == 200;
+  }
+
+  private HttpURLConnection post(String path, String form) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(form.getBytes(StandardCharsets.UTF_8));
+    }
+    return connection;
+  }
+
+  private class Worker implements Runnable {
+
+    private final long deadline;
+    private long[] latencies = new long[256];
+    private int count = 0;
+    private long errors = 0;
+
+    Worker(long deadline) {
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      long start;
+      while ((start = System.nanoTime()) < deadline) {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        boolean ok;
+        try {
+          ok = request();
+        } catch (IOException | RuntimeException e) {
+          ok = false;
+        } finally {
+          inFlight.decrementAndGet();
+        }
+        if (!ok) {
+          errors++;
+        }
+        if (count == latencies.length) {
+          latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = System.nanoTime() - start;
+      }
+    }
+  }
+
+  private static class Result {
+
+    private final int seconds;
+    private long[] latencies = new long[0];
+    private long errors = 0;
+
+    Result(int seconds) {
+      this.seconds = seconds;
+    }
+
+    void add(Worker worker) {
+      int offset = latencies.length;
+      latencies = Arrays.copyOf(latencies, offset + worker.count);
+      System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+      errors += worker.errors;
+    }
+
+    double getThroughput() {
+      return latencies.length / (double) seconds;
+    }
+
+    double getMeanMillis() {
+      long sum = 0;
+      for (long latency : latencies) {
+        sum += latency;
+      }
+      return latencies.length == 0 ? 0 : sum / 1e6 / latencies.length;
+    }
+
+    private double percentileMillis(double p) {
+      if (latencies.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+      return latencies[Math.max(index, 0)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      Arrays.sort(latencies);
+      return String.format("%d requests, %d errors in %d s: %.1f requests/s, latency ms p50 %.2f"
+              + " p90 %.2f p99 %.2f p99.9 %.2f max %.2f", latencies.length, errors, seconds,
+          getThroughput(), percentileMillis(0.5), percentileMillis(0.9), percentileMillis(0.99),
+          percentileMillis(0.999), percentileMillis(1));
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package org.tron.standin;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.utils.Utils;
+import org.tron.protos.Protocol.Account;
+import org.tron.walletserver.GrpcClient;
+import org.tron.walletserver.WalletClient;
+
+/**
+ * Drives {@link WalletClient} flows from many threads against a {@link StandInFullNode} and
+ * reports throughput and latency, e.g.
+ *
+ * <pre>
+ * LoadGenerator --flow sendcoin --threads 64 --seconds 30 --latency 20 --jitter 10
+ * </pre>
+ */
+public class LoadGenerator {
+
+  private static final Logger logger = LoggerFactory.getLogger("LoadGenerator");
+
+  @Parameter(names = {"--flow"},
+      description = "balance, listaccounts, listwitnesses, sendcoin or mixed")
+  private String flow = "mixed";
+
+  @Parameter(names = {"--threads"}, description = "Concurrent callers")
+  private int threads = 16;
+
+  @Parameter(names = {"--seconds"}, description = "Measured run time")
+  private int seconds = 10;
+
+  @Parameter(names = {"--warmup"}, description = "Unmeasured run time before the measurement")
+  private int warmupSeconds = 3;
+
+  @Parameter(names = {"--transport"}, description = "inprocess or tcp")
+  private String transport = "inprocess";
+
+  @Parameter(names = {"--port"}, description = "Local port of the stand-in node, 0 for any")
+  private int port = 0;
+
+  @Parameter(names = {"--accounts"}, description = "Accounts the stand-in node starts with")
+  private int accounts = 1000;
+
+  @Parameter(names = {"--latency"}, description = "Stand-in latency in ms")
+  private long latencyMillis = 0;
+
+  @Parameter(names = {"--jitter"}, description = "Stand-in latency jitter in ms")
+  private long jitterMillis = 0;
+
+  @Parameter(names = {"--error-rate"}, description = "Fraction of stand-in calls that fail")
+  private double errorRate = 0;
+
+  @Parameter(names = {"--max-rps"}, description = "Stand-in throughput limit, 0 for none")
+  private int maxCallsPerSecond = 0;
+
+  @Parameter(names = {"--no-verify"}, description = "Skip signature checks in the stand-in")
+  private boolean noVerify = false;
+
+  @Parameter(names = {"--help"}, help = true)
+  private boolean help;
+
+  public static void main(String[] args) throws Exception {
+    LoadGenerator generator = new LoadGenerator();
+    JCommander commander = JCommander.newBuilder().addObject(generator).build();
+    commander.parse(args);
+    if (generator.help) {
+      commander.usage();
+      return;
+    }
+    generator.run();
+    System.exit(0);
+  }
+
+  public void run() throws Exception {
+    StandInWallet wallet = new StandInWallet(new StandInWallet.Options()
+        .setLatencyMillis(latencyMillis)
+        .setLatencyJitterMillis(jitterMillis)
+        .setErrorRate(errorRate)
+        .setMaxCallsPerSecond(maxCallsPerSecond)
+        .setVerifySignatures(!noVerify));
+    wallet.seed(accounts, 1);
+    try (StandInFullNode node = new StandInFullNode("load-generator", "tcp".equals(transport)
+        ? port : -1, wallet)) {
+      GrpcClient client = "tcp".equals(transport) ? node.newPortClient()
+          : node.newInProcessClient();
+      GrpcClient previous = WalletClient.setGrpcClient(client);
+      try {
+        WalletClient[] wallets = new WalletClient[threads];
+        for (int i = 0; i < threads; i++) {
+          ECKey key = new ECKey(Utils.getRandom());
+          wallet.putAccount(Account.newBuilder()
+              .setAddress(ByteString.copyFrom(key.getAddress()))
+              .setBalance(Long.MAX_VALUE / 2)
+              .build());
+          wallets[i] = new WalletClient(key);
+        }
+        logger.info("Stand-in " + wallet.getOptions() + ", " + transport + ", flow " + flow
+            + ", " + threads + " threads");
+        if (warmupSeconds > 0) {
+          drive(wallets, warmupSeconds);
+        }
+        long callsBefore = wallet.getCalls();
+        Result result = drive(wallets, seconds);
+        logger.info(result.toString());
+        logger.info("Stand-in saw " + (wallet.getCalls() - callsBefore) + " calls, "
+            + wallet.getRejected() + " rejected, " + wallet.getFailed() + " failed in total");
+      } finally {
+        WalletClient.setGrpcClient(previous);
+        client.shutdown();
+      }
+    }
+  }
+
+  private Result drive(WalletClient[] wallets, int seconds) throws Exception {
+    ExecutorService workers = Executors.newFixedThreadPool(wallets.length);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    List<Future<Worker>> futures = new ArrayList<>();
+    for (int i = 0; i < wallets.length; i++) {
+      Worker worker = new Worker(wallets[i], wallets[(i + 1) % wallets.length].getAddress(),
+          deadline);
+      futures.add(workers.submit(worker, worker));
+    }
+    Result result = new Result(seconds);
+    for (Future<Worker> future : futures) {
+      result.add(future.get());
+    }
+    workers.shutdown();
+    return result;
+  }
+
+  private class Worker implements Runnable {
+
+    private final WalletClient wallet;
+    private final byte[] to;
+    private final long deadline;
+    private long[] latencies = new long[1024];
+    private int count = 0;
+    private long errors = 0;
+
+    Worker(WalletClient wallet, byte[] to, long deadline) {
+      this.wallet = wallet;
+      this.to = to;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      long i = 0;
+      long start;
+      while ((start = System.nanoTime()) < deadline) {
+        boolean ok;
+        try {
+          ok = step(i++);
+        } catch (RuntimeException e) {
+          ok = false;
+        }
+        if (!ok) {
+          errors++;
+        }
+        if (count == latencies.length) {
+          latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = System.nanoTime() - start;
+      }
+    }
+
+    private boolean step(long i) {
+      String current = flow;
+      if ("mixed".equals(current)) {
+        // Mostly reads, as a wallet front end sees them.
+        int pick = (int) (i % 10);
+        current = pick < 6 ? "balance" : pick < 8 ? "sendcoin" : pick < 9 ? "listaccounts"
+            : "listwitnesses";
+      }
+      switch (current) {
+        case "balance":
+          WalletClient.getBalance(wallet.getAddress());
+          return true;
+        case "listaccounts":
+          return WalletClient.listAccounts().isPresent();
+        case "listwitnesses":
+          return WalletClient.listWitnesses().isPresent();
+        case "sendcoin":
+          return wallet.sendCoin(to, 1);
+        default:
+          throw new IllegalArgumentException("Unknown flow " + current);
+      }
+    }
+  }
+
+  private static class Result {
+
+    private final int seconds;
+    private long[] latencies = new long[0];
+    private long errors = 0;
+
+    Result(int seconds) {
+      this.seconds = seconds;
+    }
+
+    void add(Worker worker) {
+      int offset = latencies.length;
+      latencies = Arrays.copyOf(latencies, offset + worker.count);
+      System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+      errors += worker.errors;
+    }
+
+    private double percentileMillis(double p) {
+      if (latencies.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+      return latencies[Math.max(index, 0)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      Arrays.sort(latencies);
+      return String.format("%d calls, %d errors in %d s: %.1f calls/s, latency ms p50 %.2f"
+              + " p90 %.2f p99 %.2f p99.9 %.2f max %.2f", latencies.length, errors, seconds,
+          latencies.length / (double) seconds, percentileMillis(0.5), percentileMillis(0.9),
+          percentileMillis(0.99), percentileMillis(0.999), percentileMillis(1));
+    }
+  }
+}
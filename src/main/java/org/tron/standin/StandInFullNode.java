@@ -0,0 +1,106 @@
+package org.tron.standin;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tron.walletserver.ChannelPool;
+import org.tron.walletserver.GrpcClient;
+import org.tron.walletserver.LoadBalancePolicy;
+import org.tron.walletserver.NodeChannel;
+
+/**
+ * Serves a {@link StandInWallet} on the in-process transport and, optionally, on a local TCP
+ * port, so that a {@link GrpcClient} can talk to it either without any socket or through the same
+ * Netty stack it uses against a real full node.
+ */
+public class StandInFullNode implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger("StandInFullNode");
+
+  private final String name;
+  private final StandInWallet wallet;
+  private final Server inProcessServer;
+  private final Server portServer;
+
+  /**
+   * @param name in-process server name, unique within the JVM
+   * @param port local TCP port to listen on, 0 for any free port, -1 for none
+   */
+  public StandInFullNode(String name, int port, StandInWallet wallet) throws IOException {
+    this.name = name;
+    this.wallet = wallet;
+    this.inProcessServer = InProcessServerBuilder.forName(name)
+        .addService(wallet)
+        .build()
+        .start();
+    if (port >= 0) {
+      this.portServer = ServerBuilder.forPort(port)
+          .addService(wallet)
+          .build()
+          .start();
+      logger.info("Stand-in full node " + name + " listening on port " + portServer.getPort());
+    } else {
+      this.portServer = null;
+    }
+  }
+
+  public StandInWallet getWallet() {
+    return wallet;
+  }
+
+  /**
+   * The TCP port the node listens on, or -1 if it is in-process only.
+   */
+  public int getPort() {
+    return portServer == null ? -1 : portServer.getPort();
+  }
+
+  public ManagedChannel newInProcessChannel() {
+    return InProcessChannelBuilder.forName(name).build();
+  }
+
+  /**
+   * A client connected over the in-process transport.
+   */
+  public GrpcClient newInProcessClient() {
+    NodeChannel node = new NodeChannel("in-process:" + name, newInProcessChannel(), 3, 10_000L);
+    return new GrpcClient(new ChannelPool(Collections.singletonList(node),
+        LoadBalancePolicy.ROUND_ROBIN));
+  }
+
+  /**
+   * A client connected to the local port, through the same transport as a real full node.
+   */
+  public GrpcClient newPortClient() {
+    if (portServer == null) {
+      throw new IllegalStateException("Stand-in full node " + name + " has no port");
+    }
+    return new GrpcClient("127.0.0.1", portServer.getPort());
+  }
+
+  /**
+   * Stop both servers and the wallet. If interrupted while waiting for the servers, stops waiting
+   * and leaves the interrupt flag set for the caller.
+   */
+  @Override
+  public void close() {
+    inProcessServer.shutdown();
+    try {
+      if (portServer != null) {
+        portServer.shutdown();
+        portServer.awaitTermination(5, TimeUnit.SECONDS);
+      }
+      inProcessServer.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    wallet.shutdown();
+  }
+}
@@ -0,0 +1,426 @@
+package org.tron.standin;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tron.api.GrpcAPI;
+import org.tron.api.GrpcAPI.AccountList;
+import org.tron.api.GrpcAPI.EmptyMessage;
+import org.tron.api.GrpcAPI.NodeList;
+import org.tron.api.GrpcAPI.WitnessList;
+import org.tron.api.WalletGrpc;
+import org.tron.common.utils.TransactionUtils;
+import org.tron.protos.Contract;
+import org.tron.protos.Protocol.Account;
+import org.tron.protos.Protocol.Transaction;
+import org.tron.protos.Protocol.Witness;
+
+/**
+ * In-memory implementation of the full node Wallet service, for running the wallet tier without
+ * a network.
+ *
+ * <p>Accounts live in a map. Create* calls wrap the contract into an unsigned transaction, and
+ * BroadcastTransaction checks the signatures and applies transfers to the balances. Every call
+ * goes through the same fault model: it is rejected with RESOURCE_EXHAUSTED when over the
+ * throughput limit, fails with UNAVAILABLE at the configured error rate, and otherwise answers
+ * after the configured latency without holding a server thread while it waits.
+ */
+public class StandInWallet extends WalletGrpc.WalletImplBase {
+
+  private static final Logger logger = LoggerFactory.getLogger("StandInWallet");
+  private static final long TRANSACTION_LIFETIME_MILLIS = 60_000L;
+
+  private final Options options;
+  private final ConcurrentMap<ByteString, Account> accounts = new ConcurrentHashMap<>();
+  // Held while the transfers of one transaction are checked and applied.
+  private final Object balanceLock = new Object();
+  private final List<Witness> witnesses = new ArrayList<>();
+  private final ScheduledExecutorService responder;
+  private final RateLimiter limiter;
+
+  private final AtomicLong calls = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong broadcasts = new AtomicLong();
+
+  public StandInWallet(Options options) {
+    this.options = options;
+    this.limiter = options.maxCallsPerSecond > 0 ? new RateLimiter(options.maxCallsPerSecond)
+        : null;
+    AtomicInteger threadCount = new AtomicInteger();
+    this.responder = Executors.newScheduledThreadPool(options.responderThreads, r -> {
+      Thread thread = new Thread(r, "standin-responder-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public Options getOptions() {
+    return options;
+  }
+
+  public void putAccount(Account account) {
+    synchronized (balanceLock) {
+      accounts.put(account.getAddress(), account);
+    }
+  }
+
+  public Account getAccount(byte[] address) {
+    return accounts.get(ByteString.copyFrom(address));
+  }
+
+  public synchronized void addWitness(Witness witness) {
+    witnesses.add(witness);
+  }
+
+  public long getCalls() {
+    return calls.get();
+  }
+
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  public long getFailed() {
+    return failed.get();
+  }
+
+  public long getBroadcasts() {
+    return broadcasts.get();
+  }
+
+  public void shutdown() {
+    responder.shutdownNow();
+  }
+
+  @Override
+  public void getBalance(Account request, StreamObserver<Account> responseObserver) {
+    respond(responseObserver, () -> {
+      Account account = accounts.get(request.getAddress());
+      return account != null ? account
+          : Account.newBuilder().setAddress(request.getAddress()).build();
+    });
+  }
+
+  @Override
+  public void createTransaction(Contract.TransferContract request,
+      StreamObserver<Transaction> responseObserver) {
+    respond(responseObserver,
+        () -> wrap(Transaction.Contract.ContractType.TransferContract, request));
+  }
+
+  @Override
+  public void broadcastTransaction(Transaction request,
+      StreamObserver<GrpcAPI.Return> responseObserver) {
+    respond(responseObserver, () -> GrpcAPI.Return.newBuilder().setResult(apply(request))
+        .build());
+  }
+
+  @Override
+  public void listAccounts(EmptyMessage request, StreamObserver<AccountList> responseObserver) {
+    respond(responseObserver, () -> AccountList.newBuilder().addAllAccounts(accounts.values())
+        .build());
+  }
+
+  @Override
+  public void createAccount(Contract.AccountCreateContract request,
+      StreamObserver<Transaction> responseObserver) {
+    respond(responseObserver,
+        () -> wrap(Transaction.Contract.ContractType.AccountCreateContract, request));
+  }
+
+  @Override
+  public void voteWitnessAccount(Contract.VoteWitnessContract request,
+      StreamObserver<Transaction> responseObserver) {
+    respond(responseObserver,
+        () -> wrap(Transaction.Contract.ContractType.VoteWitnessContract, request));
+  }
+
+  @Override
+  public void createAssetIssue(Contract.AssetIssueContract request,
+      StreamObserver<Transaction> responseObserver) {
+    respond(responseObserver,
+        () -> wrap(Transaction.Contract.ContractType.AssetIssueContract, request));
+  }
+
+  @Override
+  public void listWitnesses(EmptyMessage request, StreamObserver<WitnessList> responseObserver) {
+    respond(responseObserver, () -> {
+      synchronized (this) {
+        return WitnessList.newBuilder().addAllWitnesses(witnesses).build();
+      }
+    });
+  }
+
+  @Override
+  public void updateWitness(Contract.WitnessUpdateContract request,
+      StreamObserver<Transaction> responseObserver) {
+    respond(responseObserver,
+        () -> wrap(Transaction.Contract.ContractType.WitnessUpdateContract, request));
+  }
+
+  @Override
+  public void createWitness(Contract.WitnessCreateContract request,
+      StreamObserver<Transaction> responseObserver) {
+    respond(responseObserver,
+        () -> wrap(Transaction.Contract.ContractType.WitnessCreateContract, request));
+  }
+
+  @Override
+  public void listNodes(EmptyMessage request, StreamObserver<NodeList> responseObserver) {
+    respond(responseObserver, () -> NodeList.getDefaultInstance());
+  }
+
+  private static Transaction wrap(Transaction.Contract.ContractType type, Message contract) {
+    Transaction.raw.Builder raw = Transaction.raw.newBuilder()
+        .setType(Transaction.TransactionType.ContractType)
+        .setExpiration(System.currentTimeMillis() + TRANSACTION_LIFETIME_MILLIS)
+        .addContract(Transaction.Contract.newBuilder()
+            .setType(type)
+            .setParameter(Any.pack(contract)));
+    return Transaction.newBuilder().setRawData(raw).build();
+  }
+
+  private boolean apply(Transaction transaction) {
+    if (transaction.getRawData().getContractCount() == 0
+        || transaction.getSignatureCount() != transaction.getRawData().getContractCount()) {
+      return false;
+    }
+    if (options.verifySignatures && !TransactionUtils.validTransaction(transaction)) {
+      return false;
+    }
+    List<Contract.TransferContract> transfers = new ArrayList<>();
+    for (Transaction.Contract contract : transaction.getRawData().getContractList()) {
+      if (contract.getType() != Transaction.Contract.ContractType.TransferContract) {
+        continue;
+      }
+      Contract.TransferContract transfer;
+      try {
+        transfer = contract.getParameter().unpack(Contract.TransferContract.class);
+      } catch (InvalidProtocolBufferException e) {
+        return false;
+      }
+      if (transfer.getAmount() <= 0) {
+        return false;
+      }
+      transfers.add(transfer);
+    }
+    if (!transferAll(transfers)) {
+      return false;
+    }
+    broadcasts.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Apply every transfer or none of them. The new balances are worked out on the side, each
+   * transfer seeing the ones before it, and written back only once all of them are covered.
+   */
+  private boolean transferAll(List<Contract.TransferContract> transfers) {
+    synchronized (balanceLock) {
+      Map<ByteString, Account> updated = new HashMap<>();
+      for (Contract.TransferContract transfer : transfers) {
+        long amount = transfer.getAmount();
+        Account owner = current(updated, transfer.getOwnerAddress());
+        if (owner == null || owner.getBalance() < amount) {
+          return false;
+        }
+        updated.put(transfer.getOwnerAddress(),
+            owner.toBuilder().setBalance(owner.getBalance() - amount).build());
+        Account receiver = current(updated, transfer.getToAddress());
+        updated.put(transfer.getToAddress(), receiver == null
+            ? Account.newBuilder().setAddress(transfer.getToAddress()).setBalance(amount).build()
+            : receiver.toBuilder().setBalance(receiver.getBalance() + amount).build());
+      }
+      accounts.putAll(updated);
+      return true;
+    }
+  }
+
+  private Account current(Map<ByteString, Account> updated, ByteString address) {
+    Account account = updated.get(address);
+    return account != null ? account : accounts.get(address);
+  }
+
+  private <T> void respond(StreamObserver<T> responseObserver, Supplier<T> response) {
+    calls.incrementAndGet();
+    if (limiter != null && !limiter.tryAcquire()) {
+      rejected.incrementAndGet();
+      responseObserver.onError(Status.RESOURCE_EXHAUSTED
+          .withDescription("Over " + options.maxCallsPerSecond + " calls per second")
+          .asRuntimeException());
+      return;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (options.errorRate > 0 && random.nextDouble() < options.errorRate) {
+      failed.incrementAndGet();
+      responseObserver.onError(Status.UNAVAILABLE.withDescription("Injected failure")
+          .asRuntimeException());
+      return;
+    }
+    long delay = options.latencyMillis;
+    if (options.latencyJitterMillis > 0) {
+      delay += random.nextLong(options.latencyJitterMillis + 1);
+    }
+    Runnable answer = () -> {
+      try {
+        responseObserver.onNext(response.get());
+        responseObserver.onCompleted();
+      } catch (RuntimeException e) {
+        logger.warn("Warning: stand-in call failed, " + e.getMessage() + " !!");
+        responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage())
+            .asRuntimeException());
+      }
+    };
+    if (delay <= 0) {
+      answer.run();
+    } else {
+      responder.schedule(answer, delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Fill the wallet with {@code count} accounts and a few witnesses, derived from {@code seed} so
+   * that two runs see the same data.
+   */
+  public void seed(int count, long seed) {
+    Random random = new Random(seed);
+    for (int i = 0; i < count; i++) {
+      byte[] address = new byte[21];
+      random.nextBytes(address);
+      address[0] = (byte) 0xa0;
+      putAccount(Account.newBuilder()
+          .setAccountName(ByteString.copyFromUtf8("standin-" + i))
+          .setAddress(ByteString.copyFrom(address))
+          .setBalance(1_000_000L + random.nextInt(1_000_000))
+          .build());
+    }
+    for (int i = 0; i < Math.min(count, 27); i++) {
+      byte[] address = new byte[21];
+      random.nextBytes(address);
+      address[0] = (byte) 0xa0;
+      addWitness(Witness.newBuilder()
+          .setAddress(ByteString.copyFrom(address))
+          .setVoteCount(random.nextInt(1_000_000))
+          .setUrl("http://standin-witness-" + i)
+          .build());
+    }
+  }
+
+  /**
+   * Fault and load model of a {@link StandInWallet}.
+   */
+  public static class Options {
+
+    private long latencyMillis = 0;
+    private long latencyJitterMillis = 0;
+    private double errorRate = 0;
+    private int maxCallsPerSecond = 0;
+    private boolean verifySignatures = true;
+    private int responderThreads = 4;
+
+    /**
+     * Fixed delay before every answer.
+     */
+    public Options setLatencyMillis(long latencyMillis) {
+      this.latencyMillis = latencyMillis;
+      return this;
+    }
+
+    /**
+     * Extra delay drawn uniformly from [0, jitter] for every answer.
+     */
+    public Options setLatencyJitterMillis(long latencyJitterMillis) {
+      this.latencyJitterMillis = latencyJitterMillis;
+      return this;
+    }
+
+    /**
+     * Fraction of calls, between 0 and 1, that fail with UNAVAILABLE.
+     */
+    public Options setErrorRate(double errorRate) {
+      if (errorRate < 0 || errorRate > 1) {
+        throw new IllegalArgumentException("errorRate must be between 0 and 1");
+      }
+      this.errorRate = errorRate;
+      return this;
+    }
+
+    /**
+     * Calls accepted per second across all methods, 0 for no limit. Calls over the limit fail with
+     * RESOURCE_EXHAUSTED.
+     */
+    public Options setMaxCallsPerSecond(int maxCallsPerSecond) {
+      this.maxCallsPerSecond = maxCallsPerSecond;
+      return this;
+    }
+
+    /**
+     * Whether BroadcastTransaction checks signatures, which costs CPU in the same process as the
+     * client under test.
+     */
+    public Options setVerifySignatures(boolean verifySignatures) {
+      this.verifySignatures = verifySignatures;
+      return this;
+    }
+
+    public Options setResponderThreads(int responderThreads) {
+      this.responderThreads = responderThreads;
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return "latency=" + latencyMillis + "+" + latencyJitterMillis + "ms, errorRate=" + errorRate
+          + ", maxCallsPerSecond=" + maxCallsPerSecond + ", verifySignatures="
+          + verifySignatures;
+    }
+  }
+
+  /**
+   * Token bucket holding up to one second worth of calls.
+   */
+  private static class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private double available;
+    private long last = System.nanoTime();
+
+    RateLimiter(int permitsPerSecond) {
+      this.permitsPerNano = permitsPerSecond / 1e9;
+      this.capacity = permitsPerSecond;
+      this.available = permitsPerSecond;
+    }
+
+    synchronized boolean tryAcquire() {
+      long now = System.nanoTime();
+      available = Math.min(capacity, available + (now - last) * permitsPerNano);
+      last = now;
+      if (available < 1) {
+        return false;
+      }
+      available -= 1;
+      return true;
+    }
+  }
+}
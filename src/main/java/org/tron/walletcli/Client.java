@@ -1,6 +1,10 @@
 package org.tron.walletcli;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 
 import com.google.protobuf.ByteString;
@@ -12,8 +16,10 @@ import org.tron.api.GrpcAPI.WitnessList;
 import org.tron.common.crypto.ECKey;
 import org.tron.common.crypto.SymmEncoder;
 import org.tron.common.utils.ByteArray;
+import org.tron.keystore.KdfParams;
 import org.tron.protos.Contract;
 import org.tron.protos.Protocol;
+import org.tron.walletserver.TransferPipeline;
 import org.tron.walletserver.WalletClient;
 
 public class Client {
@@ -45,6 +51,7 @@ public class Client {
     if (wallet.getEcKey() == null) {
       return false;
     }
+    WalletClient.getUnlockedKeys().lock(wallet.getAddress());
     wallet.store(password);
     return true;
   }
@@ -69,17 +76,22 @@ public class Client {
       return false;
     }
 
-    if (wallet.getEcKey() == null || wallet.getEcKey().getPrivKey() == null) {
-      wallet = WalletClient.GetWalletByStorage(oldPassword);
-      if (wallet == null) {
-        logger
-            .warn("Warning: ChangePassword failed, No wallet !!");
-        return false;
-      }
+    // The keystore holds the only copy of the private keys, so the password changes in this one
+    // step: every key under the old password moves over in one parallel pass and one rename.
+    int rekeyed;
+    try {
+      rekeyed = WalletClient.getKeystore().rekey(oldPassword, newPassword, KdfParams.getDefault());
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Warning: ChangePassword failed, rekey keystore failed, " + e.getMessage()
+          + " !!");
+      return false;
+    }
+    WalletClient.getUnlockedKeys().lockAll();
+    if (rekeyed == 0) {
+      logger.warn("Warning: ChangePassword failed, No wallet !!");
+      return false;
     }
-    byte[] priKeyAsc = wallet.getEcKey().getPrivKeyBytes();
-    String priKey = Hex.toHexString(priKeyAsc, 0, priKeyAsc.length);
-    return importWallet(newPassword, priKey);
+    return true;
   }
 
   public boolean login(String password) {
@@ -87,19 +99,105 @@ public class Client {
       return false;
     }
     if (wallet == null) {
-      wallet = WalletClient.GetWalletByStorage(password);
+      wallet = WalletClient.GetWalletByStorageIgnorPrivKey();
       if (wallet == null) {
         logger
             .warn("Warning: Login failed, Please registerWallet or importWallet first !!");
         return false;
       }
     }
-    return wallet.login(password);
+    if (!wallet.login(password)) {
+      return false;
+    }
+    WalletClient.unlockKey(wallet.getAddress(), password);
+    return true;
+  }
+
+  /**
+   * Unlock the private key of the logged in wallet for the session, so the next signed
+   * operations do not read and decrypt it again.
+   */
+  public boolean unlock(String password) {
+    if (wallet == null || !wallet.isLoginState()) {
+      logger.warn("Warning: Unlock failed,  Please login first !!");
+      return false;
+    }
+    if (!WalletClient.passwordValid(password)) {
+      return false;
+    }
+    return signingWallet(password, "Unlock") != null;
+  }
+
+  /**
+   * Forget every private key unlocked in this session.
+   */
+  public void lock() {
+    WalletClient.getUnlockedKeys().lockAll();
+  }
+
+  /**
+   * A wallet that signs with the key of the logged in wallet, taken from the session's unlocked
+   * keys, or null if the password is wrong. Only the first use after an unlock or an idle lock
+   * reads and decrypts the key.
+   */
+  private WalletClient signingWallet(String password, String operation) {
+    WalletClient owner = wallet;
+    if (owner.getEcKey() == null) {
+      owner = WalletClient.GetWalletByStorageIgnorPrivKey();
+      if (owner == null) {
+        logger.warn("Warning: " + operation + " failed, Load wallet failed !!");
+        return null;
+      }
+    }
+    ECKey key = WalletClient.unlockKey(owner.getAddress(), password);
+    if (key == null) {
+      logger.warn("Warning: " + operation + " failed, Wrong password or no key !!");
+      return null;
+    }
+    return new WalletClient(key);
+  }
+
+  /**
+   * Switch to a key held in the keystore and log in with it.
+   */
+  public boolean useKey(String address, String password) {
+    if (!WalletClient.addressValid(address)) {
+      return false;
+    }
+    if (!WalletClient.passwordValid(password)) {
+      return false;
+    }
+    WalletClient keyWallet = WalletClient.GetWalletByKeystore(Hex.decode(address), password);
+    if (keyWallet == null) {
+      logger.warn("Warning: UseKey failed, no such key or wrong password !!");
+      return false;
+    }
+    wallet = keyWallet;
+    return true;
+  }
+
+  /**
+   * Addresses of every key in the keystore, or null if it cannot be read.
+   */
+  public List<String> listKeys() {
+    try {
+      List<String> addresses = new ArrayList<>();
+      for (byte[] address : WalletClient.getKeystore().getAddresses()) {
+        addresses.add(ByteArray.toHexString(address));
+      }
+      return addresses;
+    } catch (IOException e) {
+      logger.warn("Warning: ListKeys failed, " + e.getMessage() + " !!");
+      return null;
+    }
   }
 
   public void logout() {
     if (wallet != null) {
       wallet.logout();
+      if (wallet.getEcKey() != null) {
+        WalletClient.getUnlockedKeys().lock(wallet.getAddress());
+      }
     }
     //Neddn't logout
   }
@@ -191,23 +289,42 @@ public class Client {
       return false;
     }
 
-    if (wallet.getEcKey() == null || wallet.getEcKey().getPrivKey() == null) {
-      wallet = WalletClient.GetWalletByStorage(password);
-      if (wallet == null) {
-        logger.warn("Warning: SendCoin failed, Load wallet failed !!");
-        return false;
-      }
+    WalletClient signer = signingWallet(password, "SendCoin");
+    if (signer == null) {
+      return false;
     }
 
     try {
       byte[] to = Hex.decode(toAddress);
-      return wallet.sendCoin(to, amount);
+      return signer.sendCoin(to, amount);
     } catch (Exception ex) {
       ex.printStackTrace();
       return false;
     }
   }
 
+  /**
+   * Send every transfer from {@code requests} through one pipeline, checking the password and
+   * loading the private key only once for the whole batch.
+   */
+  public TransferPipeline.Report sendCoinBatch(String password,
+      Iterator<TransferPipeline.Request> requests, int maxInFlight,
+      TransferPipeline.Listener listener) throws InterruptedException {
+    if (wallet == null || !wallet.isLoginState()) {
+      logger.warn("Warning: SendCoinBatch failed,  Please login first !!");
+      return null;
+    }
+    if (!WalletClient.passwordValid(password)) {
+      return null;
+    }
+    WalletClient signer = signingWallet(password, "SendCoinBatch");
+    if (signer == null) {
+      return null;
+    }
+
+    return signer.sendCoins(requests, maxInFlight, listener);
+  }
+
   public boolean assetIssue(String password, String name, long totalSupply, int trxNum, int icoNum,
       long startTime, long endTime, int decayRatio, int voteScore, String description, String url) {
     if (wallet == null || !wallet.isLoginState()) {
@@ -218,17 +335,14 @@ public class Client {
       return false;
     }
 
-    if (wallet.getEcKey() == null || wallet.getEcKey().getPrivKey() == null) {
-      wallet = WalletClient.GetWalletByStorage(password);
-      if (wallet == null) {
-        logger.warn("Warning: assetIssue failed, Load wallet failed !!");
-        return false;
-      }
+    WalletClient signer = signingWallet(password, "assetIssue");
+    if (signer == null) {
+      return false;
     }
 
     try {
       Contract.AssetIssueContract.Builder builder = Contract.AssetIssueContract.newBuilder();
-      builder.setOwnerAddress(ByteString.copyFrom(wallet.getAddress()));
+      builder.setOwnerAddress(ByteString.copyFrom(signer.getAddress()));
       builder.setName(ByteString.copyFrom(name.getBytes()));
       if (totalSupply <= 0) {
         return false;
@@ -256,7 +370,7 @@ public class Client {
       builder.setDescription(ByteString.copyFrom(description.getBytes()));
       builder.setUrl(ByteString.copyFrom(url.getBytes()));
 
-      return wallet.createAssetIssue(builder.build());
+      return signer.createAssetIssue(builder.build());
     } catch (Exception ex) {
       ex.printStackTrace();
       return false;
@@ -272,16 +386,13 @@ public class Client {
       return false;
     }
 
-    if (wallet.getEcKey() == null || wallet.getEcKey().getPrivKey() == null) {
-      wallet = WalletClient.GetWalletByStorage(password);
-      if (wallet == null) {
-        logger.warn("Warning: createWitness failed, Load wallet failed !!");
-        return false;
-      }
+    WalletClient signer = signingWallet(password, "createWitness");
+    if (signer == null) {
+      return false;
     }
 
     try {
-      return wallet.createWitness(url.getBytes());
+      return signer.createWitness(url.getBytes());
     } catch (Exception ex) {
       ex.printStackTrace();
       return false;
@@ -297,16 +408,13 @@ public class Client {
       return false;
     }
 
-    if (wallet.getEcKey() == null || wallet.getEcKey().getPrivKey() == null) {
-      wallet = WalletClient.GetWalletByStorage(password);
-      if (wallet == null) {
-        logger.warn("Warning: SendCoin failed, Load wallet failed !!");
-        return false;
-      }
+    WalletClient signer = signingWallet(password, "SendCoin");
+    if (signer == null) {
+      return false;
     }
 
     try {
-      return wallet.voteWitness(witness);
+      return signer.voteWitness(witness);
     } catch (Exception ex) {
       ex.printStackTrace();
       return false;
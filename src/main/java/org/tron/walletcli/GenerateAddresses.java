@@ -0,0 +1,172 @@
+package org.tron.walletcli;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.typesafe.config.Config;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongycastle.util.encoders.Hex;
+import org.tron.common.crypto.BasePointMultiplier;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.utils.Utils;
+import org.tron.core.config.Configuration;
+import org.tron.keystore.AddressExport;
+import org.tron.keystore.AddressPool;
+import org.tron.keystore.KdfParams;
+import org.tron.keystore.Keystore;
+
+/**
+ * Generates a pool of deposit addresses from a seed into a keystore and/or an export file, e.g.
+ *
+ * <pre>
+ * GenerateAddresses --seedFile pool.seed --count 1000000
+ *     --keystore pool --password secret123 --export pool.csv
+ * </pre>
+ *
+ * <p>The same seed, start and count always give the same keys, so a lost pool can be rebuilt.
+ * The seed is given in hex with {@code --seed}, or read from {@code --seedFile}; if that file does
+ * not exist yet, a random seed is written to it, readable by its owner only. The seed is never
+ * logged.
+ */
+public class GenerateAddresses {
+
+  private static final Logger logger = LoggerFactory.getLogger("GenerateAddresses");
+  private static final long PROGRESS_NANOS = 5_000_000_000L;
+
+  @Parameter(names = {"--seed"}, description = "Hex seed of at least 16 bytes")
+  private String seed;
+
+  @Parameter(names = {"--seedFile"},
+      description = "File with the hex seed, created with a random one if it does not exist")
+  private String seedFile;
+
+  @Parameter(names = {"--start"}, description = "Index of the first key")
+  private long start = 0;
+
+  @Parameter(names = {"--count"}, description = "Number of keys", required = true)
+  private long count;
+
+  @Parameter(names = {"--threads"}, description = "Derivation threads")
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(names = {"--batch"}, description = "Keys per batch")
+  private int batchSize = 4096;
+
+  @Parameter(names = {"--keystore"}, description = "Keystore directory for the encrypted keys")
+  private String keystore;
+
+  @Parameter(names = {"--password"}, description = "Password of the keys in the keystore")
+  private String password;
+
+  @Parameter(names = {"--export"}, description = "File for the addresses and public keys")
+  private String export;
+
+  @Parameter(names = {"--format"}, description = "Export format: csv or binary")
+  private String format = "csv";
+
+  @Parameter(names = {"--help"}, help = true)
+  private boolean help;
+
+  public static void main(String[] args) throws Exception {
+    GenerateAddresses generator = new GenerateAddresses();
+    JCommander commander = JCommander.newBuilder().addObject(generator).build();
+    commander.parse(args);
+    if (generator.help) {
+      commander.usage();
+      return;
+    }
+    generator.run();
+    System.exit(0);
+  }
+
+  public void run() throws Exception {
+    if (keystore == null && export == null) {
+      logger.warn("Warning: GenerateAddresses needs --keystore or --export !!");
+      return;
+    }
+    if (keystore != null && (password == null || password.isEmpty())) {
+      logger.warn("Warning: GenerateAddresses needs --password with --keystore !!");
+      return;
+    }
+    if ((seed == null) == (seedFile == null)) {
+      logger.warn("Warning: GenerateAddresses needs either --seed or --seedFile !!");
+      return;
+    }
+    byte[] seedBytes = seed != null ? Hex.decode(seed) : loadOrCreateSeed(Paths.get(seedFile));
+    AddressPool pool = new AddressPool(seedBytes);
+    Config config = Configuration.getByPath("config.conf");
+    if (config.hasPath("crypto.basePointMultiplier")) {
+      ECKey.setBasePointMultiplier(
+          BasePointMultiplier.fromName(config.getString("crypto.basePointMultiplier")));
+    }
+    KdfParams.setDefault(KdfParams.fromConfig(config));
+
+    Keystore store = keystore == null ? null : Keystore.open(Paths.get(keystore));
+    AddressExport exporter = export == null ? null
+        : new AddressExport(Paths.get(export), AddressExport.Format.fromName(format));
+    try {
+      long begin = System.nanoTime();
+      long[] written = {0};
+      long[] lastProgress = {begin};
+      AddressPool.Report report = pool.generate(start, count, threads, batchSize,
+          store == null ? null : password, batch -> {
+            if (store != null) {
+              store.putAll(batch.getRecords());
+            }
+            if (exporter != null) {
+              exporter.accept(batch);
+            }
+            written[0] += batch.size();
+            long now = System.nanoTime();
+            if (now - lastProgress[0] >= PROGRESS_NANOS) {
+              lastProgress[0] = now;
+              logger.info(String.format("%d/%d keys, %.0f keys/s", written[0], count,
+                  written[0] * 1e9 / (now - begin)));
+            }
+          });
+      logger.info("Generated " + report + " on " + threads + " threads");
+    } finally {
+      if (exporter != null) {
+        exporter.close();
+      }
+      if (store != null) {
+        store.close();
+      }
+    }
+  }
+
+  /**
+   * The seed in {@code path}, or a new random one written to it if the file does not exist.
+   */
+  private static byte[] loadOrCreateSeed(Path path) throws IOException {
+    if (Files.exists(path)) {
+      String hex = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+      return Hex.decode(hex);
+    }
+    byte[] seedBytes = new byte[32];
+    Utils.getRandom().nextBytes(seedBytes);
+    // Created owner-only before the seed goes in, so it is never readable by anyone else.
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(path,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      Files.createFile(path);
+      path.toFile().setReadable(false, false);
+      path.toFile().setWritable(false, false);
+      path.toFile().setReadable(true, true);
+      path.toFile().setWritable(true, true);
+    }
+    Files.write(path, Hex.toHexString(seedBytes).getBytes(StandardCharsets.US_ASCII),
+        StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+    logger.info("Wrote a new seed to " + path + ", keep it to rebuild the pool");
+    return seedBytes;
+  }
+}
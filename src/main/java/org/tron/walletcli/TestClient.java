@@ -1,13 +1,27 @@
 package org.tron.walletcli;
 
 import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tron.api.GrpcAPI.AccountList;
 import org.tron.api.GrpcAPI.WitnessList;
+import org.tron.common.crypto.PublicKeyCache;
 import org.tron.common.utils.Utils;
+import org.tron.walletserver.RpcMetrics;
+import org.tron.walletserver.TransferPipeline;
 
 import java.util.Arrays;
 import java.util.Date;
@@ -17,8 +31,18 @@ import java.util.Scanner;
 public class TestClient {
 
   private static final Logger logger = LoggerFactory.getLogger("TestClient");
+  private static final int DEFAULT_BATCH_IN_FLIGHT = 64;
+  private static final int BATCH_PROGRESS_INTERVAL = 1000;
   private Client client = new Client();
 
+  @Parameter(names = {"--script"},
+      description = "Run the commands in this file instead of reading the console, then exit")
+  private String script;
+
+  @Parameter(names = {"--metrics-interval"},
+      description = "Log full node RPC metrics every this many seconds, 0 to disable")
+  private long metricsInterval = 0;
+
   private void registerWallet(String[] parameters) {
     if (parameters == null) {
       logger.warn("Warning: RegisterWallet need 2 parameter but get nothing");
@@ -94,6 +118,55 @@ public class TestClient {
     }
   }
 
+  private void useKey(String[] parameters) {
+    if (parameters == null || parameters.length != 2) {
+      logger.warn("Warning: UseKey need 2 parameters like: UseKey Address Password");
+      return;
+    }
+    if (client.useKey(parameters[0], parameters[1])) {
+      logger.info("UseKey successful !!!");
+    } else {
+      logger.info("UseKey failed !!!");
+    }
+  }
+
+  private void listKeys(String[] parameters) {
+    if (parameters != null && parameters.length != 0) {
+      logger.warn("Warning: ListKeys needn't parameter but get " + parameters.length);
+      return;
+    }
+    List<String> addresses = client.listKeys();
+    if (addresses == null) {
+      logger.info("ListKeys failed !!!");
+      return;
+    }
+    for (String address : addresses) {
+      logger.info("address = " + address);
+    }
+    logger.info("ListKeys successful, " + addresses.size() + " keys !!");
+  }
+
+  private void unlock(String[] parameters) {
+    if (parameters == null || parameters.length != 1) {
+      logger.warn("Warning: Unlock need 1 parameter like: Unlock Password");
+      return;
+    }
+    if (client.unlock(parameters[0])) {
+      logger.info("Unlock successful !!!");
+    } else {
+      logger.info("Unlock failed !!!");
+    }
+  }
+
+  private void lock(String[] parameters) {
+    if (parameters != null && parameters.length != 0) {
+      logger.warn("Warning: Lock needn't parameter but get " + parameters.length);
+      return;
+    }
+    client.lock();
+    logger.info("Lock successful !!!");
+  }
+
   private void logout(String[] parameters) {
     if (parameters != null && parameters.length != 0) {
       logger.warn("Warning: Logout needn't parameter but get " + parameters.length);
@@ -176,6 +249,71 @@ public class TestClient {
     }
   }
 
+  private void sendCoinBatch(String[] parameters) {
+    if (parameters == null) {
+      logger.warn("Warning: SendCoinBatch need 2 or 3 parameters but get nothing");
+      return;
+    }
+    if (parameters.length != 2 && parameters.length != 3) {
+      logger.warn("Warning: SendCoinBatch need 2 or 3 parameters but get " + parameters.length);
+      return;
+    }
+    String password = parameters[0];
+    String fileName = parameters[1];
+    int maxInFlight = DEFAULT_BATCH_IN_FLIGHT;
+    if (parameters.length == 3) {
+      try {
+        maxInFlight = Integer.parseInt(parameters[2]);
+      } catch (NumberFormatException e) {
+        logger.warn("Warning: SendCoinBatch maxInFlight must be a number but get " + parameters[2]);
+        return;
+      }
+      if (maxInFlight <= 0) {
+        logger.warn("Warning: SendCoinBatch maxInFlight must be positive but get " + maxInFlight);
+        return;
+      }
+    }
+
+    AtomicLong done = new AtomicLong();
+    AtomicLong failed = new AtomicLong();
+    long start = System.currentTimeMillis();
+    TransferPipeline.Listener progress = result -> {
+      if (!result.isSuccess()) {
+        failed.incrementAndGet();
+      }
+      long count = done.incrementAndGet();
+      if (count % BATCH_PROGRESS_INTERVAL == 0) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        logger.info(String.format("SendCoinBatch progress: %d done, %d failed, %.1f/s", count,
+            failed.get(), count * 1000.0 / elapsed));
+      }
+    };
+
+    try (TransferFile transfers = new TransferFile(fileName)) {
+      TransferPipeline.Report report = client
+          .sendCoinBatch(password, transfers, maxInFlight, progress);
+      if (report == null) {
+        logger.info("SendCoinBatch " + fileName + " failed !!");
+        return;
+      }
+      String reportFile = fileName + ".report.csv";
+      try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(reportFile),
+          StandardCharsets.UTF_8))) {
+        writer.println("index,to,amount,result,transactionId,reason");
+        for (TransferPipeline.Result result : report.getResults()) {
+          writer.println(result);
+        }
+      }
+      logger.info("SendCoinBatch " + fileName + ": " + report + ", " + transfers.getSkipped()
+          + " rows skipped, details in " + reportFile);
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("Warning: SendCoinBatch failed, " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("Warning: SendCoinBatch interrupted !!");
+    }
+  }
+
   private void assetIssue(String[] parameters) {
     if (parameters == null) {
       logger.warn("Warning: assetIssue need 10 parameters but get nothing");
@@ -286,8 +424,19 @@ public class TestClient {
   }
 
   private void run() {
-    Scanner in = new Scanner(System.in);
-    while (true) {
+    if (script == null) {
+      run(new Scanner(System.in));
+      return;
+    }
+    try (Scanner in = new Scanner(Paths.get(script), "UTF-8")) {
+      run(in);
+    } catch (IOException e) {
+      logger.error("Can't read script " + script + ": " + e.getMessage());
+    }
+  }
+
+  private void run(Scanner in) {
+    while (in.hasNextLine()) {
       String cmdLine = in.nextLine().trim();
       String[] cmdArray = cmdLine.split("\\s+");
       // split on trim() string will always return at the minimum: [""]
@@ -315,6 +464,22 @@ public class TestClient {
           login(parameters);
           break;
         }
+        case "usekey": {
+          useKey(parameters);
+          break;
+        }
+        case "listkeys": {
+          listKeys(parameters);
+          break;
+        }
+        case "unlock": {
+          unlock(parameters);
+          break;
+        }
+        case "lock": {
+          lock(parameters);
+          break;
+        }
         case "logout": {
           logout(parameters);
           break;
@@ -335,6 +500,10 @@ public class TestClient {
           sendCoin(parameters);
           break;
         }
+        case "sendcoinbatch": {
+          sendCoinBatch(parameters);
+          break;
+        }
         case "assetissue": {
           assetIssue(parameters);
           break;
@@ -355,6 +524,11 @@ public class TestClient {
           listWitnesses();
           break;
         }
+        case "metrics": {
+          logger.info("Full node RPC metrics:\n" + RpcMetrics.getDefault().report());
+          logger.info(PublicKeyCache.getDefault().toString());
+          break;
+        }
         case "exit":
         case "quit": {
           logger.info("Exit !!");
@@ -376,6 +550,17 @@ public class TestClient {
         .build()
         .parse(args);
 
+    if (cli.metricsInterval > 0) {
+      ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "metrics-dump");
+        thread.setDaemon(true);
+        return thread;
+      });
+      dumper.scheduleAtFixedRate(
+          () -> logger.info("Full node RPC metrics:\n" + RpcMetrics.getDefault().report()
+              + "\n" + PublicKeyCache.getDefault()),
+          cli.metricsInterval, cli.metricsInterval, TimeUnit.SECONDS);
+    }
     cli.run();
   }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package org.tron.walletcli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongycastle.util.encoders.Hex;
+import org.tron.walletserver.TransferPipeline;
+import org.tron.walletserver.WalletClient;
+
+/**
+ * Streams (to, amount) rows from a transfer file, one row per line. A line is either CSV
+ * ({@code toAddress,amount}) or a JSON object ({@code {"to":"...","amount":1}}). Blank lines and
+ * lines starting with '#' are ignored, and so is a CSV header: the first other line, if neither
+ * its address column is an address nor its amount column a number. Malformed rows, a header
+ * anywhere else included, are logged, skipped and counted.
+ */
+public class TransferFile implements Iterator<TransferPipeline.Request>, Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger("TransferFile");
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final String path;
+  private final BufferedReader reader;
+  private TransferPipeline.Request next;
+  private long lineNumber = 0;
+  private boolean pastFirstRow = false;
+  private long skipped = 0;
+
+  public TransferFile(String path) throws IOException {
+    this.path = path;
+    this.reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      next = readNext();
+    }
+    return next != null;
+  }
+
+  @Override
+  public TransferPipeline.Request next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    TransferPipeline.Request request = next;
+    next = null;
+    return request;
+  }
+
+  /**
+   * Number of malformed rows skipped so far.
+   */
+  public long getSkipped() {
+    return skipped;
+  }
+
+  private TransferPipeline.Request readNext() {
+    String line;
+    try {
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        line = line.trim();
+        if ("".equals(line) || line.startsWith("#")) {
+          continue;
+        }
+        boolean firstRow = !pastFirstRow;
+        pastFirstRow = true;
+        TransferPipeline.Request request = parse(line, firstRow);
+        if (request != null) {
+          return request;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Read " + path + " failed", e);
+    }
+    return null;
+  }
+
+  private TransferPipeline.Request parse(String line, boolean firstRow) {
+    String to;
+    String amount;
+    if (line.startsWith("{")) {
+      try {
+        JsonNode node = MAPPER.readTree(line);
+        to = node.path("to").asText(null);
+        amount = node.path("amount").asText(null);
+      } catch (IOException e) {
+        return skip("invalid JSON");
+      }
+    } else {
+      String[] columns = line.split(",");
+      if (columns.length != 2) {
+        return skip("need 2 columns but get " + columns.length);
+      }
+      to = columns[0].trim();
+      amount = columns[1].trim();
+      if (firstRow && decodeAddress(to) == null && !amount.matches("\\d+")) {
+        return null; // header
+      }
+    }
+    byte[] toBytes = decodeAddress(to);
+    if (toBytes == null) {
+      return skip("invalid address");
+    }
+    long value;
+    try {
+      value = Long.parseLong(amount);
+    } catch (RuntimeException e) {
+      return skip("invalid amount " + amount);
+    }
+    if (value <= 0) {
+      return skip("amount must be positive");
+    }
+    return new TransferPipeline.Request(toBytes, value);
+  }
+
+  private static byte[] decodeAddress(String address) {
+    try {
+      return WalletClient.addressValid(address) ? Hex.decode(address) : null;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  private TransferPipeline.Request skip(String reason) {
+    skipped++;
+    logger.warn("Warning: " + path + " line " + lineNumber + " skipped, " + reason + " !!");
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
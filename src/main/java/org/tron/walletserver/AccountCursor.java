@@ -0,0 +1,119 @@
+package org.tron.walletserver;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.tron.api.GrpcAPI.AccountList;
+import org.tron.protos.Protocol.Account;
+
+/**
+ * Walks the accounts of an encoded {@link AccountList} one at a time, without building the list.
+ *
+ * <p>Only the account being returned is decoded. {@link #nextEncoded()} does not decode at all:
+ * it returns the account's bytes as a view of the response buffer, ready to be written out again.
+ */
+public class AccountCursor implements Iterator<Account> {
+
+  private static final int ACCOUNTS_TAG =
+      AccountList.ACCOUNTS_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+  private final CodedInputStream input;
+  private ByteString next;
+  private long position = 0;
+
+  /**
+   * @param encoded a serialized AccountList, which must not be modified while the cursor or the
+   * byte strings it returned are in use
+   */
+  public AccountCursor(byte[] encoded) {
+    this.input = CodedInputStream.newInstance(encoded);
+    this.input.enableAliasing(true);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      next = readNext();
+    }
+    return next != null;
+  }
+
+  @Override
+  public Account next() {
+    try {
+      return Account.parseFrom(nextEncoded());
+    } catch (InvalidProtocolBufferException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The next account, still serialized.
+   */
+  public ByteString nextEncoded() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    ByteString encoded = next;
+    next = null;
+    position++;
+    return encoded;
+  }
+
+  /**
+   * Up to {@code size} next accounts, empty once the cursor is exhausted.
+   */
+  public List<Account> nextPage(int size) {
+    List<Account> page = new ArrayList<>(Math.min(size, 1024));
+    while (page.size() < size && hasNext()) {
+      page.add(next());
+    }
+    return page;
+  }
+
+  /**
+   * Skip up to {@code count} accounts without decoding them.
+   *
+   * @return the number actually skipped
+   */
+  public long skip(long count) {
+    long skipped = 0;
+    while (skipped < count && hasNext()) {
+      next = null;
+      position++;
+      skipped++;
+    }
+    return skipped;
+  }
+
+  /**
+   * Number of accounts returned or skipped so far.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  private ByteString readNext() {
+    try {
+      int tag;
+      while ((tag = input.readTag()) != 0) {
+        if (tag == ACCOUNTS_TAG) {
+          return input.readBytes();
+        }
+        if (!input.skipField(tag)) {
+          break;
+        }
+      }
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package org.tron.walletserver;
+
+import com.typesafe.config.Config;
+import io.grpc.Status;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deadlines, retries and hedging for the calls {@link GrpcClient} makes.
+ *
+ * <p>Every call gets a deadline, per method or the default. Only read-only methods (GetBalance,
+ * ListAccounts, ListWitnesses, ListNodes) are ever retried or hedged: a transaction is never sent
+ * twice. A failed read is retried up to {@code maxAttempts} times in total when its status says
+ * the node rather than the request was at fault, waiting a random time up to an exponentially
+ * growing backoff between attempts. With hedging on, a read that has not answered after the
+ * given latency percentile of that method over the recent past (as seen by {@link RpcMetrics},
+ * unaffected by resetting its metrics) is also sent to another node, and the first answer wins.
+ */
+public class CallPolicy {
+
+  private long defaultDeadlineMillis = 10_000L;
+  private final Map<String, Long> deadlineMillis = new HashMap<>();
+  private int maxAttempts = 3;
+  private long initialBackoffMillis = 100L;
+  private long maxBackoffMillis = 2_000L;
+  private boolean hedging = false;
+  private double hedgePercentile = 95;
+  private long hedgeMinDelayMillis = 10L;
+  private long hedgeMinSamples = 100;
+
+  public static CallPolicy defaults() {
+    return new CallPolicy();
+  }
+
+  /**
+   * Read the policy from the {@code fullnode.rpc} section of the configuration; anything missing
+   * keeps its default.
+   */
+  public static CallPolicy fromConfig(Config config) {
+    CallPolicy policy = new CallPolicy();
+    if (!config.hasPath("fullnode.rpc")) {
+      return policy;
+    }
+    Config rpc = config.getConfig("fullnode.rpc");
+    if (rpc.hasPath("deadlineMillis")) {
+      Config deadlines = rpc.getConfig("deadlineMillis");
+      for (String method : deadlines.root().keySet()) {
+        if ("default".equals(method)) {
+          policy.setDefaultDeadlineMillis(deadlines.getLong(method));
+        } else {
+          policy.setDeadlineMillis(method, deadlines.getLong(method));
+        }
+      }
+    }
+    if (rpc.hasPath("retry.maxAttempts")) {
+      policy.setMaxAttempts(rpc.getInt("retry.maxAttempts"));
+    }
+    if (rpc.hasPath("retry.initialBackoffMillis")) {
+      policy.setInitialBackoffMillis(rpc.getLong("retry.initialBackoffMillis"));
+    }
+    if (rpc.hasPath("retry.maxBackoffMillis")) {
+      policy.setMaxBackoffMillis(rpc.getLong("retry.maxBackoffMillis"));
+    }
+    if (rpc.hasPath("hedge.enabled")) {
+      policy.setHedging(rpc.getBoolean("hedge.enabled"));
+    }
+    if (rpc.hasPath("hedge.percentile")) {
+      policy.setHedgePercentile(rpc.getDouble("hedge.percentile"));
+    }
+    if (rpc.hasPath("hedge.minDelayMillis")) {
+      policy.setHedgeMinDelayMillis(rpc.getLong("hedge.minDelayMillis"));
+    }
+    if (rpc.hasPath("hedge.minSamples")) {
+      policy.setHedgeMinSamples(rpc.getLong("hedge.minSamples"));
+    }
+    return policy;
+  }
+
+  public CallPolicy setDefaultDeadlineMillis(long defaultDeadlineMillis) {
+    this.defaultDeadlineMillis = defaultDeadlineMillis;
+    return this;
+  }
+
+  /**
+   * @param method method name as in api.proto, e.g. {@code GetBalance}
+   */
+  public CallPolicy setDeadlineMillis(String method, long millis) {
+    deadlineMillis.put(method, millis);
+    return this;
+  }
+
+  public CallPolicy setMaxAttempts(int maxAttempts) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be at least 1");
+    }
+    this.maxAttempts = maxAttempts;
+    return this;
+  }
+
+  public CallPolicy setInitialBackoffMillis(long initialBackoffMillis) {
+    this.initialBackoffMillis = initialBackoffMillis;
+    return this;
+  }
+
+  public CallPolicy setMaxBackoffMillis(long maxBackoffMillis) {
+    this.maxBackoffMillis = maxBackoffMillis;
+    return this;
+  }
+
+  public CallPolicy setHedging(boolean hedging) {
+    this.hedging = hedging;
+    return this;
+  }
+
+  public CallPolicy setHedgePercentile(double hedgePercentile) {
+    this.hedgePercentile = hedgePercentile;
+    return this;
+  }
+
+  public CallPolicy setHedgeMinDelayMillis(long hedgeMinDelayMillis) {
+    this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+    return this;
+  }
+
+  /**
+   * Recent calls of a method to observe before its latency percentile is trusted for hedging.
+   */
+  public CallPolicy setHedgeMinSamples(long hedgeMinSamples) {
+    this.hedgeMinSamples = hedgeMinSamples;
+    return this;
+  }
+
+  public long getDeadlineMillis(String method) {
+    Long millis = deadlineMillis.get(method);
+    return millis == null ? defaultDeadlineMillis : millis;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Random wait before the attempt after {@code attempt}, between 0 and the backoff for that
+   * attempt ("full jitter").
+   */
+  public long getBackoffMillis(int attempt) {
+    long backoff = initialBackoffMillis << Math.min(attempt - 1, 20);
+    backoff = Math.min(backoff, maxBackoffMillis);
+    return backoff <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+  }
+
+  /**
+   * How long to wait for a read before hedging it, or -1 to not hedge this call.
+   */
+  public long getHedgeDelayMillis(String method) {
+    if (!hedging) {
+      return -1;
+    }
+    RpcMetrics.MethodMetrics metrics = RpcMetrics.getDefault()
+        .forMethod(GrpcClient.fullMethodName(method));
+    if (metrics.getRecentCalls() < hedgeMinSamples) {
+      return -1;
+    }
+    return Math.max(hedgeMinDelayMillis,
+        metrics.getRecentLatencyMillisAtPercentile(hedgePercentile));
+  }
+
+  public static boolean isRetryable(Status.Code code) {
+    switch (code) {
+      case UNAVAILABLE:
+      case DEADLINE_EXCEEDED:
+      case RESOURCE_EXHAUSTED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "deadline=" + defaultDeadlineMillis + "ms " + deadlineMillis + ", maxAttempts="
+        + maxAttempts + ", backoff=" + initialBackoffMillis + ".." + maxBackoffMillis
+        + "ms, hedging=" + hedging + (hedging ? " at p" + hedgePercentile : "");
+  }
+}
@@ -0,0 +1,122 @@
+package org.tron.walletserver;
+
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.tron.api.WalletGrpc;
+
+/**
+ * Channels to every configured full node, with client-side load balancing and health based
+ * ejection. When every node is ejected, calls are spread over all of them rather than failing
+ * outright.
+ */
+public class ChannelPool {
+
+  private final List<NodeChannel> nodes;
+  private final LoadBalancePolicy policy;
+  private final AtomicInteger cursor = new AtomicInteger();
+  private ScheduledExecutorService healthChecker;
+
+  public ChannelPool(List<NodeChannel> nodes, LoadBalancePolicy policy) {
+    if (nodes == null || nodes.isEmpty()) {
+      throw new IllegalArgumentException("At least one full node is required");
+    }
+    this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+    this.policy = policy;
+  }
+
+  public static ChannelPool forTargets(List<String> targets, LoadBalancePolicy policy,
+      int failureThreshold, long ejectMillis) {
+    List<NodeChannel> nodes = new ArrayList<>();
+    for (String target : targets) {
+      nodes.add(new NodeChannel(target, failureThreshold, ejectMillis));
+    }
+    return new ChannelPool(nodes, policy);
+  }
+
+  public List<NodeChannel> getNodes() {
+    return nodes;
+  }
+
+  public LoadBalancePolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Pick the node for the next call according to the load balance policy.
+   */
+  public NodeChannel select() {
+    if (nodes.size() == 1) {
+      return nodes.get(0);
+    }
+    long now = System.currentTimeMillis();
+    List<NodeChannel> admitted = new ArrayList<>(nodes.size());
+    for (NodeChannel node : nodes) {
+      if (node.isAdmitted(now)) {
+        admitted.add(node);
+      }
+    }
+    return policy.select(admitted.isEmpty() ? nodes : admitted, cursor);
+  }
+
+  /**
+   * Pick a node other than {@code exclude} among the admitted ones, or null if there is none.
+   */
+  public NodeChannel selectOther(NodeChannel exclude) {
+    long now = System.currentTimeMillis();
+    List<NodeChannel> admitted = new ArrayList<>(nodes.size());
+    for (NodeChannel node : nodes) {
+      if (node != exclude && node.isAdmitted(now)) {
+        admitted.add(node);
+      }
+    }
+    return admitted.isEmpty() ? null : policy.select(admitted, cursor);
+  }
+
+  public <T> T call(Function<WalletGrpc.WalletBlockingStub, T> rpc) {
+    return select().call(rpc);
+  }
+
+  public <T> CompletableFuture<T> callAsync(
+      BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc) {
+    return select().callAsync(rpc);
+  }
+
+  /**
+   * Start polling the connectivity state of every channel, so that a dead node is ejected before
+   * a caller has to time out on it.
+   */
+  public synchronized void startHealthCheck(long interval, TimeUnit unit) {
+    if (healthChecker != null || interval <= 0) {
+      return;
+    }
+    healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "fullnode-health-check");
+      thread.setDaemon(true);
+      return thread;
+    });
+    healthChecker.scheduleWithFixedDelay(() -> {
+      for (NodeChannel node : nodes) {
+        node.checkConnectivity();
+      }
+    }, interval, interval, unit);
+  }
+
+  public synchronized void shutdown() throws InterruptedException {
+    if (healthChecker != null) {
+      healthChecker.shutdownNow();
+      healthChecker = null;
+    }
+    for (NodeChannel node : nodes) {
+      node.shutdown();
+    }
+  }
+}
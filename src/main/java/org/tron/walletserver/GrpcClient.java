@@ -1,15 +1,36 @@
 package org.tron.walletserver;
 
 import com.google.protobuf.ByteString;
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
 
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import org.tron.api.GrpcAPI;
 import org.tron.api.GrpcAPI.AccountList;
 import org.tron.api.GrpcAPI.EmptyMessage;
+import org.tron.api.GrpcAPI.NodeList;
 import org.tron.api.GrpcAPI.WitnessList;
 import org.tron.api.WalletGrpc;
 import org.tron.protos.Contract;
@@ -18,62 +39,112 @@ import org.tron.protos.Protocol.Transaction;
 
 public class GrpcClient {
 
-  private final ManagedChannel channel;
-  private final WalletGrpc.WalletBlockingStub blockingStub;
+  private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+  private static final long DEFAULT_EJECT_MILLIS = 10_000L;
+
+  private static final String GET_BALANCE = "GetBalance";
+  private static final String CREATE_TRANSACTION = "CreateTransaction";
+  private static final String BROADCAST_TRANSACTION = "BroadcastTransaction";
+  private static final String LIST_ACCOUNTS = "ListAccounts";
+  private static final String CREATE_ACCOUNT = "CreateAccount";
+  private static final String VOTE_WITNESS_ACCOUNT = "VoteWitnessAccount";
+  private static final String CREATE_ASSET_ISSUE = "CreateAssetIssue";
+  private static final String LIST_WITNESSES = "ListWitnesses";
+  private static final String UPDATE_WITNESS = "UpdateWitness";
+  private static final String CREATE_WITNESS = "CreateWitness";
+  private static final String LIST_NODES = "ListNodes";
+
+  // ListAccounts with the response left serialized, for AccountCursor.
+  private static final MethodDescriptor<EmptyMessage, byte[]> LIST_ACCOUNTS_ENCODED =
+      MethodDescriptor.<EmptyMessage, byte[]>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName(fullMethodName(LIST_ACCOUNTS))
+          .setRequestMarshaller(ProtoUtils.marshaller(EmptyMessage.getDefaultInstance()))
+          .setResponseMarshaller(new BytesMarshaller())
+          .build();
+
+  // Retry backoff and hedge timers only, the calls themselves run on gRPC threads.
+  private static final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "grpc-client-timer");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final ChannelPool pool;
+  private final CallPolicy callPolicy;
 
   public GrpcClient(String host, int port) {
-    channel = ManagedChannelBuilder.forAddress(host, port)
-        .usePlaintext(true)
-        .build();
-    blockingStub = WalletGrpc.newBlockingStub(channel);
+    this(host + ":" + port);
   }
 
   public GrpcClient(String host) {
-    channel = ManagedChannelBuilder.forTarget(host)
-        .usePlaintext(true)
-        .build();
-    blockingStub = WalletGrpc.newBlockingStub(channel);
+    this(Collections.singletonList(host), LoadBalancePolicy.ROUND_ROBIN);
+  }
+
+  public GrpcClient(List<String> targets, LoadBalancePolicy policy) {
+    this(ChannelPool.forTargets(targets, policy, DEFAULT_FAILURE_THRESHOLD,
+        DEFAULT_EJECT_MILLIS));
+  }
+
+  public GrpcClient(ChannelPool pool) {
+    this(pool, CallPolicy.defaults());
+  }
+
+  public GrpcClient(ChannelPool pool, CallPolicy callPolicy) {
+    this.pool = pool;
+    this.callPolicy = callPolicy;
+  }
+
+  public ChannelPool getPool() {
+    return pool;
+  }
+
+  public CallPolicy getCallPolicy() {
+    return callPolicy;
   }
 
   public void shutdown() throws InterruptedException {
-    channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    pool.shutdown();
+  }
+
+  static String fullMethodName(String method) {
+    return WalletGrpc.SERVICE_NAME + "/" + method;
   }
 
   public long getBalance(byte[] address) {
-    ByteString addressBS = ByteString.copyFrom(address);
-    Account request = Account.newBuilder().setAddress(addressBS).build();
-    Account response = blockingStub.getBalance(request);
-    return response.getBalance();
+    return join(getAccountAsync(address)).getBalance();
   }
 
   public Transaction createTransaction(Contract.TransferContract contract) {
-    return blockingStub.createTransaction(contract);
+    return call(CREATE_TRANSACTION, stub -> stub.createTransaction(contract));
   }
 
   public Transaction createAccount(Contract.AccountCreateContract contract) {
-    return blockingStub.createAccount(contract);
+    return call(CREATE_ACCOUNT, stub -> stub.createAccount(contract));
   }
 
   public Transaction createAssetIssue(Contract.AssetIssueContract contract) {
-    return blockingStub.createAssetIssue(contract);
+    return call(CREATE_ASSET_ISSUE, stub -> stub.createAssetIssue(contract));
   }
 
   public Transaction voteWitnessAccount(Contract.VoteWitnessContract contract) {
-    return blockingStub.voteWitnessAccount(contract);
+    return call(VOTE_WITNESS_ACCOUNT, stub -> stub.voteWitnessAccount(contract));
   }
 
   public Transaction createWitness(Contract.WitnessCreateContract contract) {
-    return blockingStub.createWitness(contract);
+    return call(CREATE_WITNESS, stub -> stub.createWitness(contract));
   }
 
   public boolean broadcastTransaction(Transaction signaturedTransaction) {
-    GrpcAPI.Return response = blockingStub.broadcastTransaction(signaturedTransaction);
+    GrpcAPI.Return response =
+        call(BROADCAST_TRANSACTION, stub -> stub.broadcastTransaction(signaturedTransaction));
     return response.getResult();
   }
 
 
   public Optional<AccountList> listAccounts() {
-    AccountList accountList = blockingStub.listAccounts(EmptyMessage.newBuilder().build());
+    AccountList accountList = join(listAccountsAsync());
     if(accountList != null){
       return Optional.of(accountList);
     }
@@ -81,10 +152,209 @@ public class GrpcClient {
   }
 
   public Optional<WitnessList> listWitnesses() {
-    WitnessList witnessList = blockingStub.listWitnesses(EmptyMessage.newBuilder().build());
+    WitnessList witnessList = join(listWitnessesAsync());
     if(witnessList != null){
       return Optional.of(witnessList);
     }
     return Optional.empty();
   }
+
+  public CompletableFuture<Account> getAccountAsync(byte[] address) {
+    ByteString addressBS = ByteString.copyFrom(address);
+    Account request = Account.newBuilder().setAddress(addressBS).build();
+    return read(GET_BALANCE, (stub, observer) -> stub.getBalance(request, observer));
+  }
+
+  public CompletableFuture<Long> getBalanceAsync(byte[] address) {
+    return getAccountAsync(address).thenApply(Account::getBalance);
+  }
+
+  public CompletableFuture<Transaction> createTransactionAsync(
+      Contract.TransferContract contract) {
+    return callAsync(CREATE_TRANSACTION,
+        (stub, observer) -> stub.createTransaction(contract, observer));
+  }
+
+  public CompletableFuture<Transaction> createAccountAsync(
+      Contract.AccountCreateContract contract) {
+    return callAsync(CREATE_ACCOUNT, (stub, observer) -> stub.createAccount(contract, observer));
+  }
+
+  public CompletableFuture<Transaction> createAssetIssueAsync(
+      Contract.AssetIssueContract contract) {
+    return callAsync(CREATE_ASSET_ISSUE,
+        (stub, observer) -> stub.createAssetIssue(contract, observer));
+  }
+
+  public CompletableFuture<Transaction> voteWitnessAccountAsync(
+      Contract.VoteWitnessContract contract) {
+    return callAsync(VOTE_WITNESS_ACCOUNT,
+        (stub, observer) -> stub.voteWitnessAccount(contract, observer));
+  }
+
+  public CompletableFuture<Transaction> createWitnessAsync(
+      Contract.WitnessCreateContract contract) {
+    return callAsync(CREATE_WITNESS, (stub, observer) -> stub.createWitness(contract, observer));
+  }
+
+  public CompletableFuture<Transaction> updateWitnessAsync(
+      Contract.WitnessUpdateContract contract) {
+    return callAsync(UPDATE_WITNESS, (stub, observer) -> stub.updateWitness(contract, observer));
+  }
+
+  public CompletableFuture<Boolean> broadcastTransactionAsync(
+      Transaction signaturedTransaction) {
+    CompletableFuture<GrpcAPI.Return> response = callAsync(BROADCAST_TRANSACTION,
+        (stub, observer) -> stub.broadcastTransaction(signaturedTransaction, observer));
+    return response.thenApply(GrpcAPI.Return::getResult);
+  }
+
+  public CompletableFuture<AccountList> listAccountsAsync() {
+    return read(LIST_ACCOUNTS,
+        (stub, observer) -> stub.listAccounts(EmptyMessage.newBuilder().build(), observer));
+  }
+
+  /**
+   * All accounts, decoded one at a time as the cursor advances instead of all at once.
+   */
+  public AccountCursor listAccountsCursor() {
+    return join(listAccountsCursorAsync());
+  }
+
+  public CompletableFuture<AccountCursor> listAccountsCursorAsync() {
+    return listAccountsEncodedAsync().thenApply(AccountCursor::new);
+  }
+
+  /**
+   * The ListAccounts response as received, for an {@link AccountCursor} to walk later.
+   */
+  public CompletableFuture<byte[]> listAccountsEncodedAsync() {
+    return read(LIST_ACCOUNTS,
+        (stub, observer) -> ClientCalls.asyncUnaryCall(
+            stub.getChannel().newCall(LIST_ACCOUNTS_ENCODED, stub.getCallOptions()),
+            EmptyMessage.getDefaultInstance(), observer));
+  }
+
+  public CompletableFuture<WitnessList> listWitnessesAsync() {
+    return read(LIST_WITNESSES,
+        (stub, observer) -> stub.listWitnesses(EmptyMessage.newBuilder().build(), observer));
+  }
+
+  public CompletableFuture<NodeList> listNodesAsync() {
+    return read(LIST_NODES,
+        (stub, observer) -> stub.listNodes(EmptyMessage.newBuilder().build(), observer));
+  }
+
+  /**
+   * One blocking call with the method's deadline, never retried.
+   */
+  private <T> T call(String method, Function<WalletGrpc.WalletBlockingStub, T> rpc) {
+    long deadline = callPolicy.getDeadlineMillis(method);
+    return pool.call(stub -> rpc.apply(stub.withDeadlineAfter(deadline, TimeUnit.MILLISECONDS)));
+  }
+
+  /**
+   * One asynchronous call with the method's deadline, never retried.
+   */
+  private <T> CompletableFuture<T> callAsync(String method,
+      BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc) {
+    return pool.callAsync(withDeadline(method, rpc));
+  }
+
+  private <T> BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> withDeadline(String method,
+      BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc) {
+    long deadline = callPolicy.getDeadlineMillis(method);
+    return (stub, observer) -> rpc
+        .accept(stub.withDeadlineAfter(deadline, TimeUnit.MILLISECONDS), observer);
+  }
+
+  /**
+   * A read-only call: deadline per attempt, hedged and retried as the call policy says.
+   */
+  private <T> CompletableFuture<T> read(String method,
+      BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    attempt(method, withDeadline(method, rpc), 1, result);
+    return result;
+  }
+
+  private <T> void attempt(String method, BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc,
+      int attempt, CompletableFuture<T> result) {
+    if (result.isDone()) {
+      return;
+    }
+    CompletableFuture<T> response = HedgedCall
+        .start(pool, rpc, callPolicy.getHedgeDelayMillis(method), scheduler);
+    result.whenComplete((value, error) -> response.cancel(false));
+    response.whenComplete((value, error) -> {
+      if (error == null) {
+        result.complete(value);
+        return;
+      }
+      Throwable cause = error instanceof CompletionException && error.getCause() != null
+          ? error.getCause() : error;
+      if (attempt >= callPolicy.getMaxAttempts()
+          || !CallPolicy.isRetryable(Status.fromThrowable(cause).getCode())) {
+        result.completeExceptionally(cause);
+        return;
+      }
+      scheduler.schedule(() -> attempt(method, rpc, attempt + 1, result),
+          callPolicy.getBackoffMillis(attempt), TimeUnit.MILLISECONDS);
+    });
+  }
+
+  /**
+   * Wait for an asynchronous call, failing the way a blocking stub would.
+   */
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new StatusRuntimeException(Status.fromThrowable(cause));
+    } catch (CancellationException e) {
+      throw new StatusRuntimeException(Status.CANCELLED.withCause(e));
+    }
+  }
+
+  /**
+   * Keeps a response message as the bytes it was received as.
+   */
+  private static class BytesMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+
+    @Override
+    public InputStream stream(byte[] value) {
+      return new ByteArrayInputStream(value);
+    }
+
+    @Override
+    public byte[] parse(InputStream stream) {
+      try {
+        if (stream instanceof KnownLength) {
+          byte[] bytes = new byte[stream.available()];
+          int read = 0;
+          while (read < bytes.length) {
+            int n = stream.read(bytes, read, bytes.length - read);
+            if (n < 0) {
+              throw new EOFException("Message ended after " + read + " of " + bytes.length);
+            }
+            read += n;
+          }
+          return bytes;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = stream.read(buffer)) >= 0) {
+          out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
 }
@@ -0,0 +1,87 @@
+package org.tron.walletserver;
+
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.tron.api.WalletGrpc;
+
+/**
+ * One read sent to a node and, if it has not answered within the hedge delay, to a second node
+ * as well. The first successful answer completes the call and cancels the other request; the
+ * call fails only when every request sent has failed.
+ */
+class HedgedCall<T> {
+
+  private static final AtomicInteger HEDGES = new AtomicInteger();
+
+  private final ChannelPool pool;
+  private final BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc;
+  private final CompletableFuture<T> result = new CompletableFuture<>();
+  private final List<CompletableFuture<T>> requests = new CopyOnWriteArrayList<>();
+  private final AtomicInteger running = new AtomicInteger();
+
+  private HedgedCall(ChannelPool pool, BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc) {
+    this.pool = pool;
+    this.rpc = rpc;
+    result.whenComplete((value, error) -> {
+      for (CompletableFuture<T> request : requests) {
+        request.cancel(false);
+      }
+    });
+  }
+
+  /**
+   * @param hedgeDelayMillis wait before the second request, negative to send only one
+   */
+  static <T> CompletableFuture<T> start(ChannelPool pool,
+      BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc, long hedgeDelayMillis,
+      ScheduledExecutorService scheduler) {
+    NodeChannel primary = pool.select();
+    if (hedgeDelayMillis < 0 || pool.getNodes().size() < 2) {
+      return primary.callAsync(rpc);
+    }
+    HedgedCall<T> call = new HedgedCall<>(pool, rpc);
+    call.send(primary);
+    scheduler.schedule(() -> call.hedge(primary), hedgeDelayMillis, TimeUnit.MILLISECONDS);
+    return call.result;
+  }
+
+  private void hedge(NodeChannel primary) {
+    if (result.isDone()) {
+      return;
+    }
+    NodeChannel other = pool.selectOther(primary);
+    if (other != null) {
+      HEDGES.incrementAndGet();
+      send(other);
+    }
+  }
+
+  private void send(NodeChannel node) {
+    running.incrementAndGet();
+    CompletableFuture<T> request = node.callAsync(rpc);
+    requests.add(request);
+    if (result.isDone()) {
+      request.cancel(false);
+    }
+    request.whenComplete((value, error) -> {
+      if (error == null) {
+        result.complete(value);
+      } else if (running.decrementAndGet() == 0) {
+        result.completeExceptionally(error);
+      }
+    });
+  }
+
+  /**
+   * Second requests sent so far, by all hedged calls.
+   */
+  static int getHedges() {
+    return HEDGES.get();
+  }
+}
@@ -0,0 +1,53 @@
+package org.tron.walletserver;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How {@link ChannelPool} picks a full node for the next call.
+ */
+public enum LoadBalancePolicy {
+
+  /**
+   * Cycle through the admitted nodes in order.
+   */
+  ROUND_ROBIN {
+    @Override
+    NodeChannel select(List<NodeChannel> nodes, AtomicInteger cursor) {
+      int index = (cursor.getAndIncrement() & Integer.MAX_VALUE) % nodes.size();
+      return nodes.get(index);
+    }
+  },
+
+  /**
+   * Pick the admitted node with the fewest calls in flight, so a slow node naturally receives less
+   * traffic. Ties are broken round-robin.
+   */
+  LEAST_OUTSTANDING {
+    @Override
+    NodeChannel select(List<NodeChannel> nodes, AtomicInteger cursor) {
+      int size = nodes.size();
+      int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % size;
+      NodeChannel best = null;
+      for (int i = 0; i < size; i++) {
+        NodeChannel node = nodes.get((start + i) % size);
+        if (best == null || node.getOutstanding() < best.getOutstanding()) {
+          best = node;
+        }
+      }
+      return best;
+    }
+  };
+
+  abstract NodeChannel select(List<NodeChannel> nodes, AtomicInteger cursor);
+
+  /**
+   * Parse a policy name from config, e.g. "round_robin" or "least_outstanding".
+   */
+  public static LoadBalancePolicy fromName(String name) {
+    if (name == null || "".equals(name)) {
+      return ROUND_ROBIN;
+    }
+    return LoadBalancePolicy.valueOf(name.trim().toUpperCase());
+  }
+}
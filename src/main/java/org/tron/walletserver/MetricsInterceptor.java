@@ -0,0 +1,65 @@
+package org.tron.walletserver;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * Records every call made through a channel into {@link RpcMetrics}: start to close latency,
+ * in-flight count, closing status and the serialized size of each message.
+ */
+public class MetricsInterceptor implements ClientInterceptor {
+
+  private final RpcMetrics metrics;
+
+  public MetricsInterceptor(RpcMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+      CallOptions callOptions, Channel next) {
+    RpcMetrics.MethodMetrics methodMetrics = metrics.forMethod(method.getFullMethodName());
+    return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        long start = System.nanoTime();
+        methodMetrics.onStart();
+        super.start(new SimpleForwardingClientCallListener<RespT>(responseListener) {
+
+          @Override
+          public void onMessage(RespT message) {
+            if (message instanceof MessageLite) {
+              methodMetrics.onResponse(((MessageLite) message).getSerializedSize());
+            } else if (message instanceof byte[]) {
+              methodMetrics.onResponse(((byte[]) message).length);
+            }
+            super.onMessage(message);
+          }
+
+          @Override
+          public void onClose(Status status, Metadata trailers) {
+            methodMetrics.onClose(status.getCode(), System.nanoTime() - start);
+            super.onClose(status, trailers);
+          }
+        }, headers);
+      }
+
+      @Override
+      public void sendMessage(ReqT message) {
+        if (message instanceof MessageLite) {
+          methodMetrics.onRequest(((MessageLite) message).getSerializedSize());
+        }
+        super.sendMessage(message);
+      }
+    };
+  }
+}
@@ -0,0 +1,215 @@
+package org.tron.walletserver;
+
+import io.grpc.Channel;
+import io.grpc.ClientInterceptors;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tron.api.WalletGrpc;
+
+/**
+ * One full node of a {@link ChannelPool}: its channel, stub, in-flight count and health.
+ *
+ * <p>A node is ejected after {@code failureThreshold} consecutive transport failures and
+ * re-admitted once its ejection time has passed. The first call after re-admission acts as a
+ * probe: success clears the failure history, another failure ejects the node again for twice as
+ * long (up to {@link #MAX_EJECT_MULTIPLIER} times the base period).
+ */
+public class NodeChannel {
+
+  private static final Logger logger = LoggerFactory.getLogger("NodeChannel");
+  private static final int MAX_EJECT_MULTIPLIER = 32;
+
+  private final String target;
+  private final ManagedChannel channel;
+  private final WalletGrpc.WalletBlockingStub blockingStub;
+  private final WalletGrpc.WalletStub asyncStub;
+  private final int failureThreshold;
+  private final long ejectMillis;
+
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private volatile int ejections = 0;
+  private volatile long ejectedUntil = 0;
+
+  public NodeChannel(String target, int failureThreshold, long ejectMillis) {
+    this(target, ManagedChannelBuilder.forTarget(target)
+        .usePlaintext(true)
+        .build(), failureThreshold, ejectMillis);
+  }
+
+  public NodeChannel(String target, ManagedChannel channel, int failureThreshold,
+      long ejectMillis) {
+    this.target = target;
+    this.channel = channel;
+    Channel intercepted = ClientInterceptors.intercept(channel,
+        RpcMetrics.getDefault().getInterceptor());
+    this.blockingStub = WalletGrpc.newBlockingStub(intercepted);
+    this.asyncStub = WalletGrpc.newStub(intercepted);
+    this.failureThreshold = failureThreshold;
+    this.ejectMillis = ejectMillis;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public ManagedChannel getChannel() {
+    return channel;
+  }
+
+  public int getOutstanding() {
+    return outstanding.get();
+  }
+
+  public boolean isAdmitted(long now) {
+    return ejectedUntil <= now;
+  }
+
+  /**
+   * Run one blocking call on this node, keeping the in-flight count and health up to date.
+   */
+  public <T> T call(Function<WalletGrpc.WalletBlockingStub, T> rpc) {
+    outstanding.incrementAndGet();
+    try {
+      T result = rpc.apply(blockingStub);
+      onSuccess();
+      return result;
+    } catch (StatusRuntimeException e) {
+      onFailure(e.getStatus());
+      throw e;
+    } finally {
+      outstanding.decrementAndGet();
+    }
+  }
+
+  /**
+   * Start one asynchronous call on this node. The returned future completes on a gRPC executor
+   * thread; cancelling it cancels the call.
+   */
+  public <T> CompletableFuture<T> callAsync(
+      BiConsumer<WalletGrpc.WalletStub, StreamObserver<T>> rpc) {
+    FutureObserver<T> observer = new FutureObserver<>();
+    outstanding.incrementAndGet();
+    try {
+      rpc.accept(asyncStub, observer);
+    } catch (RuntimeException e) {
+      observer.onError(e);
+    }
+    return observer.future;
+  }
+
+  void onSuccess() {
+    if (consecutiveFailures.get() != 0 || ejections != 0) {
+      consecutiveFailures.set(0);
+      ejections = 0;
+    }
+  }
+
+  void onFailure(Status status) {
+    if (!isNodeFailure(status.getCode())) {
+      return;
+    }
+    if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+      eject("status " + status.getCode());
+    }
+  }
+
+  /**
+   * Ask the channel for its connectivity state and eject the node if it cannot connect.
+   */
+  void checkConnectivity() {
+    try {
+      if (channel.getState(true) == ConnectivityState.TRANSIENT_FAILURE) {
+        consecutiveFailures.set(failureThreshold);
+        eject("connectivity TRANSIENT_FAILURE");
+      }
+    } catch (UnsupportedOperationException e) {
+      // Channel implementation does not report its state, rely on call results only.
+    }
+  }
+
+  private synchronized void eject(String reason) {
+    long now = System.currentTimeMillis();
+    if (ejectedUntil > now) {
+      return;
+    }
+    int multiplier = Math.min(1 << Math.min(ejections, 5), MAX_EJECT_MULTIPLIER);
+    ejections++;
+    ejectedUntil = now + ejectMillis * multiplier;
+    logger.warn("Eject full node " + target + " for " + ejectMillis * multiplier + " ms, "
+        + reason);
+  }
+
+  private static boolean isNodeFailure(Status.Code code) {
+    switch (code) {
+      case UNAVAILABLE:
+      case DEADLINE_EXCEEDED:
+      case RESOURCE_EXHAUSTED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private class FutureObserver<T> implements ClientResponseObserver<Object, T> {
+
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private T value;
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Object> requestStream) {
+      future.whenComplete((result, error) -> {
+        if (future.isCancelled()) {
+          requestStream.cancel("Cancelled by caller", null);
+        }
+      });
+    }
+
+    @Override
+    public void onNext(T value) {
+      this.value = value;
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      outstanding.decrementAndGet();
+      if (t instanceof StatusRuntimeException) {
+        onFailure(((StatusRuntimeException) t).getStatus());
+      } else if (t instanceof StatusException) {
+        onFailure(((StatusException) t).getStatus());
+      }
+      future.completeExceptionally(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      outstanding.decrementAndGet();
+      onSuccess();
+      future.complete(value);
+    }
+  }
+
+  public void shutdown() throws InterruptedException {
+    channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return target + "[outstanding=" + outstanding.get() + ", failures="
+        + consecutiveFailures.get() + ", admitted=" + isAdmitted(System.currentTimeMillis()) + "]";
+  }
+}
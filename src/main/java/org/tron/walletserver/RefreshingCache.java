@@ -0,0 +1,205 @@
+package org.tron.walletserver;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One value fetched from the full node, kept together with its encoded form and refreshed in the
+ * background.
+ *
+ * <p>While the cache is being read, it reloads the value every {@code ttlMillis} on a background
+ * thread, so readers normally never wait for the full node. A value older than twice the TTL (the
+ * node was unreachable, or nobody read it for a while) is not served any more; the next reader
+ * loads it instead. However many readers miss at the same time, only one load is in flight and
+ * they all share its result.
+ */
+public class RefreshingCache<T> {
+
+  private static final Logger logger = LoggerFactory.getLogger("RefreshingCache");
+
+  private static final ScheduledExecutorService refresher = Executors
+      .newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final String name;
+  private final Supplier<CompletableFuture<T>> loader;
+  private final Function<T, byte[]> encoder;
+  private final long ttlMillis;
+
+  private final AtomicReference<Entry<T>> current = new AtomicReference<>();
+  private final AtomicReference<CompletableFuture<Entry<T>>> loading = new AtomicReference<>();
+  private final AtomicLong reads = new AtomicLong();
+  private final AtomicLong loads = new AtomicLong();
+  private final ScheduledFuture<?> refresh;
+  private volatile long lastRead = 0;
+
+  /**
+   * @param loader starts one fetch from the full node
+   * @param encoder turns a fetched value into the bytes served for it
+   */
+  public RefreshingCache(String name, Supplier<CompletableFuture<T>> loader,
+      Function<T, byte[]> encoder, long ttlMillis) {
+    if (ttlMillis <= 0) {
+      throw new IllegalArgumentException("ttlMillis must be positive");
+    }
+    this.name = name;
+    this.loader = loader;
+    this.encoder = encoder;
+    this.ttlMillis = ttlMillis;
+    this.refresh = refresher.scheduleWithFixedDelay(this::refreshIfRead, ttlMillis, ttlMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * The cached entry, loading it first if there is none fresh enough.
+   */
+  public Entry<T> get() {
+    try {
+      return getAsync().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Like {@link #get()}, without blocking the caller on a load.
+   */
+  public CompletableFuture<Entry<T>> getAsync() {
+    reads.incrementAndGet();
+    lastRead = System.currentTimeMillis();
+    Entry<T> entry = current.get();
+    if (entry != null && entry.getAgeMillis() < 2 * ttlMillis) {
+      return CompletableFuture.completedFuture(entry);
+    }
+    // A future of its own, so a caller cancelling it does not fail the load for the others.
+    return load().thenApply(loaded -> loaded);
+  }
+
+  public T getValue() {
+    return get().getValue();
+  }
+
+  public byte[] getEncoded() {
+    return get().getEncoded();
+  }
+
+  public CompletableFuture<byte[]> getEncodedAsync() {
+    return getAsync().thenApply(Entry::getEncoded);
+  }
+
+  /**
+   * Drop the cached entry, e.g. after a write the next read must see.
+   */
+  public void invalidate() {
+    current.set(null);
+  }
+
+  /**
+   * Start a load unless one is already in flight, and return the one in flight.
+   */
+  private CompletableFuture<Entry<T>> load() {
+    CompletableFuture<Entry<T>> mine = new CompletableFuture<>();
+    while (!loading.compareAndSet(null, mine)) {
+      CompletableFuture<Entry<T>> inFlight = loading.get();
+      if (inFlight != null) {
+        return inFlight;
+      }
+    }
+    loads.incrementAndGet();
+    CompletableFuture<T> fetched;
+    try {
+      fetched = loader.get();
+    } catch (RuntimeException e) {
+      fetched = new CompletableFuture<>();
+      fetched.completeExceptionally(e);
+    }
+    fetched.whenComplete((value, error) -> {
+      if (error == null) {
+        try {
+          Entry<T> entry = new Entry<>(value, encoder.apply(value));
+          current.set(entry);
+          loading.set(null);
+          mine.complete(entry);
+          return;
+        } catch (RuntimeException e) {
+          error = e;
+        }
+      }
+      loading.set(null);
+      mine.completeExceptionally(error instanceof CompletionException
+          || error instanceof CancellationException ? error : new CompletionException(error));
+    });
+    return mine;
+  }
+
+  private void refreshIfRead() {
+    Entry<T> entry = current.get();
+    if (entry == null || lastRead < entry.loadedAt) {
+      return; // nobody asked since the last load
+    }
+    load().whenComplete((loaded, error) -> {
+      if (error != null) {
+        logger.warn("Warning: refresh " + name + " failed, " + error.getMessage() + " !!");
+      }
+    });
+  }
+
+  /**
+   * Stop the background refresh.
+   */
+  public void close() {
+    refresh.cancel(false);
+  }
+
+  public long getReads() {
+    return reads.get();
+  }
+
+  public long getLoads() {
+    return loads.get();
+  }
+
+  public static class Entry<T> {
+
+    private final T value;
+    private final byte[] encoded;
+    private final long loadedAt = System.currentTimeMillis();
+
+    Entry(T value, byte[] encoded) {
+      this.value = value;
+      this.encoded = encoded;
+    }
+
+    public T getValue() {
+      return value;
+    }
+
+    /**
+     * Shared by every reader, must not be modified.
+     */
+    public byte[] getEncoded() {
+      return encoded;
+    }
+
+    public long getAgeMillis() {
+      return System.currentTimeMillis() - loadedAt;
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package org.tron.walletserver;
+
+import io.grpc.ClientInterceptor;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.tron.common.utils.DecayingHistogram;
+import org.tron.common.utils.Histogram;
+
+/**
+ * Per RPC method client metrics: latency histogram, calls in flight, results by status code and
+ * request/response message sizes. Filled in by {@link MetricsInterceptor}, which every {@link
+ * NodeChannel} installs with the {@link #getDefault() default} instance.
+ */
+public class RpcMetrics {
+
+  private static final RpcMetrics DEFAULT = new RpcMetrics();
+
+  private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+  private final MetricsInterceptor interceptor = new MetricsInterceptor(this);
+
+  public static RpcMetrics getDefault() {
+    return DEFAULT;
+  }
+
+  public ClientInterceptor getInterceptor() {
+    return interceptor;
+  }
+
+  public MethodMetrics forMethod(String fullMethodName) {
+    MethodMetrics metrics = methods.get(fullMethodName);
+    if (metrics == null) {
+      metrics = methods.computeIfAbsent(fullMethodName, MethodMetrics::new);
+    }
+    return metrics;
+  }
+
+  /**
+   * Current values of every method that has been called, sorted by method name.
+   */
+  public List<MethodSnapshot> snapshot() {
+    List<MethodSnapshot> snapshots = new ArrayList<>();
+    for (MethodMetrics metrics : methods.values()) {
+      snapshots.add(new MethodSnapshot(metrics));
+    }
+    snapshots.sort((a, b) -> a.getMethod().compareTo(b.getMethod()));
+    return snapshots;
+  }
+
+  public void reset() {
+    for (MethodMetrics metrics : methods.values()) {
+      metrics.reset();
+    }
+  }
+
+  /**
+   * One line per method, for logs and the console.
+   */
+  public String report() {
+    StringBuilder report = new StringBuilder();
+    for (MethodSnapshot snapshot : snapshot()) {
+      report.append(snapshot).append('\n');
+    }
+    return report.toString();
+  }
+
+  public static class MethodMetrics {
+
+    private static final long RECENT_HALF_LIFE_MILLIS = 30_000L;
+    private static final long RECENT_REFRESH_MILLIS = 1_000L;
+
+    private final String method;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(Status.Code.values().length);
+    private final Histogram latencyMicros = new Histogram();
+    private final Histogram requestBytes = new Histogram();
+    private final Histogram responseBytes = new Histogram();
+    // For CallPolicy, which reads it on every call; reset() leaves it alone.
+    private final DecayingHistogram recentLatencyMicros = new DecayingHistogram(
+        RECENT_HALF_LIFE_MILLIS, RECENT_REFRESH_MILLIS);
+
+    MethodMetrics(String method) {
+      this.method = method;
+    }
+
+    void onStart() {
+      inFlight.incrementAndGet();
+    }
+
+    void onRequest(int bytes) {
+      requestBytes.record(bytes);
+    }
+
+    void onResponse(int bytes) {
+      responseBytes.record(bytes);
+    }
+
+    void onClose(Status.Code code, long elapsedNanos) {
+      inFlight.decrementAndGet();
+      statusCounts.incrementAndGet(code.ordinal());
+      long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+      latencyMicros.record(micros);
+      recentLatencyMicros.record(micros);
+    }
+
+    /**
+     * Calls of the recent past, each counting half as much per {@value #RECENT_HALF_LIFE_MILLIS}
+     * ms since it ended. Not affected by {@link RpcMetrics#reset()}.
+     */
+    public long getRecentCalls() {
+      return recentLatencyMicros.getCount();
+    }
+
+    /**
+     * Latency at {@code percentile} over the recent past, recomputed at most once a second. Not
+     * affected by {@link RpcMetrics#reset()}.
+     */
+    public long getRecentLatencyMillisAtPercentile(double percentile) {
+      return TimeUnit.MICROSECONDS.toMillis(recentLatencyMicros.getValueAtPercentile(percentile));
+    }
+
+    void reset() {
+      for (int i = 0; i < statusCounts.length(); i++) {
+        statusCounts.set(i, 0);
+      }
+      latencyMicros.reset();
+      requestBytes.reset();
+      responseBytes.reset();
+    }
+  }
+
+  /**
+   * Point in time copy of a method's metrics. Latencies are in milliseconds, sizes in bytes.
+   */
+  public static class MethodSnapshot {
+
+    private final String method;
+    private final int inFlight;
+    private final Map<String, Long> statusCounts = new LinkedHashMap<>();
+    private final long calls;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p90Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final long maxResponseBytes;
+
+    MethodSnapshot(MethodMetrics metrics) {
+      method = metrics.method;
+      inFlight = metrics.inFlight.get();
+      Status.Code[] codes = Status.Code.values();
+      for (int i = 0; i < codes.length; i++) {
+        long count = metrics.statusCounts.get(i);
+        if (count != 0) {
+          statusCounts.put(codes[i].name(), count);
+        }
+      }
+      Histogram latency = metrics.latencyMicros;
+      calls = latency.getCount();
+      meanMillis = latency.getMean() / 1000.0;
+      p50Millis = latency.getValueAtPercentile(50) / 1000.0;
+      p90Millis = latency.getValueAtPercentile(90) / 1000.0;
+      p99Millis = latency.getValueAtPercentile(99) / 1000.0;
+      p999Millis = latency.getValueAtPercentile(99.9) / 1000.0;
+      maxMillis = latency.getMax() / 1000.0;
+      requestBytes = metrics.requestBytes.getSum();
+      responseBytes = metrics.responseBytes.getSum();
+      maxResponseBytes = metrics.responseBytes.getMax();
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public int getInFlight() {
+      return inFlight;
+    }
+
+    public Map<String, Long> getStatusCounts() {
+      return statusCounts;
+    }
+
+    public long getCalls() {
+      return calls;
+    }
+
+    public double getMeanMillis() {
+      return meanMillis;
+    }
+
+    public double getP50Millis() {
+      return p50Millis;
+    }
+
+    public double getP90Millis() {
+      return p90Millis;
+    }
+
+    public double getP99Millis() {
+      return p99Millis;
+    }
+
+    public double getP999Millis() {
+      return p999Millis;
+    }
+
+    public double getMaxMillis() {
+      return maxMillis;
+    }
+
+    public long getRequestBytes() {
+      return requestBytes;
+    }
+
+    public long getResponseBytes() {
+      return responseBytes;
+    }
+
+    public long getMaxResponseBytes() {
+      return maxResponseBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s calls=%d inFlight=%d status=%s ms mean=%.2f p50=%.2f p90=%.2f"
+              + " p99=%.2f p99.9=%.2f max=%.2f bytes out=%d in=%d maxIn=%d", method, calls,
+          inFlight, statusCounts, meanMillis, p50Millis, p90Millis, p99Millis, p999Millis,
+          maxMillis, requestBytes, responseBytes, maxResponseBytes);
+    }
+  }
+}
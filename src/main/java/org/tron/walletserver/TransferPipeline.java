@@ -0,0 +1,346 @@
+package org.tron.walletserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.utils.ByteArray;
+import org.tron.common.utils.TransactionUtils;
+import org.tron.protos.Contract;
+import org.tron.protos.Protocol.Transaction;
+
+/**
+ * Bounded create -> sign -> broadcast pipeline for many transfers from one key.
+ *
+ * <p>At most {@code maxCreates} CreateTransaction calls and {@code maxBroadcasts}
+ * BroadcastTransaction calls are in flight at any time, and signing runs on {@code signThreads}
+ * worker threads. Each stage blocks the one before it when full: the caller's thread waits for a
+ * create slot, and a sign worker waits for a broadcast slot. The number of transfers anywhere in
+ * the pipeline is capped as well, so a long input is never read far ahead of the network.
+ */
+public class TransferPipeline {
+
+  private static final Logger logger = LoggerFactory.getLogger("TransferPipeline");
+
+  private final GrpcClient rpcCli;
+  private final ECKey ecKey;
+  private final int maxCreates;
+  private final int signThreads;
+  private final int maxBroadcasts;
+
+  public TransferPipeline(GrpcClient rpcCli, ECKey ecKey, int maxCreates, int signThreads,
+      int maxBroadcasts) {
+    if (ecKey == null || !ecKey.hasPrivKey()) {
+      throw new IllegalArgumentException("A private key is required to sign transfers");
+    }
+    if (maxCreates <= 0 || signThreads <= 0 || maxBroadcasts <= 0) {
+      throw new IllegalArgumentException("Pipeline limits must be positive");
+    }
+    this.rpcCli = rpcCli;
+    this.ecKey = ecKey;
+    this.maxCreates = maxCreates;
+    this.signThreads = signThreads;
+    this.maxBroadcasts = maxBroadcasts;
+  }
+
+  public TransferPipeline(GrpcClient rpcCli, ECKey ecKey, int maxInFlight) {
+    this(rpcCli, ecKey, maxInFlight, Runtime.getRuntime().availableProcessors(), maxInFlight);
+  }
+
+  /**
+   * Called once per transfer as soon as its outcome is known, from a pipeline thread.
+   */
+  public interface Listener {
+
+    void onResult(Result result);
+  }
+
+  /**
+   * Run every request through the pipeline and wait for all of them to finish.
+   */
+  public Report run(Iterator<Request> requests, Listener listener) throws InterruptedException {
+    Run run = new Run(listener);
+    long start = System.nanoTime();
+    try {
+      while (requests.hasNext()) {
+        run.submit(requests.next());
+      }
+      run.drain();
+    } finally {
+      run.signer.shutdownNow();
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    return new Report(new ArrayList<>(run.results), elapsed);
+  }
+
+  public Report run(Iterator<Request> requests) throws InterruptedException {
+    return run(requests, null);
+  }
+
+  private class Run {
+
+    private final Listener listener;
+    private final int maxPending = maxCreates + 2 * signThreads + maxBroadcasts;
+    private final Semaphore pending = new Semaphore(maxPending);
+    private final Semaphore createPermits = new Semaphore(maxCreates);
+    private final Semaphore broadcastPermits = new Semaphore(maxBroadcasts);
+    private final ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<>();
+    private final ExecutorService signer;
+    private long nextIndex = 0;
+
+    Run(Listener listener) {
+      this.listener = listener;
+      AtomicInteger threadCount = new AtomicInteger();
+      this.signer = Executors.newFixedThreadPool(signThreads, r -> {
+        Thread thread = new Thread(r, "transfer-sign-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    void submit(Request request) throws InterruptedException {
+      long index = nextIndex++;
+      pending.acquire();
+      createPermits.acquire();
+      CompletableFuture<Transaction> created;
+      try {
+        Contract.TransferContract contract = WalletClient
+            .createTransferContract(request.getTo(), ecKey.getAddress(), request.getAmount());
+        created = rpcCli.createTransactionAsync(contract);
+      } catch (RuntimeException e) {
+        createPermits.release();
+        finish(Result.failed(index, request, null, "create: " + describe(e)));
+        return;
+      }
+      created.whenComplete((transaction, error) -> {
+        createPermits.release();
+        if (error != null) {
+          finish(Result.failed(index, request, null, "create: " + describe(error)));
+        } else if (transaction == null || transaction.getRawData().getContractCount() == 0) {
+          finish(Result.failed(index, request, null, "create: empty transaction"));
+        } else {
+          try {
+            signer.execute(() -> signAndBroadcast(index, request, transaction));
+          } catch (RejectedExecutionException e) {
+            finish(Result.failed(index, request, null, "sign: pipeline stopped"));
+          }
+        }
+      });
+    }
+
+    private void signAndBroadcast(long index, Request request, Transaction transaction) {
+      Transaction signed;
+      String txId;
+      try {
+        byte[] id = TransactionUtils.getTransactionId(transaction);
+        signed = TransactionUtils.sign(transaction, ecKey, id);
+        txId = ByteArray.toHexString(id);
+      } catch (RuntimeException e) {
+        finish(Result.failed(index, request, null, "sign: " + describe(e)));
+        return;
+      }
+      try {
+        broadcastPermits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        finish(Result.failed(index, request, txId, "broadcast: interrupted"));
+        return;
+      }
+      CompletableFuture<Boolean> broadcast;
+      try {
+        broadcast = rpcCli.broadcastTransactionAsync(signed);
+      } catch (RuntimeException e) {
+        broadcastPermits.release();
+        finish(Result.failed(index, request, txId, "broadcast: " + describe(e)));
+        return;
+      }
+      broadcast.whenComplete((ok, error) -> {
+        broadcastPermits.release();
+        if (error != null) {
+          finish(Result.failed(index, request, txId, "broadcast: " + describe(error)));
+        } else if (!Boolean.TRUE.equals(ok)) {
+          finish(Result.failed(index, request, txId, "broadcast: rejected by full node"));
+        } else {
+          finish(Result.succeeded(index, request, txId));
+        }
+      });
+    }
+
+    private void finish(Result result) {
+      results.add(result);
+      if (listener != null) {
+        try {
+          listener.onResult(result);
+        } catch (RuntimeException e) {
+          logger.warn("Transfer listener failed", e);
+        }
+      }
+      pending.release();
+    }
+
+    void drain() throws InterruptedException {
+      pending.acquire(maxPending);
+      pending.release(maxPending);
+    }
+  }
+
+  private static String describe(Throwable error) {
+    if (error instanceof CompletionException && error.getCause() != null) {
+      error = error.getCause();
+    }
+    String message = error.getMessage();
+    return message == null ? error.getClass().getSimpleName() : message;
+  }
+
+  public static class Request {
+
+    private final byte[] to;
+    private final long amount;
+
+    public Request(byte[] to, long amount) {
+      this.to = to;
+      this.amount = amount;
+    }
+
+    public byte[] getTo() {
+      return to;
+    }
+
+    public long getAmount() {
+      return amount;
+    }
+  }
+
+  public static class Result {
+
+    private final long index;
+    private final Request request;
+    private final boolean success;
+    private final String transactionId;
+    private final String reason;
+
+    private Result(long index, Request request, boolean success, String transactionId,
+        String reason) {
+      this.index = index;
+      this.request = request;
+      this.success = success;
+      this.transactionId = transactionId;
+      this.reason = reason;
+    }
+
+    static Result succeeded(long index, Request request, String transactionId) {
+      return new Result(index, request, true, transactionId, null);
+    }
+
+    static Result failed(long index, Request request, String transactionId, String reason) {
+      return new Result(index, request, false, transactionId, reason);
+    }
+
+    /**
+     * Position of the request in the input, starting at 0.
+     */
+    public long getIndex() {
+      return index;
+    }
+
+    public Request getRequest() {
+      return request;
+    }
+
+    public boolean isSuccess() {
+      return success;
+    }
+
+    /**
+     * Hex SHA-256 of the signed raw data, or null if the transfer failed before signing.
+     */
+    public String getTransactionId() {
+      return transactionId;
+    }
+
+    public String getReason() {
+      return reason;
+    }
+
+    /**
+     * The result as a CSV row: index, to, amount, status, transaction id, reason. The reason is
+     * free text, e.g. a node's error message, so it is quoted as RFC 4180 has it when needed.
+     */
+    @Override
+    public String toString() {
+      return index + "," + ByteArray.toHexString(request.getTo()) + "," + request.getAmount() + ","
+          + (success ? "SUCCESS" : "FAILED") + "," + (transactionId == null ? "" : transactionId)
+          + "," + (reason == null ? "" : csvField(reason));
+    }
+
+    private static String csvField(String value) {
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+          && value.indexOf('\r') < 0) {
+        return value;
+      }
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+  }
+
+  public static class Report {
+
+    private final List<Result> results;
+    private final long elapsedMillis;
+    private final long succeeded;
+
+    Report(List<Result> results, long elapsedMillis) {
+      results.sort(Comparator.comparingLong(Result::getIndex));
+      this.results = Collections.unmodifiableList(results);
+      this.elapsedMillis = elapsedMillis;
+      long ok = 0;
+      for (Result result : results) {
+        if (result.isSuccess()) {
+          ok++;
+        }
+      }
+      this.succeeded = ok;
+    }
+
+    /**
+     * Per transfer results in input order.
+     */
+    public List<Result> getResults() {
+      return results;
+    }
+
+    public long getSucceeded() {
+      return succeeded;
+    }
+
+    public long getFailed() {
+      return results.size() - succeeded;
+    }
+
+    public long getElapsedMillis() {
+      return elapsedMillis;
+    }
+
+    public double getThroughput() {
+      return elapsedMillis == 0 ? results.size() : results.size() * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d transfers, %d succeeded, %d failed in %d ms (%.1f/s)",
+          results.size(), succeeded, getFailed(), elapsedMillis, getThroughput());
+    }
+  }
+}
@@ -3,24 +3,39 @@ package org.tron.walletserver;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.typesafe.config.Config;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Hex;
 import org.tron.api.GrpcAPI.AccountList;
 import org.tron.api.GrpcAPI.WitnessList;
+import org.tron.common.crypto.BasePointMultiplier;
 import org.tron.common.crypto.ECKey;
 import org.tron.common.crypto.Hash;
-import org.tron.common.crypto.SymmEncoder;
+import org.tron.common.crypto.PublicKeyCache;
+import org.tron.common.utils.AtomicFile;
 import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.TransactionUtils;
 import org.tron.common.utils.Utils;
 import org.tron.core.config.Configuration;
+import org.tron.keystore.KdfParams;
+import org.tron.keystore.Keystore;
+import org.tron.keystore.UnlockedKeyCache;
 import org.tron.protos.Contract;
 import org.tron.protos.Protocol.AccountType;
 import org.tron.protos.Protocol.Transaction;
@@ -28,16 +43,62 @@ import org.tron.protos.Protocol.Transaction;
 public class WalletClient {
 
   private static final Logger logger = LoggerFactory.getLogger("WalletClient");
+  // Legacy single-key wallet, only read: its key is imported into the keystore.
   private static final String FilePath = "Wallet";
+  private static final String KeystorePath = "keystore";
+  // Public key of the current wallet; its private key is only in the keystore.
+  private static final String CurrentPubKeyPath = KeystorePath + "/current.pub";
+  private static Keystore keystore;
+  private static UnlockedKeyCache unlockedKeys;
   private ECKey ecKey = null;
   private boolean loginState = false;
 
-  private static GrpcClient rpcCli = init();
+  private static volatile GrpcClient rpcCli = init();
 
   public static GrpcClient init() {
     Config config = Configuration.getByPath("config.conf");
+    if (config.hasPath("crypto.basePointMultiplier")) {
+      ECKey.setBasePointMultiplier(
+          BasePointMultiplier.fromName(config.getString("crypto.basePointMultiplier")));
+    }
+    if (config.hasPath("crypto.publicKeyCache.maxEntries")) {
+      PublicKeyCache.setDefault(
+          new PublicKeyCache(config.getInt("crypto.publicKeyCache.maxEntries")));
+    }
     List<String> fullnodelist = config.getStringList("fullnode.ip.list");
-    return new GrpcClient(fullnodelist.get(0));
+    LoadBalancePolicy policy = LoadBalancePolicy.ROUND_ROBIN;
+    if (config.hasPath("fullnode.loadBalance")) {
+      policy = LoadBalancePolicy.fromName(config.getString("fullnode.loadBalance"));
+    }
+    int failureThreshold = 3;
+    if (config.hasPath("fullnode.health.failureThreshold")) {
+      failureThreshold = config.getInt("fullnode.health.failureThreshold");
+    }
+    long ejectMillis = 10_000L;
+    if (config.hasPath("fullnode.health.ejectMillis")) {
+      ejectMillis = config.getLong("fullnode.health.ejectMillis");
+    }
+    ChannelPool pool = ChannelPool.forTargets(fullnodelist, policy, failureThreshold, ejectMillis);
+    if (config.hasPath("fullnode.health.checkIntervalMillis")) {
+      pool.startHealthCheck(config.getLong("fullnode.health.checkIntervalMillis"),
+          TimeUnit.MILLISECONDS);
+    }
+    return new GrpcClient(pool, CallPolicy.fromConfig(config));
+  }
+
+  /**
+   * Point every WalletClient at another client, such as one connected to a stand-in full node.
+   *
+   * @return the client used until now
+   */
+  public static synchronized GrpcClient setGrpcClient(GrpcClient client) {
+    GrpcClient previous = rpcCli;
+    rpcCli = client;
+    return previous;
+  }
+
+  public static GrpcClient getGrpcClient() {
+    return rpcCli;
   }
 
   /**
@@ -75,21 +136,89 @@ public class WalletClient {
   }
 
   /**
-   * Get a Wallet from storage
+   * Get the current Wallet from storage, its private key unlocked from the keystore
    */
   public static WalletClient GetWalletByStorage(String password) {
-    String priKeyEnced = loadPriKey();
-    if (priKeyEnced == null) {
+    byte[] address = getCurrentAddress();
+    if (address == null) {
       return null;
     }
-    //dec priKey
-    byte[] priKeyAscEnced = priKeyEnced.getBytes();
-    byte[] priKeyHexEnced = Hex.decode(priKeyAscEnced);
-    byte[] aesKey = getEncKey(password);
-    byte[] priKeyHexPlain = SymmEncoder.AES128EcbDec(priKeyHexEnced, aesKey);
-    String priKeyPlain = Hex.toHexString(priKeyHexPlain);
+    ECKey key = unlockKey(address, password);
+    return key == null ? null : new WalletClient(key);
+  }
 
-    return new WalletClient(priKeyPlain);
+  /**
+   * Get a logged in Wallet for one of the keys in the keystore
+   */
+  public static WalletClient GetWalletByKeystore(byte[] address, String password) {
+    try {
+      ECKey key = getUnlockedKeys().unlock(address, password);
+      if (key == null) {
+        return null;
+      }
+      WalletClient wallet = new WalletClient(key);
+      wallet.loginState = true;
+      return wallet;
+    } catch (IOException e) {
+      logger.warn("Warning: Read keystore failed, " + e.getMessage() + " !!");
+      return null;
+    }
+  }
+
+  /**
+   * The keystore holding every key stored so far, opened on first use. The key of an existing
+   * single-key Wallet file is imported into it then if it is not stored yet, and new keys are
+   * encrypted with the KDF cost in {@code wallet.kdf}.
+   */
+  public static synchronized Keystore getKeystore() throws IOException {
+    if (keystore == null) {
+      KdfParams.setDefault(KdfParams.fromConfig(Configuration.getByPath("config.conf")));
+      Keystore opened = Keystore.open(Paths.get(KeystorePath));
+      Path legacy = Paths.get(FilePath);
+      if (Files.isRegularFile(legacy)) {
+        byte[] address = opened.importLegacyWallet(legacy);
+        if (address != null) {
+          logger.info("Imported wallet " + ByteArray.toHexString(address) + " into keystore");
+        }
+      }
+      keystore = opened;
+    }
+    return keystore;
+  }
+
+  /**
+   * The keys unlocked in this session, taken from the keystore on first use and locked again
+   * after {@code wallet.unlock.idleTimeoutMillis} without use.
+   */
+  public static synchronized UnlockedKeyCache getUnlockedKeys() {
+    if (unlockedKeys == null) {
+      Config config = Configuration.getByPath("config.conf");
+      long idleTimeoutMillis = 300_000L;
+      if (config.hasPath("wallet.unlock.idleTimeoutMillis")) {
+        idleTimeoutMillis = config.getLong("wallet.unlock.idleTimeoutMillis");
+      }
+      int maxKeys = 1000;
+      if (config.hasPath("wallet.unlock.maxKeys")) {
+        maxKeys = config.getInt("wallet.unlock.maxKeys");
+      }
+      unlockedKeys = new UnlockedKeyCache(
+          (address, password) -> getKeystore().unlock(address, password), idleTimeoutMillis,
+          maxKeys);
+    }
+    return unlockedKeys;
+  }
+
+  /**
+   * The key for {@code address} with its private part, or null if it is not stored or the
+   * password is wrong. Only the first unlock within the idle timeout reads the keystore.
+   */
+  public static ECKey unlockKey(byte[] address, String password) {
+    try {
+      return getUnlockedKeys().unlock(address, password);
+    } catch (IOException e) {
+      logger.warn("Warning: Read keystore failed, " + e.getMessage() + " !!");
+      return null;
+    }
   }
 
   /**
@@ -113,22 +242,21 @@ public class WalletClient {
       logger.warn("Warning: Store wallet failed, PrivKey is null !!");
       return;
     }
-    byte[] pwd = getPassWord(password);
-    String pwdAsc = ByteArray.toHexString(pwd);
-    byte[] privKeyPlain = ecKey.getPrivKeyBytes();
-    //encrypted by password
-    byte[] aseKey = getEncKey(password);
-    byte[] privKeyEnced = SymmEncoder.AES128EcbEnc(privKeyPlain, aseKey);
-    String privKeyStr = ByteArray.toHexString(privKeyEnced);
-    System.out.println("privKeyStr:" + privKeyStr);
-    byte[] pubKeyBytes = ecKey.getPubKey();
-    String pubKeyStr = ByteArray.toHexString(pubKeyBytes);
-    // SAVE PASSWORD
-    FileUtil.saveData(FilePath, pwdAsc, false);//ofset:0 len:32
-    // SAVE PUBKEY
-    FileUtil.saveData(FilePath, pubKeyStr, true);//ofset:32 len:130
-    // SAVE PRIKEY
-    FileUtil.saveData(FilePath, privKeyStr, true);
+    // The private key goes into the keystore only, under its KDF; the legacy Wallet file is
+    // never written again.
+    try {
+      getKeystore().add(ecKey, password);
+    } catch (IOException e) {
+      logger.warn("Warning: Store wallet failed, " + e.getMessage() + " !!");
+      return;
+    }
+    String pubKeyStr = ByteArray.toHexString(ecKey.getPubKey());
+    try {
+      AtomicFile.of(Paths.get(CurrentPubKeyPath))
+          .write(pubKeyStr.getBytes(StandardCharsets.US_ASCII));
+    } catch (IOException e) {
+      logger.warn("Warning: Store wallet failed, " + e.getMessage() + " !!");
+    }
   }
 
   public long getBalance() {
@@ -169,6 +297,15 @@ public class WalletClient {
     return rpcCli.broadcastTransaction(transaction);
   }
 
+  /**
+   * Send many transfers from this wallet through a {@link TransferPipeline} with at most {@code
+   * maxInFlight} creates and broadcasts outstanding.
+   */
+  public TransferPipeline.Report sendCoins(Iterator<TransferPipeline.Request> requests,
+      int maxInFlight, TransferPipeline.Listener listener) throws InterruptedException {
+    return new TransferPipeline(rpcCli, this.ecKey, maxInFlight).run(requests, listener);
+  }
+
   public boolean createAccount(AccountType accountType, byte[] accountName) {
     Transaction transaction = createAccountTransaction(accountType, accountName, getAddress());
     if (transaction == null || transaction.getRawData().getContractCount() == 0) {
@@ -186,6 +323,13 @@ public class WalletClient {
     return rpcCli.createAccount(contract);
   }
 
+  public static CompletableFuture<Transaction> createAccountTransactionAsync(
+      AccountType accountType, byte[] accountName, byte[] address) {
+    Contract.AccountCreateContract contract = createAccountCreateContract(accountType, accountName,
+        address);
+    return rpcCli.createAccountAsync(contract);
+  }
+
   public static boolean broadcastTransaction(byte[] transactionBytes)
       throws InvalidProtocolBufferException {
     Transaction transaction = Transaction.parseFrom(transactionBytes);
@@ -195,6 +339,67 @@ public class WalletClient {
     return rpcCli.broadcastTransaction(transaction);
   }
 
+  public static CompletableFuture<Boolean> broadcastTransactionAsync(byte[] transactionBytes)
+      throws InvalidProtocolBufferException {
+    Transaction transaction = Transaction.parseFrom(transactionBytes);
+    if (false == TransactionUtils.validTransaction(transaction)) {
+      return CompletableFuture.completedFuture(false);
+    }
+    return rpcCli.broadcastTransactionAsync(transaction);
+  }
+
+  /**
+   * Validate a batch of serialized transactions in parallel, then broadcast the valid ones
+   * concurrently.
+   *
+   * @return one result per transaction, in input order: true if it parsed, passed validation and
+   * was accepted by the full node
+   */
+  public static boolean[] broadcastTransactions(List<byte[]> transactionBytes) {
+    return broadcastTransactionsAsync(transactionBytes).join();
+  }
+
+  /**
+   * Like {@link #broadcastTransactions(List)}, completing once every broadcast has. The
+   * transactions are validated on the validation pool, not on the calling thread.
+   */
+  public static CompletableFuture<boolean[]> broadcastTransactionsAsync(
+      List<byte[]> transactionBytes) {
+    boolean[] results = new boolean[transactionBytes.size()];
+    List<Transaction> transactions = new ArrayList<>(transactionBytes.size());
+    List<Integer> positions = new ArrayList<>(transactionBytes.size());
+    for (int i = 0; i < transactionBytes.size(); i++) {
+      try {
+        transactions.add(Transaction.parseFrom(transactionBytes.get(i)));
+        positions.add(i);
+      } catch (InvalidProtocolBufferException e) {
+        logger.warn("Warning: transaction " + i + " is not a valid Transaction !!");
+      }
+    }
+    // Checking signatures is CPU bound; keep it off the caller's thread.
+    return TransactionUtils.validateAllAsync(transactions).thenCompose(verdicts -> {
+      CompletableFuture<?>[] broadcasts = new CompletableFuture<?>[transactions.size()];
+      for (int i = 0; i < transactions.size(); i++) {
+        if (!verdicts[i]) {
+          broadcasts[i] = CompletableFuture.completedFuture(null);
+          continue;
+        }
+        int position = positions.get(i);
+        broadcasts[i] = rpcCli.broadcastTransactionAsync(transactions.get(i))
+            .handle((ok, error) -> {
+              if (error != null) {
+                logger.warn("Warning: broadcast transaction " + position + " failed, "
+                    + error.getMessage() + " !!");
+              } else {
+                results[position] = Boolean.TRUE.equals(ok);
+              }
+              return null;
+            });
+      }
+      return CompletableFuture.allOf(broadcasts).thenApply(done -> results);
+    });
+  }
+
   public boolean createAssetIssue(Contract.AssetIssueContract contract) {
     Transaction transaction = rpcCli.createAssetIssue(contract);
     if (transaction == null || transaction.getRawData().getContractCount() == 0) {
@@ -223,6 +428,17 @@ public class WalletClient {
     return rpcCli.createAssetIssue(contract);
   }
 
+  public static CompletableFuture<Transaction> createWitnessTransactionAsync(byte[] owner,
+      byte[] url) {
+    Contract.WitnessCreateContract contract = createWitnessCreateContract(owner, url);
+    return rpcCli.createWitnessAsync(contract);
+  }
+
+  public static CompletableFuture<Transaction> createAssetIssueTransactionAsync(
+      Contract.AssetIssueContract contract) {
+    return rpcCli.createAssetIssueAsync(contract);
+  }
+
 
   public boolean voteWitness(HashMap<String, String> witness) {
     byte[] owner = getAddress();
@@ -235,6 +451,47 @@ public class WalletClient {
     return rpcCli.broadcastTransaction(transaction);
   }
 
+  public CompletableFuture<Boolean> sendCoinAsync(byte[] to, long amount) {
+    byte[] owner = getAddress();
+    Contract.TransferContract contract = createTransferContract(to, owner, amount);
+    return signAndBroadcastAsync(rpcCli.createTransactionAsync(contract));
+  }
+
+  public CompletableFuture<Boolean> createAccountAsync(AccountType accountType,
+      byte[] accountName) {
+    Contract.AccountCreateContract contract = createAccountCreateContract(accountType, accountName,
+        getAddress());
+    return signAndBroadcastAsync(rpcCli.createAccountAsync(contract));
+  }
+
+  public CompletableFuture<Boolean> createAssetIssueAsync(Contract.AssetIssueContract contract) {
+    return signAndBroadcastAsync(rpcCli.createAssetIssueAsync(contract));
+  }
+
+  public CompletableFuture<Boolean> voteWitnessAsync(HashMap<String, String> witness) {
+    byte[] owner = getAddress();
+    Contract.VoteWitnessContract contract = createVoteWitnessContract(owner, witness);
+    return signAndBroadcastAsync(rpcCli.voteWitnessAccountAsync(contract));
+  }
+
+  private CompletableFuture<Boolean> signAndBroadcastAsync(
+      CompletableFuture<Transaction> created) {
+    return created.thenCompose(transaction -> {
+      if (transaction == null || transaction.getRawData().getContractCount() == 0) {
+        return CompletableFuture.completedFuture(false);
+      }
+      transaction = signTransaction(transaction);
+      if (transaction == null) {
+        return CompletableFuture.completedFuture(false);
+      }
+      return rpcCli.broadcastTransactionAsync(transaction);
+    });
+  }
+
+  public static CompletableFuture<Long> getBalanceAsync(byte[] address) {
+    return rpcCli.getBalanceAsync(address);
+  }
+
   public static Contract.TransferContract createTransferContract(byte[] to, byte[] owner,
       long amount) {
     Contract.TransferContract.Builder builder = Contract.TransferContract.newBuilder();
@@ -252,6 +509,11 @@ public class WalletClient {
     return transaction;
   }
 
+  public static CompletableFuture<Transaction> createTransaction4TransferAsync(
+      Contract.TransferContract contract) {
+    return rpcCli.createTransactionAsync(contract);
+  }
+
   public static Contract.AccountCreateContract createAccountCreateContract(AccountType accountType,
       byte[] accountName, byte[] address) {
     Contract.AccountCreateContract.Builder builder = Contract.AccountCreateContract.newBuilder();
@@ -290,31 +552,43 @@ public class WalletClient {
     return builder.build();
   }
 
-  private static String loadPassword() {
+  /**
+   * The legacy Wallet file, read once and then served from memory until it changes.
+   */
+  private static String loadWallet() {
     char[] buf = new char[0x100];
     int len = FileUtil.readData(FilePath, buf);
     if (len != 226) {
       return null;
     }
-    return String.valueOf(buf, 0, 32);
+    return String.valueOf(buf, 0, len);
   }
 
+  /**
+   * The public key of the current wallet: the one stored last, or else the one of the legacy
+   * Wallet file.
+   */
   public static String loadPubKey() {
     char[] buf = new char[0x100];
-    int len = FileUtil.readData(FilePath, buf);
-    if (len != 226) {
-      return null;
+    int len = FileUtil.readData(CurrentPubKeyPath, buf);
+    if (len == 130) {
+      return String.valueOf(buf, 0, len);
     }
-    return String.valueOf(buf, 32, 130);
+    String wallet = loadWallet();
+    return wallet == null ? null : wallet.substring(32, 162);
   }
 
-  private static String loadPriKey() {
-    char[] buf = new char[0x100];
-    int len = FileUtil.readData(FilePath, buf);
-    if (len != 226) {
+  private static byte[] getCurrentAddress() {
+    String pubKey = loadPubKey();
+    if (pubKey == null) {
+      return null;
+    }
+    try {
+      return ECKey.computeAddress(Hex.decode(pubKey));
+    } catch (RuntimeException e) {
+      logger.warn("Warning: Stored public key is invalid, " + e.getMessage() + " !!");
       return null;
     }
-    return String.valueOf(buf, 162, 64);
   }
 
   /**
@@ -344,25 +618,13 @@ public class WalletClient {
       }
       byte[] pubKeyAsc = pubKey.getBytes();
       byte[] pubKeyHex = Hex.decode(pubKeyAsc);
-      ECKey eccKey = ECKey.fromPublicOnly(pubKeyHex);
-      return ByteArray.toHexString(eccKey.getAddress());
+      return ByteArray.toHexString(ECKey.computeAddress(pubKeyHex));
     } catch (Exception ex) {
       ex.printStackTrace();
       return null;
     }
   }
 
-  public static byte[] getPassWord(String password) {
-    if (!passwordValid(password)) {
-      return null;
-    }
-    byte[] pwd;
-    pwd = Hash.sha256(password.getBytes());
-    pwd = Hash.sha256(pwd);
-    pwd = Arrays.copyOfRange(pwd, 0, 16);
-    return pwd;
-  }
-
   public static byte[] getEncKey(String password) {
     if (!passwordValid(password)) {
       return null;
@@ -373,14 +635,16 @@ public class WalletClient {
     return encKey;
   }
 
+  /**
+   * Whether {@code password} unlocks the key of the current wallet in the keystore. The key
+   * stays unlocked for the session, so the check after it is cheap.
+   */
   public static boolean checkPassWord(String password) {
-    byte[] pwd = getPassWord(password);
-    if (pwd == null) {
+    if (!passwordValid(password)) {
       return false;
     }
-    String pwdAsc = ByteArray.toHexString(pwd);
-    String pwdInstore = loadPassword();
-    return pwdAsc.equals(pwdInstore);
+    byte[] address = getCurrentAddress();
+    return address != null && unlockKey(address, password) != null;
   }
 
   public static boolean passwordValid(String password) {
@@ -429,4 +693,24 @@ public class WalletClient {
   public static Optional<WitnessList> listWitnesses() {
     return rpcCli.listWitnesses();
   }
+
+  public static AccountCursor listAccountsCursor() {
+    return rpcCli.listAccountsCursor();
+  }
+
+  public static CompletableFuture<AccountCursor> listAccountsCursorAsync() {
+    return rpcCli.listAccountsCursorAsync();
+  }
+
+  public static CompletableFuture<byte[]> listAccountsEncodedAsync() {
+    return rpcCli.listAccountsEncodedAsync();
+  }
+
+  public static CompletableFuture<AccountList> listAccountsAsync() {
+    return rpcCli.listAccountsAsync();
+  }
+
+  public static CompletableFuture<WitnessList> listWitnessesAsync() {
+    return rpcCli.listWitnessesAsync();
+  }
 }
@@ -0,0 +1,83 @@
+package org.tron.common.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+import org.tron.common.crypto.ECKey.ECDSASignature;
+
+public class BasePointMultiplierTest {
+
+  private static final BigInteger N = ECKey.CURVE.getN();
+
+  private final BasePointMultiplier selected = ECKey.getBasePointMultiplier();
+
+  @After
+  public void restoreMultiplier() {
+    ECKey.setBasePointMultiplier(selected);
+  }
+
+  private static List<BigInteger> scalars() {
+    List<BigInteger> scalars = new ArrayList<>();
+    scalars.add(BigInteger.ONE);
+    scalars.add(BigInteger.valueOf(2));
+    scalars.add(BigInteger.valueOf(3));
+    scalars.add(N.subtract(BigInteger.ONE));
+    scalars.add(N.subtract(BigInteger.valueOf(2)));
+    scalars.add(N.shiftRight(1));
+    scalars.add(N.shiftRight(1).add(BigInteger.ONE));
+    scalars.add(BigInteger.ONE.shiftLeft(255));
+    scalars.add(BigInteger.ONE.shiftLeft(255).subtract(BigInteger.ONE));
+    scalars.add(BigInteger.ONE.shiftLeft(128));
+    // The top 127 bits all set, as in n itself.
+    scalars.add(N.subtract(BigInteger.ONE.shiftLeft(128)));
+    Random random = new Random(5);
+    for (int i = 0; i < 100; i++) {
+      BigInteger k = new BigInteger(256, random).mod(N);
+      // Half of them with the top bits forced on.
+      if (i % 2 == 0) {
+        k = k.setBit(255).setBit(254).mod(N);
+      }
+      if (k.signum() != 0) {
+        scalars.add(k);
+      }
+    }
+    return scalars;
+  }
+
+  @Test
+  public void combGivesSamePointsAsGeneric() {
+    for (BigInteger k : scalars()) {
+      assertEquals("k = " + k.toString(16), BasePointMultiplier.GENERIC.multiply(k),
+          BasePointMultiplier.COMB.multiply(k));
+    }
+  }
+
+  @Test
+  public void combGivesSamePublicKeysAndSignatures() throws Exception {
+    Random random = new Random(55);
+    for (BigInteger k : scalars()) {
+      byte[] hash = new byte[32];
+      random.nextBytes(hash);
+
+      ECKey.setBasePointMultiplier(BasePointMultiplier.GENERIC);
+      ECKey generic = ECKey.fromPrivate(k);
+      ECDSASignature genericSignature = generic.sign(hash);
+
+      ECKey.setBasePointMultiplier(BasePointMultiplier.COMB);
+      ECKey comb = ECKey.fromPrivate(k);
+      ECDSASignature combSignature = comb.sign(hash);
+
+      assertArrayEquals(generic.getPubKey(), comb.getPubKey());
+      assertEquals(genericSignature.r, combSignature.r);
+      assertEquals(genericSignature.s, combSignature.s);
+      assertEquals(genericSignature.v, combSignature.v);
+      assertArrayEquals(generic.getAddress(), ECKey.signatureToAddress(hash, combSignature));
+    }
+  }
+}
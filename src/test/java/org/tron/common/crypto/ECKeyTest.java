@@ -0,0 +1,63 @@
+package org.tron.common.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.Test;
+import org.tron.common.crypto.ECKey.ECDSASignature;
+
+public class ECKeyTest {
+
+  private static final int ROUNDS = 300;
+
+  private static ECKey randomKey(Random random) {
+    BigInteger d;
+    do {
+      d = new BigInteger(256, random);
+    } while (d.signum() == 0 || d.compareTo(ECKey.CURVE.getN()) >= 0);
+    return ECKey.fromPrivate(d);
+  }
+
+  private static byte[] randomHash(Random random) {
+    byte[] hash = new byte[32];
+    random.nextBytes(hash);
+    return hash;
+  }
+
+  @Test
+  public void recoverableSignatureMatchesRecoveryIdSearch() throws Exception {
+    Random random = new Random(6);
+    for (int i = 0; i < ROUNDS; i++) {
+      ECKey key = randomKey(random);
+      byte[] hash = randomHash(random);
+
+      ECDSASignature recoverable = key.doSignRecoverable(hash);
+      ECDSASignature plain = key.doSign(hash);
+      assertEquals(plain.r, recoverable.r);
+      assertEquals(plain.s, recoverable.s);
+      assertEquals(key.findRecoveryId(recoverable, hash) + 27, recoverable.v);
+
+      assertArrayEquals(key.getAddress(), ECKey.signatureToAddress(hash, recoverable));
+      // Transactions store the recovery id as 0 to 3, other callers pass the 27 to 30 header.
+      byte[] raw = recoverable.toByteArray();
+      assertEquals(recoverable.v - 27, raw[64]);
+      assertArrayEquals(key.getAddress(), ECKey.signatureToAddress(hash, raw));
+      raw[64] += 27;
+      assertArrayEquals(key.getAddress(), ECKey.signatureToAddress(hash, raw));
+    }
+  }
+
+  @Test
+  public void signUsesRecoverablePath() throws Exception {
+    Random random = new Random(7);
+    for (int i = 0; i < 20; i++) {
+      ECKey key = randomKey(random);
+      byte[] hash = randomHash(random);
+      ECDSASignature signature = key.sign(hash);
+      assertEquals(key.findRecoveryId(signature, hash) + 27, signature.v);
+      assertArrayEquals(key.getAddress(), ECKey.signatureToAddress(hash, signature));
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package org.tron.common.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.spongycastle.crypto.digests.KeccakDigest;
+import org.spongycastle.util.encoders.Hex;
+
+public class HashTest {
+
+  private static final byte[] HELLO = "hello".getBytes(StandardCharsets.UTF_8);
+  // The rate of Keccak-256 in bytes: inputs around multiples of it end a block exactly.
+  private static final int BLOCK = 136;
+
+  /**
+   * Keccak of {@code bitLength} with the spongycastle engine, as an independent reference.
+   */
+  private static byte[] reference(int bitLength, byte[] input, int start, int length) {
+    KeccakDigest digest = new KeccakDigest(bitLength);
+    digest.update(input, start, length);
+    byte[] out = new byte[digest.getDigestSize()];
+    digest.doFinal(out, 0);
+    return out;
+  }
+
+  private static int[] lengths() {
+    int[] lengths = new int[3 * BLOCK + 2];
+    for (int i = 0; i < lengths.length; i++) {
+      lengths[i] = i;
+    }
+    return lengths;
+  }
+
+  /**
+   * {@code input} copied into a buffer of {@code kind} with {@code offset} bytes before its
+   * position and some after its limit.
+   */
+  private static ByteBuffer buffer(String kind, byte[] input, int offset) {
+    ByteBuffer buffer = kind.equals("direct")
+        ? ByteBuffer.allocateDirect(offset + input.length + 7)
+        : ByteBuffer.allocate(offset + input.length + 7);
+    if (kind.equals("little-endian")) {
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    buffer.position(offset);
+    buffer.put(input);
+    buffer.limit(offset + input.length);
+    buffer.position(offset);
+    if (kind.equals("sliced")) {
+      return buffer.slice();
+    }
+    return kind.equals("read-only") ? buffer.asReadOnlyBuffer() : buffer;
+  }
+
+  @Test
+  public void knownAnswers() {
+    assertArrayEquals(Hex.decode(
+        "c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470"),
+        Hash.sha3(new byte[0]));
+    assertArrayEquals(Hex.decode(
+        "4e03657aea45a94fc7d47ba826c8d667c0d1e6e33a64a036ec44f58fa12d6c45"),
+        Hash.sha3("abc".getBytes(StandardCharsets.US_ASCII)));
+    assertArrayEquals(Hex.decode(
+        "0eab42de4c3ceb9235fc91acffe746b29c29a8c366b7c60e4e67c466f36a4304"
+            + "c00fa9caf9d87976ba469bcbe06713b435f091ef2769fb160cdab33d3670680e"),
+        Hash.sha512(new byte[0]));
+  }
+
+  @Test
+  public void byteArraysMatchTheReference() {
+    Random random = new Random(20);
+    byte[] out = new byte[Hash.SHA3_LENGTH + 5];
+    for (int length : lengths()) {
+      for (int offset : new int[] {0, 1, 7, 8, 13}) {
+        byte[] input = new byte[offset + length + 3];
+        random.nextBytes(input);
+        byte[] expected = reference(256, input, offset, length);
+        String at = "length " + length + ", offset " + offset;
+
+        assertArrayEquals(at, expected, Hash.sha3(input, offset, length));
+        assertEquals(at, Hash.SHA3_LENGTH, Hash.sha3(input, offset, length, out, 5));
+        assertArrayEquals(at, expected, Arrays.copyOfRange(out, 5, out.length));
+        assertArrayEquals(at, Arrays.copyOfRange(expected, 12, Hash.SHA3_LENGTH),
+            Hash.sha3omit12(input, offset, length));
+        byte[] exact = Arrays.copyOfRange(input, offset, offset + length);
+        assertArrayEquals(at, expected, Hash.sha3(exact));
+        assertArrayEquals(at, reference(512, input, offset, length),
+            Hash.sha512(exact));
+
+        int split = length / 3;
+        assertArrayEquals(at, expected, Hash.sha3(Arrays.copyOf(exact, split),
+            Arrays.copyOfRange(exact, split, length)));
+      }
+    }
+  }
+
+  @Test
+  public void buffersMatchTheReference() {
+    Random random = new Random(21);
+    String[] kinds = {"heap", "direct", "little-endian", "read-only", "sliced"};
+    byte[] out = new byte[Hash.SHA3_LENGTH + 3];
+    for (int length : lengths()) {
+      byte[] input = new byte[length];
+      random.nextBytes(input);
+      byte[] expected = reference(256, input, 0, length);
+      byte[] expected512 = reference(512, input, 0, length);
+      for (String kind : kinds) {
+        for (int offset : new int[] {0, 3, 8}) {
+          String at = kind + " buffer, length " + length + ", offset " + offset;
+          ByteBuffer buffer = buffer(kind, input, offset);
+          int position = buffer.position();
+
+          assertArrayEquals(at, expected, Hash.sha3(buffer));
+          assertEquals(at, Hash.SHA3_LENGTH, Hash.sha3(buffer, out, 3));
+          assertArrayEquals(at, expected, Arrays.copyOfRange(out, 3, out.length));
+          assertArrayEquals(at, expected512, Hash.sha512(buffer));
+          assertArrayEquals(at, Hash.sha256(input), Hash.sha256(buffer));
+          assertEquals(at, position, buffer.position());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void digestEachMatchesTheReference() {
+    Random random = new Random(22);
+    // Counts above what fits in one pass of the scratch space, and strides with gaps.
+    int[][] layouts = {{0, 0, 3}, {1, 1, 5}, {65, 65, 40}, {65, 70, 300}, {BLOCK - 1, BLOCK, 9},
+        {BLOCK, BLOCK + 3, 9}, {BLOCK + 1, BLOCK + 1, 9}, {2 * BLOCK, 2 * BLOCK + 1, 4}};
+    for (int[] layout : layouts) {
+      int length = layout[0];
+      int stride = layout[1];
+      int count = layout[2];
+      int inOffset = 5;
+      byte[] input = new byte[inOffset + stride * count + length];
+      random.nextBytes(input);
+      byte[] out = new byte[2 + count * Hash.ADDRESS_LENGTH];
+      Hash.sha3omit12Each(input, inOffset, stride, length, count, out, 2);
+      for (int i = 0; i < count; i++) {
+        byte[] expected = reference(256, input, inOffset + i * stride, length);
+        assertArrayEquals("length " + length + ", stride " + stride + ", message " + i,
+            Arrays.copyOfRange(expected, 12, Hash.SHA3_LENGTH),
+            Arrays.copyOfRange(out, 2 + i * Hash.ADDRESS_LENGTH,
+                2 + (i + 1) * Hash.ADDRESS_LENGTH));
+      }
+    }
+  }
+
+  private static void assertStillHashesCorrectly(byte[] sha3, byte[] sha256) {
+    assertArrayEquals(sha3, Hash.sha3(HELLO));
+    assertArrayEquals(sha256, Hash.sha256(HELLO));
+    byte[] out = new byte[Hash.SHA3_LENGTH];
+    Hash.sha3(HELLO, 0, HELLO.length, out, 0);
+    assertArrayEquals(sha3, out);
+  }
+
+  @Test
+  public void hashesCorrectlyAfterFailedCalls() {
+    byte[] sha3 = Hash.newSha3Digest().digest(HELLO);
+    byte[] sha256 = Hash.newSha256Digest().digest(HELLO);
+
+    // A range longer than the array: several blocks would fit before it runs out.
+    try {
+      Hash.sha3(new byte[300], 0, 400);
+      fail();
+    } catch (RuntimeException expected) {
+    }
+    assertStillHashesCorrectly(sha3, sha256);
+
+    try {
+      Hash.sha256(new byte[300], 0, 400, new byte[Hash.SHA256_LENGTH], 0);
+      fail();
+    } catch (RuntimeException expected) {
+    }
+    assertStillHashesCorrectly(sha3, sha256);
+
+    // The input is fine, the output array is too small for the hash.
+    try {
+      Hash.sha3(new byte[300], 0, 300, new byte[Hash.SHA3_LENGTH], 1);
+      fail();
+    } catch (RuntimeException expected) {
+    }
+    assertStillHashesCorrectly(sha3, sha256);
+
+    try {
+      Hash.sha3(new byte[300], (byte[]) null);
+      fail();
+    } catch (RuntimeException expected) {
+    }
+    assertStillHashesCorrectly(sha3, sha256);
+
+    try {
+      Hash.sha3omit12(new byte[300], 0, 300, new byte[Hash.ADDRESS_LENGTH], 5);
+      fail();
+    } catch (RuntimeException expected) {
+    }
+    assertStillHashesCorrectly(sha3, sha256);
+
+    try {
+      Hash.sha3(ByteBuffer.wrap(new byte[300]), new byte[8], 0);
+      fail();
+    } catch (RuntimeException expected) {
+    }
+    assertStillHashesCorrectly(sha3, sha256);
+  }
+}
@@ -0,0 +1,47 @@
+package org.tron.common.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import org.junit.Test;
+
+public class PublicKeyCacheTest {
+
+  @Test
+  public void invalidEncodingIsNotCachedOrCountedAsHit() {
+    PublicKeyCache cache = new PublicKeyCache(PublicKeyCache.SEGMENTS);
+    byte[] garbage = new byte[65];
+    garbage[0] = 0x04;
+    garbage[1] = 0x01;
+    for (int i = 0; i < 3; i++) {
+      try {
+        cache.point(garbage);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getHits());
+    assertEquals(3, cache.getMisses());
+  }
+
+  @Test
+  public void hitOnlyWhenTheValueIsPresent() {
+    PublicKeyCache cache = new PublicKeyCache(PublicKeyCache.SEGMENTS);
+    ECKey key = ECKey.fromPrivate(BigInteger.valueOf(12345));
+    byte[] pubKey = key.getPubKey();
+
+    assertArrayEquals(key.getAddress(), cache.address(pubKey));
+    // The entry exists, but its point has not been decoded yet.
+    assertEquals(key.getPubKeyPoint(), cache.point(pubKey));
+    assertEquals(0, cache.getHits());
+    assertEquals(2, cache.getMisses());
+
+    assertEquals(key.getPubKeyPoint(), cache.point(pubKey));
+    assertArrayEquals(key.getAddress(), cache.address(pubKey));
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.size());
+  }
+}
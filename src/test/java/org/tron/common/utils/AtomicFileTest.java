@@ -0,0 +1,92 @@
+package org.tron.common.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AtomicFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Replace the file the way another process would: write a file next to it and rename it over.
+   */
+  private static void replaceBehindItsBack(Path path, byte[] content) throws IOException {
+    Path other = path.resolveSibling(path.getFileName() + ".other");
+    Files.write(other, content);
+    Files.move(other, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  @Test
+  public void writeIsReadBackAndLeavesNoTemp() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("file");
+    AtomicFile file = AtomicFile.of(path);
+    assertSame(file, AtomicFile.of(path.resolveSibling(".").resolve("file")));
+    assertNull(file.read());
+
+    file.write(bytes("head"), bytes(""), bytes("tail"));
+    assertArrayEquals(bytes("headtail"), file.readBytes());
+    assertArrayEquals(bytes("headtail"), Files.readAllBytes(path));
+    assertFalse(Files.exists(AtomicFile.tempFor(path)));
+  }
+
+  @Test
+  public void readSeesAFileReplacedByAnotherProcess() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("replaced");
+    AtomicFile file = AtomicFile.of(path);
+    file.write(bytes("first"));
+    assertArrayEquals(bytes("first"), file.readBytes());
+
+    // Same size, new file: only the file key and perhaps the time tell it apart.
+    replaceBehindItsBack(path, bytes("other"));
+    assertArrayEquals(bytes("other"), file.readBytes());
+
+    // Rewritten in place with the same size: the modification time tells it apart.
+    FileTime before = Files.getLastModifiedTime(path);
+    Files.write(path, bytes("third"));
+    Files.setLastModifiedTime(path, FileTime.fromMillis(before.toMillis() + 2000));
+    assertArrayEquals(bytes("third"), file.readBytes());
+
+    Files.write(path, bytes("longer content"));
+    assertArrayEquals(bytes("longer content"), file.readBytes());
+
+    Files.delete(path);
+    assertNull(file.read());
+    assertNull(file.readBytes());
+  }
+
+  @Test
+  public void largeFileIsMappedAndStillSeesReplacement() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("large");
+    byte[] large = new byte[AtomicFile.MAP_THRESHOLD + 1];
+    Arrays.fill(large, (byte) 'a');
+    replaceBehindItsBack(path, large);
+    AtomicFile file = AtomicFile.of(path);
+    assertArrayEquals(large, file.readBytes());
+
+    Arrays.fill(large, (byte) 'b');
+    replaceBehindItsBack(path, large);
+    assertArrayEquals(large, file.readBytes());
+
+    file.write(bytes("small"));
+    assertArrayEquals(bytes("small"), file.readBytes());
+  }
+}
@@ -0,0 +1,115 @@
+package org.tron.common.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.tron.common.crypto.ECKey;
+import org.tron.protos.Contract.TransferContract;
+import org.tron.protos.Protocol.Transaction;
+
+public class TransactionUtilsTest {
+
+  private static ECKey key(int i) {
+    return ECKey.fromPrivate(BigInteger.valueOf(2000 + i));
+  }
+
+  private static Transaction transfers(ECKey owner, int contracts) {
+    Transaction.raw.Builder raw = Transaction.raw.newBuilder()
+        .setType(Transaction.TransactionType.ContractType);
+    for (int i = 0; i < contracts; i++) {
+      raw.addContract(Transaction.Contract.newBuilder()
+          .setType(Transaction.Contract.ContractType.TransferContract)
+          .setParameter(Any.pack(TransferContract.newBuilder()
+              .setOwnerAddress(ByteString.copyFrom(owner.getAddress()))
+              .setToAddress(ByteString.copyFrom(key(99).getAddress()))
+              .setAmount(1 + i)
+              .build())));
+    }
+    return Transaction.newBuilder().setRawData(raw).build();
+  }
+
+  /**
+   * The signer of {@code sign} as validation found it before signatures were recovered in
+   * batches: through the Base64 encoding of the signature.
+   */
+  private static byte[] signerThroughBase64(Transaction transaction, ByteString sign)
+      throws SignatureException {
+    return ECKey.signatureToAddress(TransactionUtils.getTransactionId(transaction),
+        TransactionUtils.getBase64FromByteString(sign));
+  }
+
+  @Test
+  public void batchRecoveryMatchesTheBase64Path() throws SignatureException {
+    List<Transaction> transactions = new ArrayList<>();
+    // One key signing every contract: the same signature three times, recovered once.
+    transactions.add(TransactionUtils.sign(transfers(key(0), 3), key(0)));
+    // Two contracts signed by two keys.
+    Transaction mixed = transfers(key(1), 2);
+    byte[] mixedId = TransactionUtils.getTransactionId(mixed);
+    transactions.add(mixed.toBuilder()
+        .addSignature(ByteString.copyFrom(key(1).sign(mixedId).toByteArray()))
+        .addSignature(ByteString.copyFrom(key(2).sign(mixedId).toByteArray()))
+        .build());
+    // The repeated signatures of the first transaction again, in another transaction.
+    transactions.add(TransactionUtils.sign(transfers(key(0), 3), key(0)));
+    transactions.add(transfers(key(3), 1));
+    for (int i = 4; i < 12; i++) {
+      transactions.add(TransactionUtils.sign(transfers(key(i), 1), key(i)));
+    }
+
+    List<byte[][]> signers = TransactionUtils.recoverSigners(transactions);
+    assertEquals(transactions.size(), signers.size());
+    for (int t = 0; t < transactions.size(); t++) {
+      Transaction transaction = transactions.get(t);
+      assertEquals(transaction.getSignatureCount(), signers.get(t).length);
+      for (int i = 0; i < transaction.getSignatureCount(); i++) {
+        assertArrayEquals("transaction " + t + ", signature " + i,
+            signerThroughBase64(transaction, transaction.getSignature(i)), signers.get(t)[i]);
+      }
+      assertTrue(Arrays.deepEquals(signers.get(t), TransactionUtils.recoverSigners(transaction)));
+    }
+    assertArrayEquals(key(0).getAddress(), signers.get(0)[2]);
+    assertArrayEquals(key(2).getAddress(), signers.get(1)[1]);
+    assertEquals(0, signers.get(3).length);
+  }
+
+  @Test
+  public void malformedSignatureRecoversNull() {
+    Transaction signed = TransactionUtils.sign(transfers(key(0), 3), key(0));
+    byte[] badHeader = signed.getSignature(1).toByteArray();
+    badHeader[64] = 40;
+    Transaction damaged = signed.toBuilder()
+        .setSignature(1, ByteString.copyFrom(badHeader))
+        .setSignature(2, signed.getSignature(2).substring(0, 64))
+        .build();
+    try {
+      signerThroughBase64(damaged, damaged.getSignature(1));
+      fail();
+    } catch (SignatureException expected) {
+    }
+
+    List<byte[][]> signers = TransactionUtils.recoverSigners(Arrays.asList(signed, damaged));
+    for (int i = 0; i < 3; i++) {
+      assertArrayEquals(key(0).getAddress(), signers.get(0)[i]);
+    }
+    assertArrayEquals(key(0).getAddress(), signers.get(1)[0]);
+    assertNull(signers.get(1)[1]);
+    assertNull(signers.get(1)[2]);
+
+    boolean[] verdicts = TransactionUtils.validateAll(Arrays.asList(signed, damaged));
+    assertTrue(verdicts[0]);
+    assertFalse(verdicts[1]);
+  }
+}
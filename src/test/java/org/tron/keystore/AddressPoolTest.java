@@ -0,0 +1,84 @@
+package org.tron.keystore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.tron.common.crypto.ECKey;
+
+public class AddressPoolTest {
+
+  private static final long START = 5;
+  private static final int COUNT = 257;
+
+  private static byte[] seed() {
+    byte[] seed = new byte[32];
+    for (int i = 0; i < seed.length; i++) {
+      seed[i] = (byte) i;
+    }
+    return seed;
+  }
+
+  private static List<byte[]> generate(AddressPool pool, int threads, int batchSize)
+      throws Exception {
+    List<byte[]> addresses = new ArrayList<>();
+    AddressPool.Report report = pool.generate(START, COUNT, threads, batchSize, null, batch -> {
+      assertEquals(START + addresses.size(), batch.getFirstIndex());
+      for (int i = 0; i < batch.size(); i++) {
+        ECKey key = pool.derive(batch.getFirstIndex() + i);
+        assertArrayEquals(key.getPubKey(), batch.getPublicKey(i));
+        addresses.add(batch.getAddress(i));
+      }
+    });
+    assertEquals(COUNT, report.getKeys());
+    assertEquals(COUNT, addresses.size());
+    return addresses;
+  }
+
+  @Test
+  public void deriveFollowsTheDocumentedScheme() {
+    // HMAC-SHA256(seed, index as 8 bytes big-endian, attempt 0), computed independently.
+    AddressPool pool = new AddressPool(seed());
+    assertEquals(new BigInteger(
+            "6bea9eaf74b1c03cba56411a626b6464b89d9bc610252e4c3de43226f6c2c5b0", 16),
+        pool.derive(0).getPrivKey());
+    assertEquals(new BigInteger(
+            "23c5ff43873e6cb50f62bce897a5e2353c548a60fe5e80500c9073215bfe687f", 16),
+        pool.derive(1).getPrivKey());
+    assertEquals(new BigInteger(
+            "aab1d209614910ae893c847ebb24cbbb12acab282726dfe4f16a8a2cfdc0decb", 16),
+        pool.derive(1000).getPrivKey());
+  }
+
+  @Test
+  public void sameSeedGivesSameAddressesWhateverTheThreadsAndBatches() throws Exception {
+    AddressPool pool = new AddressPool(seed());
+    List<byte[]> expected = new ArrayList<>();
+    for (long i = START; i < START + COUNT; i++) {
+      expected.add(pool.derive(i).getAddress());
+    }
+
+    int[][] layouts = {{1, COUNT}, {1, 1}, {2, 10}, {4, 16}, {8, 3}, {16, 1000}};
+    for (int[] layout : layouts) {
+      // A fresh pool from the same seed, as when the pool is rebuilt later.
+      List<byte[]> addresses = generate(new AddressPool(seed()), layout[0], layout[1]);
+      for (int i = 0; i < COUNT; i++) {
+        assertArrayEquals("threads " + layout[0] + ", batch " + layout[1] + ", index "
+            + (START + i), expected.get(i), addresses.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void otherSeedGivesOtherAddresses() {
+    byte[] other = seed();
+    other[0] ^= 1;
+    assertFalse(Arrays.equals(new AddressPool(seed()).derive(0).getAddress(),
+        new AddressPool(other).derive(0).getAddress()));
+  }
+}
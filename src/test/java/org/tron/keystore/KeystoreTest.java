@@ -0,0 +1,311 @@
+package org.tron.keystore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tron.common.crypto.ECKey;
+import org.tron.common.crypto.SymmEncoder;
+import org.tron.common.utils.ByteArray;
+
+public class KeystoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final KdfParams defaultParams = KdfParams.getDefault();
+  // The cheapest scrypt cost, so the tests spend their time on the file format.
+  private final KdfParams cheap = new KdfParams(KdfParams.MIN_LOG_N, 1, 1);
+  private Path dir;
+
+  @Before
+  public void setUp() throws IOException {
+    KdfParams.setDefault(cheap);
+    dir = folder.newFolder("keystore").toPath();
+  }
+
+  @After
+  public void tearDown() {
+    KdfParams.setDefault(defaultParams);
+  }
+
+  private static ECKey key(int i) {
+    return ECKey.fromPrivate(BigInteger.valueOf(1000 + i));
+  }
+
+  /**
+   * A record that needs no KDF to build, for tests about the log and the index only.
+   */
+  private static KeyRecord fakeRecord(Random random) {
+    byte[] address = new byte[21];
+    random.nextBytes(address);
+    byte[] publicKey = new byte[65];
+    random.nextBytes(publicKey);
+    byte[] encrypted = new byte[32];
+    random.nextBytes(encrypted);
+    return new KeyRecord(KeyRecord.SCHEME_LEGACY, address, new byte[16], publicKey, encrypted);
+  }
+
+  private Path dataFile() {
+    return dir.resolve(Keystore.DATA_FILE);
+  }
+
+  private void append(byte[] bytes) throws IOException {
+    Files.write(dataFile(), bytes, StandardOpenOption.APPEND);
+  }
+
+  private void flipByte(long position) throws IOException {
+    try (FileChannel channel = FileChannel.open(dataFile(), StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer b = ByteBuffer.allocate(1);
+      channel.read(b, position);
+      b.put(0, (byte) (b.get(0) ^ 0xFF));
+      b.rewind();
+      channel.write(b, position);
+    }
+  }
+
+  @Test
+  public void keysSurviveReopen() throws IOException {
+    try (Keystore keystore = Keystore.open(dir)) {
+      for (int i = 0; i < 3; i++) {
+        assertArrayEquals(key(i).getAddress(), keystore.add(key(i), "password" + i));
+      }
+    }
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(3, keystore.size());
+      for (int i = 0; i < 3; i++) {
+        ECKey unlocked = keystore.unlock(key(i).getAddress(), "password" + i);
+        assertNotNull(unlocked);
+        assertEquals(key(i).getPrivKey(), unlocked.getPrivKey());
+        assertNull(keystore.unlock(key(i).getAddress(), "wrong password"));
+      }
+    }
+  }
+
+  @Test
+  public void tornTailIsCutOffOnOpen() throws IOException {
+    long length;
+    try (Keystore keystore = Keystore.open(dir)) {
+      keystore.add(key(0), "password0");
+      keystore.add(key(1), "password1");
+      length = Files.size(dataFile());
+    }
+    // Half a header, as a crash in the middle of an append could leave.
+    append(new byte[] {0, 0, 0});
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(length, Files.size(dataFile()));
+      assertEquals(2, keystore.size());
+      assertNotNull(keystore.unlock(key(1).getAddress(), "password1"));
+      // Appending after the cut must land where the torn bytes were.
+      keystore.add(key(2), "password2");
+    }
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(3, keystore.size());
+      assertNotNull(keystore.unlock(key(2).getAddress(), "password2"));
+    }
+  }
+
+  @Test
+  public void recordWithBadChecksumIsCutOffOnReplay() throws IOException {
+    long firstEnd;
+    try (Keystore keystore = Keystore.open(dir)) {
+      keystore.add(key(0), "password0");
+      firstEnd = Files.size(dataFile());
+      keystore.add(key(1), "password1");
+    }
+    // Damage the last byte of the second record and make the open replay the whole log.
+    flipByte(Files.size(dataFile()) - 1);
+    Files.delete(dir.resolve(Keystore.INDEX_FILE));
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(firstEnd, Files.size(dataFile()));
+      assertEquals(1, keystore.size());
+      assertTrue(keystore.contains(key(0).getAddress()));
+      assertFalse(keystore.contains(key(1).getAddress()));
+    }
+  }
+
+  @Test
+  public void indexGrowsAndIsRebuiltFromTheLog() throws IOException {
+    Random random = new Random(16);
+    List<KeyRecord> records = new ArrayList<>();
+    for (int i = 0; i < KeystoreIndex.MIN_CAPACITY * 2; i++) {
+      records.add(fakeRecord(random));
+    }
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(records.size() / 2, keystore.putAll(records.subList(0, records.size() / 2)));
+      // One at a time across the point where the index doubles.
+      for (KeyRecord record : records.subList(records.size() / 2, records.size())) {
+        assertTrue(keystore.put(record));
+      }
+      assertEquals(records.size(), keystore.size());
+    }
+
+    // An index that covers nothing, as rekey leaves it before the swap, is rebuilt.
+    KeystoreIndex stale = KeystoreIndex.open(dir.resolve(Keystore.INDEX_FILE));
+    assertNotNull(stale);
+    stale.setCoveredLength(0);
+    stale.force();
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(records.size(), keystore.size());
+      for (KeyRecord record : records) {
+        assertArrayEquals(record.getPublicKey(), keystore.get(record.getAddress()).getPublicKey());
+      }
+    }
+
+    Files.delete(dir.resolve(Keystore.INDEX_FILE));
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(records.size(), keystore.size());
+      for (KeyRecord record : records) {
+        assertTrue(keystore.contains(record.getAddress()));
+      }
+    }
+  }
+
+  @Test
+  public void addingAStoredKeySupersedesItsRecord() throws IOException {
+    try (Keystore keystore = Keystore.open(dir)) {
+      keystore.add(key(0), "first password");
+      keystore.add(key(0), "second password");
+      assertEquals(1, keystore.size());
+      assertNull(keystore.unlock(key(0).getAddress(), "first password"));
+      assertNotNull(keystore.unlock(key(0).getAddress(), "second password"));
+    }
+  }
+
+  @Test
+  public void legacyWalletIsImportedOnce() throws IOException {
+    String password = "legacy password";
+    ECKey key = key(0);
+    byte[] encrypted = SymmEncoder.AES128EcbEnc(key.getPrivKeyBytes(),
+        KeyRecord.legacyEncKey(password));
+    Path wallet = folder.newFile("Wallet").toPath();
+    Files.write(wallet, (ByteArray.toHexString(KeyRecord.legacyPasswordCheck(password))
+        + ByteArray.toHexString(key.getPubKey()) + ByteArray.toHexString(encrypted))
+        .getBytes(StandardCharsets.US_ASCII));
+
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertArrayEquals(key.getAddress(), keystore.importLegacyWallet(wallet));
+      assertNull(keystore.importLegacyWallet(wallet));
+      assertEquals(1, keystore.size());
+      assertEquals(KeyRecord.SCHEME_LEGACY, keystore.get(key.getAddress()).getScheme());
+      assertEquals(key.getPrivKey(), keystore.unlock(key.getAddress(), password).getPrivKey());
+      assertNull(keystore.unlock(key.getAddress(), "wrong password"));
+    }
+  }
+
+  @Test
+  public void legacyWalletDoesNotReplaceAStoredKey() throws IOException {
+    ECKey key = key(0);
+    Path wallet = folder.newFile("Wallet").toPath();
+    Files.write(wallet, (ByteArray.toHexString(KeyRecord.legacyPasswordCheck("old password"))
+        + ByteArray.toHexString(key.getPubKey()) + ByteArray.toHexString(new byte[32]))
+        .getBytes(StandardCharsets.US_ASCII));
+
+    try (Keystore keystore = Keystore.open(dir)) {
+      keystore.add(key, "new password");
+      assertNull(keystore.importLegacyWallet(wallet));
+      assertEquals(KeyRecord.SCHEME_SCRYPT_GCM, keystore.get(key.getAddress()).getScheme());
+    }
+  }
+
+  @Test
+  public void rekeyMovesOnlyTheKeysTheOldPasswordOpens() throws IOException {
+    try (Keystore keystore = Keystore.open(dir)) {
+      for (int i = 0; i < 3; i++) {
+        keystore.add(key(i), "old password");
+      }
+      keystore.add(key(3), "other password");
+      keystore.add(key(4), "other password");
+      // Superseded by the record above it; the rewritten log drops it.
+      keystore.add(key(0), "old password");
+      long before = Files.size(dataFile());
+
+      assertEquals(0, keystore.rekey("no such password", "new password", cheap));
+      assertEquals(before, Files.size(dataFile()));
+
+      assertEquals(3, keystore.rekey("old password", "new password", cheap));
+      assertTrue(Files.size(dataFile()) < before);
+      assertFalse(Files.exists(dir.resolve(Keystore.DATA_FILE + ".tmp")));
+      assertEquals(5, keystore.size());
+    }
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(5, keystore.size());
+      for (int i = 0; i < 3; i++) {
+        assertNull(keystore.unlock(key(i).getAddress(), "old password"));
+        assertEquals(key(i).getPrivKey(),
+            keystore.unlock(key(i).getAddress(), "new password").getPrivKey());
+      }
+      for (int i = 3; i < 5; i++) {
+        assertNull(keystore.unlock(key(i).getAddress(), "new password"));
+        assertEquals(key(i).getPrivKey(),
+            keystore.unlock(key(i).getAddress(), "other password").getPrivKey());
+      }
+      // The swapped-in file takes appends like the old one did.
+      keystore.add(key(5), "new password");
+    }
+    try (Keystore keystore = Keystore.open(dir)) {
+      assertEquals(6, keystore.size());
+      assertNotNull(keystore.unlock(key(5).getAddress(), "new password"));
+    }
+  }
+
+  @Test
+  public void keysUnderOnePasswordShareOneDerivation() throws IOException {
+    long start = KdfParams.getDerivationCount();
+    try (Keystore keystore = Keystore.open(dir)) {
+      for (int i = 0; i < 20; i++) {
+        keystore.add(key(i), "password");
+      }
+      assertEquals(1, KdfParams.getDerivationCount() - start);
+      for (int i = 0; i < 20; i++) {
+        assertEquals(key(i).getPrivKey(),
+            keystore.unlock(key(i).getAddress(), "password").getPrivKey());
+      }
+      assertEquals(1, KdfParams.getDerivationCount() - start);
+    }
+
+    // A new session takes over the stored salt: one derivation to open a record with it.
+    start = KdfParams.getDerivationCount();
+    try (Keystore keystore = Keystore.open(dir)) {
+      for (int i = 20; i < 30; i++) {
+        keystore.add(key(i), "password");
+      }
+      assertEquals(1, KdfParams.getDerivationCount() - start);
+
+      // One for the new salt, one for the single old salt, whatever the number of keys.
+      start = KdfParams.getDerivationCount();
+      assertEquals(30, keystore.rekey("password", "new password", cheap));
+      assertEquals(2, KdfParams.getDerivationCount() - start);
+    }
+
+    // The rewritten log shares one salt too, so a later session unlocks all for one more.
+    start = KdfParams.getDerivationCount();
+    try (Keystore keystore = Keystore.open(dir)) {
+      keystore.add(key(30), "new password");
+      for (int i = 0; i <= 30; i++) {
+        assertNotNull(keystore.unlock(key(i).getAddress(), "new password"));
+      }
+      assertEquals(1, KdfParams.getDerivationCount() - start);
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package org.tron.keystore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Test;
+import org.tron.common.crypto.ECKey;
+
+public class UnlockedKeyCacheTest {
+
+  private static final String PASSWORD = "password";
+  private static final long IDLE_MILLIS = 400;
+
+  /**
+   * Keys 0 to 9 under {@link #PASSWORD}, counting how often it is asked.
+   */
+  private static class StubSource implements UnlockedKeyCache.KeySource {
+
+    private int calls;
+
+    @Override
+    public ECKey unlock(byte[] address, String password) {
+      calls++;
+      for (int i = 0; i < 10; i++) {
+        if (Arrays.equals(address(i), address)) {
+          return PASSWORD.equals(password) ? key(i) : null;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final StubSource source = new StubSource();
+  private UnlockedKeyCache cache;
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  private static ECKey key(int i) {
+    return ECKey.fromPrivate(BigInteger.valueOf(3000 + i));
+  }
+
+  private static byte[] address(int i) {
+    return key(i).getAddress();
+  }
+
+  private static void assertZeroed(byte[] bytes) {
+    assertNotNull(bytes);
+    assertArrayEquals(new byte[bytes.length], bytes);
+  }
+
+  private byte[] unlockAndHold(int i) throws IOException {
+    assertEquals(key(i).getPrivKey(), cache.unlock(address(i), PASSWORD).getPrivKey());
+    byte[] held = cache.heldPrivateKey(address(i));
+    assertNotNull(held);
+    assertFalse(Arrays.equals(new byte[held.length], held));
+    return held;
+  }
+
+  @Test
+  public void unlockedKeyIsServedWithoutTheSource() throws IOException {
+    cache = new UnlockedKeyCache(source, 60_000, 10);
+    unlockAndHold(0);
+    assertEquals(1, source.calls);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(key(0).getPrivKey(), cache.unlock(address(0), PASSWORD).getPrivKey());
+      assertEquals(key(0).getPrivKey(), cache.get(address(0)).getPrivKey());
+    }
+    assertEquals(1, source.calls);
+    assertNull(cache.get(address(1)));
+    assertNull(cache.unlock(address(1), "wrong password"));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void wrongPasswordIsRefusedForAnUnlockedKey() throws IOException {
+    cache = new UnlockedKeyCache(source, 60_000, 10);
+    unlockAndHold(0);
+    assertNull(cache.unlock(address(0), "wrong password"));
+    assertNull(cache.unlock(address(0), PASSWORD + " "));
+    // Checked against the cached hash, and the key stays unlocked for the right password.
+    assertEquals(1, source.calls);
+    assertTrue(cache.isUnlocked(address(0)));
+    assertEquals(key(0).getPrivKey(), cache.unlock(address(0), PASSWORD).getPrivKey());
+    assertEquals(1, source.calls);
+  }
+
+  @Test
+  public void lockAndLockAllZeroTheKeys() throws IOException {
+    cache = new UnlockedKeyCache(source, 60_000, 10);
+    byte[] first = unlockAndHold(0);
+    byte[] second = unlockAndHold(1);
+    byte[] third = unlockAndHold(2);
+
+    assertTrue(cache.lock(address(0)));
+    assertFalse(cache.lock(address(0)));
+    assertZeroed(first);
+    assertNull(cache.get(address(0)));
+    assertTrue(cache.isUnlocked(address(1)));
+
+    cache.lockAll();
+    assertZeroed(second);
+    assertZeroed(third);
+    assertEquals(0, cache.size());
+
+    // Locked keys come from the source again.
+    unlockAndHold(1);
+    assertEquals(4, source.calls);
+  }
+
+  @Test
+  public void leastRecentlyUsedKeyIsEvictedAndZeroed() throws IOException {
+    cache = new UnlockedKeyCache(source, 60_000, 2);
+    byte[] first = unlockAndHold(0);
+    byte[] second = unlockAndHold(1);
+    // Using the first key makes the second the least recently used.
+    assertNotNull(cache.get(address(0)));
+    unlockAndHold(2);
+
+    assertEquals(2, cache.size());
+    assertZeroed(second);
+    assertFalse(cache.isUnlocked(address(1)));
+    assertTrue(cache.isUnlocked(address(0)));
+    assertTrue(cache.isUnlocked(address(2)));
+    assertEquals(key(0).getPrivKey(), cache.get(address(0)).getPrivKey());
+    assertFalse(Arrays.equals(new byte[first.length], first));
+  }
+
+  @Test
+  public void idleKeyIsLockedAndZeroed() throws Exception {
+    cache = new UnlockedKeyCache(source, IDLE_MILLIS, 10);
+    byte[] used = unlockAndHold(0);
+    byte[] idle = unlockAndHold(1);
+
+    // Use keeps a key unlocked past the timeout.
+    for (int i = 0; i < 4; i++) {
+      Thread.sleep(IDLE_MILLIS / 4);
+      assertNotNull(cache.get(address(0)));
+    }
+
+    // The sweeper locks the idle key without anyone asking for it.
+    long deadline = System.currentTimeMillis() + 10 * IDLE_MILLIS;
+    while (cache.heldPrivateKey(address(1)) != null && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertNull(cache.heldPrivateKey(address(1)));
+    assertZeroed(idle);
+
+    // The used key too, once it is left idle.
+    Thread.sleep(IDLE_MILLIS + 50);
+    assertNull(cache.get(address(0)));
+    assertZeroed(used);
+    assertEquals(0, cache.size());
+  }
+}